@@ -22,6 +22,7 @@ package org.sonar.ce;
 import org.sonar.core.platform.Module;
 import org.sonar.server.computation.monitoring.CEQueueStatusImpl;
 import org.sonar.server.computation.monitoring.CeTasksMBeanImpl;
+import org.sonar.server.computation.queue.CeMemoryBudget;
 import org.sonar.server.computation.queue.CeQueueCleaner;
 import org.sonar.server.computation.queue.CeQueueInitializer;
 import org.sonar.server.computation.queue.InternalCeQueueImpl;
@@ -32,6 +33,7 @@ public class CeQueueModule extends Module {
     add(
       // queue state
       InternalCeQueueImpl.class,
+      CeMemoryBudget.class,
 
       // queue monitoring
       CEQueueStatusImpl.class,
@@ -71,11 +71,13 @@ import org.sonar.server.component.ComponentService;
 import org.sonar.server.component.es.ProjectMeasuresIndexer;
 import org.sonar.server.computation.queue.PurgeCeActivities;
 import org.sonar.server.computation.task.projectanalysis.ProjectAnalysisTaskModule;
+import org.sonar.server.computation.task.projectanalysis.webhook.WebhookModule;
 import org.sonar.server.computation.taskprocessor.CeTaskProcessorModule;
 import org.sonar.server.debt.DebtModelPluginRepository;
 import org.sonar.server.debt.DebtRulesXMLImporter;
 import org.sonar.server.event.NewAlerts;
 import org.sonar.server.issue.IssueUpdater;
+import org.sonar.server.issue.index.IssueFacetsCache;
 import org.sonar.server.issue.index.IssueIndex;
 import org.sonar.server.issue.index.IssueIndexer;
 import org.sonar.server.issue.notification.ChangesOnMyIssueNotificationDispatcher;
@@ -244,6 +246,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
 
       // issues
       IssueIndex.class,
+      IssueFacetsCache.class,
 
       new OkHttpClientProvider()
     };
@@ -389,6 +392,9 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       ProjectAnalysisTaskModule.class,
       CeTaskProcessorModule.class,
 
+      // webhooks
+      WebhookModule.class,
+
       InternalPropertiesImpl.class,
       ProjectSettingsFactory.class,
     };
@@ -140,6 +140,11 @@ public class CeUserSession implements UserSession {
     return notImplementedBooleanMethod();
   }
 
+  @Override
+  public Set<String> keepAuthorizedComponentUuids(String permission, Collection<String> componentUuids) {
+    return notImplemented();
+  }
+
   private static <T> T notImplemented() {
     throw new UnsupportedOperationException(UOE_MESSAGE);
   }
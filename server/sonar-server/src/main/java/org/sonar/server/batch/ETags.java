@@ -0,0 +1,68 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.batch;
+
+import java.net.HttpURLConnection;
+import java.util.Collection;
+import java.util.Optional;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+
+/**
+ * Entity tags of the batch web services, so that scanners can keep the payloads in their local cache
+ * and download them again only when they changed.
+ */
+class ETags {
+
+  static final String ETAG_HEADER = "ETag";
+  static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+  private ETags() {
+    // only static stuff
+  }
+
+  /**
+   * Scanners store the responses having a tag in the user home, in plain text. Responses containing secured settings
+   * must not be stored, so they have no tag.
+   */
+  static boolean isCacheable(Collection<String> settingKeys) {
+    return settingKeys.stream().noneMatch(key -> key.contains(".secured"));
+  }
+
+  static String of(String mediaType, byte[] content) {
+    return '"' + DigestUtils.md5Hex(mediaType + DigestUtils.md5Hex(content)) + '"';
+  }
+
+  /**
+   * Sets the ETag header of the response. Returns true and sets the status 304 if the tag
+   * matches the one sent by the client, in which case the content must not be written.
+   */
+  static boolean handleNotModified(Request request, Response response, String mediaType, byte[] content) {
+    String etag = of(mediaType, content);
+    response.setHeader(ETAG_HEADER, etag);
+    Optional<String> clientEtag = request.header(IF_NONE_MATCH_HEADER);
+    if (clientEtag.isPresent() && clientEtag.get().equals(etag)) {
+      response.stream().setStatus(HttpURLConnection.HTTP_NOT_MODIFIED);
+      return true;
+    }
+    return false;
+  }
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.batch;
 
+import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
@@ -72,8 +73,11 @@ public class GlobalAction implements BatchWsAction {
       addMetrics(ref, session);
       addSettings(ref, hasScanPerm, isLogged, session);
 
-      response.stream().setMediaType(MediaTypes.JSON);
-      IOUtils.write(ref.toJson(), response.stream().output());
+      byte[] json = ref.toJson().getBytes(StandardCharsets.UTF_8);
+      if (!ETags.isCacheable(ref.globalSettings().keySet()) || !ETags.handleNotModified(request, response, MediaTypes.JSON, json)) {
+        response.stream().setMediaType(MediaTypes.JSON);
+        IOUtils.write(json, response.stream().output());
+      }
     } finally {
       MyBatis.closeQuietly(session);
     }
@@ -19,8 +19,10 @@
  */
 package org.sonar.server.batch;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
@@ -81,7 +83,15 @@ public class ProjectAction implements BatchWsAction {
       .setIssuesMode(wsRequest.mandatoryParamAsBoolean(PARAM_ISSUES_MODE)));
 
     WsProjectResponse projectResponse = buildResponse(data);
-    writeProtobuf(projectResponse, wsRequest, wsResponse);
+    if (!isCacheable(data) || !ETags.handleNotModified(wsRequest, wsResponse, wsRequest.getMediaType(), projectResponse.toByteArray())) {
+      writeProtobuf(projectResponse, wsRequest, wsResponse);
+    }
+  }
+
+  private static boolean isCacheable(ProjectRepositories data) {
+    List<String> settingKeys = new ArrayList<>();
+    data.settings().values().forEach(moduleSettings -> settingKeys.addAll(moduleSettings.keySet()));
+    return ETags.isCacheable(settingKeys);
   }
 
   private static WsProjectResponse buildResponse(ProjectRepositories data) {
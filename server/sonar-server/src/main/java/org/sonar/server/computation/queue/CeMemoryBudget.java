@@ -0,0 +1,200 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import org.picocontainer.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Heap memory budget shared by the Compute Engine workers, which all run in the same JVM.
+ * <p>
+ * Each task reserves an estimate of the heap it needs before being peeked. A task is admitted only if its estimate
+ * fits in what is left of the budget, unless no other task is in progress: a single task is always admitted, so
+ * that reports bigger than the budget are still processed.
+ * </p>
+ * <p>
+ * It also records, for each task in progress, the peak of heap used right after a garbage collection, ie. without
+ * garbage. All the workers share the heap, so it includes the memory used by the tasks processed concurrently.
+ * </p>
+ */
+@ComputeEngineSide
+public class CeMemoryBudget implements Startable {
+
+  /**
+   * Heap required by a task is roughly proportional to the size of its report, which is compressed.
+   */
+  @VisibleForTesting
+  static final long HEAP_BYTES_PER_REPORT_BYTE = 20L;
+  @VisibleForTesting
+  static final long MIN_TASK_HEAP_BYTES = 32L * 1024 * 1024;
+  /**
+   * Part of the max heap which can be reserved by tasks, the remaining being used by the Compute Engine itself.
+   */
+  private static final long BUDGET_PERCENT_OF_MAX_HEAP = 80L;
+  /**
+   * Number of tasks which can be admitted before an older task which has been refused, so that big reports are not
+   * delayed forever by a flow of small ones.
+   */
+  @VisibleForTesting
+  static final int MAX_CONSECUTIVE_BYPASSES = 10;
+
+  private final long budgetBytes;
+  private final Map<String, Long> reservedBytesByTaskUuid = new HashMap<>();
+  private long reservedBytes = 0L;
+  private int consecutiveBypasses = 0;
+  private final Map<String, Long> liveHeapPeakByTaskUuid = new HashMap<>();
+  private final NotificationListener gcListener = this::onNotification;
+
+  public CeMemoryBudget() {
+    this(Runtime.getRuntime().maxMemory() / 100 * BUDGET_PERCENT_OF_MAX_HEAP);
+  }
+
+  @VisibleForTesting
+  CeMemoryBudget(long budgetBytes) {
+    this.budgetBytes = budgetBytes;
+  }
+
+  /**
+   * Estimate of the heap required to process a report of the specified size.
+   */
+  public static long estimateHeapBytes(long reportSizeBytes) {
+    return Math.max(MIN_TASK_HEAP_BYTES, reportSizeBytes * HEAP_BYTES_PER_REPORT_BYTE);
+  }
+
+  /**
+   * Reserves {@code heapBytes} for the specified task if the tasks in progress leave enough room for it in the budget.
+   *
+   * @param bypassesOlderTask whether a task older than the specified one has just been refused
+   * @return {@code true} if memory has been reserved, in which case {@link #release(String)} must be called once the
+   *         task is done
+   */
+  public synchronized boolean tryReserve(String taskUuid, long heapBytes, boolean bypassesOlderTask) {
+    if (reservedBytesByTaskUuid.isEmpty()) {
+      consecutiveBypasses = 0;
+    } else if (reservedBytes + heapBytes > budgetBytes) {
+      return false;
+    } else if (!bypassesOlderTask) {
+      consecutiveBypasses = 0;
+    } else if (consecutiveBypasses >= MAX_CONSECUTIVE_BYPASSES) {
+      return false;
+    } else {
+      consecutiveBypasses++;
+    }
+    Long existing = reservedBytesByTaskUuid.put(taskUuid, heapBytes);
+    checkState(existing == null, "Memory is already reserved for task %s", taskUuid);
+    reservedBytes += heapBytes;
+    return true;
+  }
+
+  public synchronized void release(String taskUuid) {
+    Long released = reservedBytesByTaskUuid.remove(taskUuid);
+    if (released != null) {
+      reservedBytes -= released;
+    }
+    liveHeapPeakByTaskUuid.remove(taskUuid);
+  }
+
+  public synchronized long getReservedBytes() {
+    return reservedBytes;
+  }
+
+  /**
+   * Peak of heap used right after a garbage collection since the specified task has been admitted.
+   *
+   * @return {@code null} if the task is not in progress or if no garbage collection occurred since it has been admitted
+   */
+  @CheckForNull
+  public synchronized Long getLiveHeapPeak(String taskUuid) {
+    return liveHeapPeakByTaskUuid.get(taskUuid);
+  }
+
+  @VisibleForTesting
+  synchronized void onGarbageCollection(long liveHeapBytes) {
+    for (String taskUuid : reservedBytesByTaskUuid.keySet()) {
+      liveHeapPeakByTaskUuid.merge(taskUuid, liveHeapBytes, Math::max);
+    }
+  }
+
+  private void onNotification(Notification notification, Object handback) {
+    if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+      return;
+    }
+    GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+    Set<String> heapPoolNames = heapPoolNames();
+    long liveHeapBytes = 0L;
+    for (Map.Entry<String, MemoryUsage> usageAfterGc : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+      if (heapPoolNames.contains(usageAfterGc.getKey())) {
+        liveHeapBytes += usageAfterGc.getValue().getUsed();
+      }
+    }
+    onGarbageCollection(liveHeapBytes);
+  }
+
+  private static Set<String> heapPoolNames() {
+    Set<String> names = new HashSet<>();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        names.add(pool.getName());
+      }
+    }
+    return names;
+  }
+
+  @Override
+  public void start() {
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (gc instanceof NotificationEmitter) {
+        ((NotificationEmitter) gc).addNotificationListener(gcListener, null, null);
+      }
+    }
+  }
+
+  @Override
+  public void stop() {
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (gc instanceof NotificationEmitter) {
+        try {
+          ((NotificationEmitter) gc).removeNotificationListener(gcListener);
+        } catch (ListenerNotFoundException e) {
+          // not started
+        }
+      }
+    }
+  }
+}
@@ -44,6 +44,9 @@ public interface InternalCeQueue extends CeQueue {
    *
    * <p>Only a single task can be peeked by project.</p>
    *
+   * <p>The oldest task can be skipped if the heap memory it is estimated to need is not available, in which case
+   * a more recent and smaller task is peeked.</p>
+   *
    * <p>An unchecked exception may be thrown on technical errors (db connection, ...).</p>
    */
   Optional<CeTask> peek();
@@ -24,6 +24,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -46,18 +48,26 @@ import static com.google.common.base.Preconditions.checkState;
 @ComputeEngineSide
 public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue {
 
+  /**
+   * Number of pending tasks considered by {@link #peek()}, so that a task which does not fit in the memory budget does
+   * not prevent smaller ones from being processed.
+   */
+  private static final int MAX_PEEK_CANDIDATES = 10;
+
   private final System2 system2;
   private final DbClient dbClient;
   private final CEQueueStatus queueStatus;
+  private final CeMemoryBudget memoryBudget;
 
   // state
   private AtomicBoolean peekPaused = new AtomicBoolean(false);
 
-  public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus) {
+  public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus, CeMemoryBudget memoryBudget) {
     super(dbClient, uuidFactory);
     this.system2 = system2;
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
+    this.memoryBudget = memoryBudget;
   }
 
   @Override
@@ -67,19 +77,58 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     }
     DbSession dbSession = dbClient.openSession(false);
     try {
-      Optional<CeQueueDto> dto = dbClient.ceQueueDao().peek(dbSession);
-      CeTask task = null;
-      if (dto.isPresent()) {
-        task = loadTask(dbSession, dto.get());
-        queueStatus.addInProgress();
+      boolean olderTaskRefused = false;
+      Set<String> candidateComponentUuids = new HashSet<>();
+      for (CeQueueDto candidate : dbClient.ceQueueDao().selectEligibleForPeek(dbSession, MAX_PEEK_CANDIDATES)) {
+        String componentUuid = candidate.getComponentUuid();
+        if (componentUuid != null && !candidateComponentUuids.add(componentUuid)) {
+          // tasks of a component are processed in submission order, so an older task of the same component which
+          // could not be peeked must be processed first
+          continue;
+        }
+        String taskUuid = candidate.getUuid();
+        long reportSize = dbClient.ceTaskInputDao().selectDataSize(dbSession, taskUuid).orElse(0L);
+        if (!memoryBudget.tryReserve(taskUuid, CeMemoryBudget.estimateHeapBytes(reportSize), olderTaskRefused)) {
+          olderTaskRefused = true;
+          continue;
+        }
+        Optional<CeTask> task = Optional.absent();
+        try {
+          task = tryToPeek(dbSession, taskUuid);
+        } finally {
+          if (!task.isPresent()) {
+            memoryBudget.release(taskUuid);
+          }
+        }
+        if (task.isPresent()) {
+          return task;
+        }
       }
-      return Optional.fromNullable(task);
+      return Optional.absent();
 
     } finally {
       dbClient.closeSession(dbSession);
     }
   }
 
+  private Optional<CeTask> tryToPeek(DbSession dbSession, String taskUuid) {
+    Optional<CeQueueDto> dto = dbClient.ceQueueDao().tryToPeek(dbSession, taskUuid);
+    if (!dto.isPresent()) {
+      // peeked by another worker in the meantime
+      return Optional.absent();
+    }
+    try {
+      CeTask task = loadTask(dbSession, dto.get());
+      queueStatus.addInProgress();
+      return Optional.of(task);
+    } catch (RuntimeException e) {
+      // the task is not executed, so it must not stay IN_PROGRESS until the next restart
+      dbClient.ceQueueDao().resetToPendingStatus(dbSession, taskUuid);
+      dbSession.commit();
+      throw e;
+    }
+  }
+
   @Override
   public int clear() {
     return cancelAll(true);
@@ -94,11 +143,13 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
       checkState(queueDto.isPresent(), "Task does not exist anymore: %s", task);
       CeActivityDto activityDto = new CeActivityDto(queueDto.get());
       activityDto.setStatus(status);
+      activityDto.setCeHeapPeakBytes(memoryBudget.getLiveHeapPeak(task.getUuid()));
       updateQueueStatus(status, activityDto);
       updateTaskResult(activityDto, taskResult);
       updateError(activityDto, error);
       remove(dbSession, queueDto.get(), activityDto);
     } finally {
+      memoryBudget.release(task.getUuid());
       dbClient.closeSession(dbSession);
     }
   }
@@ -23,6 +23,11 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -30,12 +35,10 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.SnapshotDto;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
-import static com.google.common.collect.Iterables.toArray;
 import static java.lang.String.format;
 import static org.apache.commons.lang.StringUtils.trimToNull;
 import static org.sonar.core.component.ComponentKeys.createEffectiveKey;
 import static org.sonar.core.component.ComponentKeys.createKey;
-import static org.sonar.core.util.stream.Collectors.toList;
 
 public class ComponentRootBuilder {
   private static final String DEFAULT_PROJECT_VERSION = "not provided";
@@ -73,6 +76,17 @@ public class ComponentRootBuilder {
   private final Function<String, Optional<SnapshotDto>> analysisSupplier;
   @CheckForNull
   private final String branch;
+  /**
+   * Modules and their descendants usually share the same version: a single String instance is kept for each
+   * distinct value.
+   */
+  private final Interner<String> stringInterner = Interners.newStrongInterner();
+  /**
+   * {@link FileAttributes} are immutable and there are only as many distinct values as there are languages (times
+   * two, for main and test files), hence they are shared by all the files of the tree.
+   */
+  private final Map<String, FileAttributes> mainFileAttributesByLanguage = new HashMap<>();
+  private final Map<String, FileAttributes> testFileAttributesByLanguage = new HashMap<>();
 
   public ComponentRootBuilder(@Nullable String branch,
     Function<String, String> uuidSupplier,
@@ -116,7 +130,7 @@ public class ComponentRootBuilder {
   private ComponentImpl buildOtherComponent(ScannerReport.Component reportComponent, String componentKey, String latestModuleKey) {
     return createCommonBuilder(reportComponent, componentKey, latestModuleKey)
       .setName(nameOfOthers(reportComponent, componentKey))
-      .setReportAttributes(createOtherReportAttributes(reportComponent))
+      .setReportAttributes(createOtherReportAttributes(reportComponent, stringInterner))
       .build();
   }
 
@@ -125,15 +139,32 @@ public class ComponentRootBuilder {
       .setUuid(uuidSupplier.apply(componentKey))
       .setKey(componentKey)
       .setDescription(trimToNull(reportComponent.getDescription()))
-      .setFileAttributes(createFileAttributes(reportComponent))
-      .addChildren(toArray(buildChildren(reportComponent, latestModuleKey), Component.class));
+      .setFileAttributes(getOrCreateFileAttributes(reportComponent))
+      .addChildren(buildChildren(reportComponent, latestModuleKey));
   }
 
-  private Iterable<Component> buildChildren(ScannerReport.Component component, String latestModuleKey) {
-    return component.getChildRefList()
-      .stream()
-      .map(componentRef -> buildComponent(scannerComponentSupplier.apply(componentRef), latestModuleKey))
-      .collect(toList(component.getChildRefList().size()));
+  private Component[] buildChildren(ScannerReport.Component component, String latestModuleKey) {
+    List<Integer> childRefs = component.getChildRefList();
+    Component[] children = new Component[childRefs.size()];
+    for (int i = 0; i < children.length; i++) {
+      children[i] = buildComponent(scannerComponentSupplier.apply(childRefs.get(i)), latestModuleKey);
+    }
+    return children;
+  }
+
+  @CheckForNull
+  private FileAttributes getOrCreateFileAttributes(ScannerReport.Component component) {
+    if (component.getType() != ScannerReport.Component.ComponentType.FILE) {
+      return null;
+    }
+    Map<String, FileAttributes> fileAttributesByLanguage = component.getIsTest() ? testFileAttributesByLanguage : mainFileAttributesByLanguage;
+    String language = trimToNull(component.getLanguage());
+    FileAttributes fileAttributes = fileAttributesByLanguage.get(language);
+    if (fileAttributes == null) {
+      fileAttributes = createFileAttributes(component);
+      fileAttributesByLanguage.put(language, fileAttributes);
+    }
+    return fileAttributes;
   }
 
   private static String nameOfProject(ScannerReport.Component project, String projectKey, Supplier<Optional<ComponentDto>> projectDtoSupplier) {
@@ -171,9 +202,10 @@ public class ComponentRootBuilder {
   }
 
   @VisibleForTesting
-  static ReportAttributes createOtherReportAttributes(ScannerReport.Component component) {
+  static ReportAttributes createOtherReportAttributes(ScannerReport.Component component, Interner<String> stringInterner) {
+    String version = trimToNull(component.getVersion());
     return createCommonBuilder(component)
-      .setVersion(trimToNull(component.getVersion()))
+      .setVersion(version == null ? null : stringInterner.intern(version))
       .build();
   }
 
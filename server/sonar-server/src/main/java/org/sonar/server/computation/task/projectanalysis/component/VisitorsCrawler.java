@@ -24,6 +24,7 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nonnull;
@@ -32,7 +33,6 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
 
 import static com.google.common.collect.FluentIterable.from;
-import static com.google.common.collect.Iterables.concat;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -44,6 +44,10 @@ public class VisitorsCrawler implements ComponentCrawler {
   private final Map<ComponentVisitor, VisitorDuration> visitorCumulativeDurations;
   private final List<VisitorWrapper> preOrderVisitorWrappers;
   private final List<VisitorWrapper> postOrderVisitorWrappers;
+  /**
+   * Visitors to execute on each type of component, computed once instead of on each visited component
+   */
+  private final Map<Component.Type, VisitorWrappers> visitorWrappersByType;
 
   public VisitorsCrawler(Iterable<ComponentVisitor> visitors) {
     this(visitors, false);
@@ -53,6 +57,13 @@ public class VisitorsCrawler implements ComponentCrawler {
     List<VisitorWrapper> visitorWrappers = from(visitors).transform(ToVisitorWrapper.INSTANCE).toList();
     this.preOrderVisitorWrappers = from(visitorWrappers).filter(MathPreOrderVisitor.INSTANCE).toList();
     this.postOrderVisitorWrappers = from(visitorWrappers).filter(MatchPostOrderVisitor.INSTANCE).toList();
+    this.visitorWrappersByType = new EnumMap<>(Component.Type.class);
+    for (Component.Type type : Component.Type.values()) {
+      MatchVisitorMaxDepth visitorMaxDepth = MatchVisitorMaxDepth.forType(type);
+      visitorWrappersByType.put(type, new VisitorWrappers(
+        from(preOrderVisitorWrappers).filter(visitorMaxDepth).toList(),
+        from(postOrderVisitorWrappers).filter(visitorMaxDepth).toList()));
+    }
     this.computeDuration = computeDuration;
     this.visitorCumulativeDurations = computeDuration ? from(visitors).toMap(VisitorWrapperToInitialDuration.INSTANCE) : Collections.emptyMap();
   }
@@ -79,14 +90,17 @@ public class VisitorsCrawler implements ComponentCrawler {
   }
 
   private void visitImpl(Component component) {
-    MatchVisitorMaxDepth visitorMaxDepth = MatchVisitorMaxDepth.forComponent(component);
-    List<VisitorWrapper> preOrderVisitorWrappersToExecute = from(preOrderVisitorWrappers).filter(visitorMaxDepth).toList();
-    List<VisitorWrapper> postOrderVisitorWrappersToExecute = from(postOrderVisitorWrappers).filter(visitorMaxDepth).toList();
+    VisitorWrappers visitorWrappersToExecute = visitorWrappersByType.get(component.getType());
+    List<VisitorWrapper> preOrderVisitorWrappersToExecute = visitorWrappersToExecute.preOrder;
+    List<VisitorWrapper> postOrderVisitorWrappersToExecute = visitorWrappersToExecute.postOrder;
     if (preOrderVisitorWrappersToExecute.isEmpty() && postOrderVisitorWrappersToExecute.isEmpty()) {
       return;
     }
 
-    for (VisitorWrapper visitorWrapper : concat(preOrderVisitorWrappers, postOrderVisitorWrappers)) {
+    for (VisitorWrapper visitorWrapper : preOrderVisitorWrappers) {
+      visitorWrapper.beforeComponent(component);
+    }
+    for (VisitorWrapper visitorWrapper : postOrderVisitorWrappers) {
       visitorWrapper.beforeComponent(component);
     }
 
@@ -100,7 +114,10 @@ public class VisitorsCrawler implements ComponentCrawler {
       visitNode(component, visitorWrapper);
     }
 
-    for (VisitorWrapper visitorWrapper : concat(preOrderVisitorWrappersToExecute, postOrderVisitorWrappersToExecute)) {
+    for (VisitorWrapper visitorWrapper : preOrderVisitorWrappersToExecute) {
+      visitorWrapper.afterComponent(component);
+    }
+    for (VisitorWrapper visitorWrapper : postOrderVisitorWrappersToExecute) {
       visitorWrapper.afterComponent(component);
     }
   }
@@ -181,8 +198,8 @@ public class VisitorsCrawler implements ComponentCrawler {
       return builder.build();
     }
 
-    public static MatchVisitorMaxDepth forComponent(Component component) {
-      return INSTANCES.get(component.getType());
+    public static MatchVisitorMaxDepth forType(Component.Type type) {
+      return INSTANCES.get(type);
     }
 
     @Override
@@ -210,6 +227,16 @@ public class VisitorsCrawler implements ComponentCrawler {
     }
   }
 
+  private static final class VisitorWrappers {
+    private final List<VisitorWrapper> preOrder;
+    private final List<VisitorWrapper> postOrder;
+
+    private VisitorWrappers(List<VisitorWrapper> preOrder, List<VisitorWrapper> postOrder) {
+      this.preOrder = preOrder;
+      this.postOrder = postOrder;
+    }
+  }
+
   private static final class VisitorDuration {
     private long duration = 0;
 
@@ -23,9 +23,9 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.annotation.Nonnull;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
@@ -42,6 +42,8 @@ import static com.google.common.collect.FluentIterable.from;
 
 /**
  * Transform a list of duplication blocks into clone groups, then add these clone groups into the duplication repository.
+ * <p>
+ * {@link #computeCpd(Component, Collection, Collection)} can be called concurrently for different files.
  */
 public class IntegrateCrossProjectDuplications {
 
@@ -55,7 +57,7 @@ public class IntegrateCrossProjectDuplications {
   private final Settings settings;
   private final DuplicationRepository duplicationRepository;
 
-  private Map<String, NumberOfUnitsNotLessThan> numberOfUnitsByLanguage = new HashMap<>();
+  private final ConcurrentMap<String, NumberOfUnitsNotLessThan> numberOfUnitsByLanguage = new ConcurrentHashMap<>();
 
   public IntegrateCrossProjectDuplications(Settings settings, DuplicationRepository duplicationRepository) {
     this.settings = settings;
@@ -78,7 +80,7 @@ public class IntegrateCrossProjectDuplications {
     }
   }
 
-  private void addDuplications(Component file, Iterable<CloneGroup> duplications) {
+  private synchronized void addDuplications(Component file, Iterable<CloneGroup> duplications) {
     int cloneGroupCount = 0;
     for (CloneGroup duplication : duplications) {
       cloneGroupCount++;
@@ -110,12 +112,7 @@ public class IntegrateCrossProjectDuplications {
   }
 
   private NumberOfUnitsNotLessThan getNumberOfUnitsNotLessThan(String language) {
-    NumberOfUnitsNotLessThan numberOfUnitsNotLessThan = numberOfUnitsByLanguage.get(language);
-    if (numberOfUnitsNotLessThan == null) {
-      numberOfUnitsNotLessThan = new NumberOfUnitsNotLessThan(getMinimumTokens(language));
-      numberOfUnitsByLanguage.put(language, numberOfUnitsNotLessThan);
-    }
-    return numberOfUnitsNotLessThan;
+    return numberOfUnitsByLanguage.computeIfAbsent(language, key -> new NumberOfUnitsNotLessThan(getMinimumTokens(key)));
   }
 
   private int getMinimumTokens(String languageKey) {
@@ -21,20 +21,20 @@ package org.sonar.server.computation.task.projectanalysis.measure;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
-import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.SetMultimap;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import javax.annotation.Nonnull;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.Developer;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.collect.FluentIterable.from;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
@@ -45,7 +45,7 @@ import static java.util.Objects.requireNonNull;
  */
 public final class MapBasedRawMeasureRepository<T> implements MeasureRepository {
   private final Function<Component, T> componentToKey;
-  private final Map<T, Map<MeasureKey, Measure>> measures = new HashMap<>();
+  private final Map<T, ComponentMeasures> measures = new HashMap<>();
 
   public MapBasedRawMeasureRepository(Function<Component, T> componentToKey) {
     this.componentToKey = requireNonNull(componentToKey);
@@ -65,7 +65,7 @@ public final class MapBasedRawMeasureRepository<T> implements MeasureRepository
     requireNonNull(component);
     requireNonNull(metric);
 
-    return find(component, metric);
+    return find(component, metric, null);
   }
 
   @Override
@@ -73,7 +73,7 @@ public final class MapBasedRawMeasureRepository<T> implements MeasureRepository
     requireNonNull(component);
     checkValueTypeConsistency(metric, measure);
 
-    Optional<Measure> existingMeasure = find(component, metric, measure);
+    Optional<Measure> existingMeasure = find(component, metric, measure.getDeveloper());
     if (existingMeasure.isPresent()) {
       throw new UnsupportedOperationException(
         format(
@@ -89,7 +89,7 @@ public final class MapBasedRawMeasureRepository<T> implements MeasureRepository
     requireNonNull(component);
     checkValueTypeConsistency(metric, measure);
 
-    Optional<Measure> existingMeasure = find(component, metric, measure);
+    Optional<Measure> existingMeasure = find(component, metric, measure.getDeveloper());
     if (!existingMeasure.isPresent()) {
       throw new UnsupportedOperationException(
         format(
@@ -113,44 +113,30 @@ public final class MapBasedRawMeasureRepository<T> implements MeasureRepository
     requireNonNull(metric);
     requireNonNull(component);
     T componentKey = componentToKey.apply(component);
-    Map<MeasureKey, Measure> rawMeasures = measures.get(componentKey);
+    ComponentMeasures rawMeasures = measures.get(componentKey);
     if (rawMeasures == null) {
       return Collections.emptySet();
     }
-    return from(rawMeasures.entrySet()).filter(new MatchMetric(metric)).transform(ToMeasure.INSTANCE).toSet();
+    return rawMeasures.getAll(metric.getKey());
   }
 
   @Override
   public SetMultimap<String, Measure> getRawMeasures(Component component) {
     T componentKey = componentToKey.apply(component);
-    Map<MeasureKey, Measure> rawMeasures = measures.get(componentKey);
+    ComponentMeasures rawMeasures = measures.get(componentKey);
     if (rawMeasures == null) {
       return ImmutableSetMultimap.of();
     }
-
-    ImmutableSetMultimap.Builder<String, Measure> builder = ImmutableSetMultimap.builder();
-    for (Map.Entry<MeasureKey, Measure> entry : rawMeasures.entrySet()) {
-      builder.put(entry.getKey().getMetricKey(), entry.getValue());
-    }
-    return builder.build();
+    return rawMeasures.getAll();
   }
 
-  private Optional<Measure> find(Component component, Metric metric) {
+  private Optional<Measure> find(Component component, Metric metric, @Nullable Developer developer) {
     T componentKey = componentToKey.apply(component);
-    Map<MeasureKey, Measure> measuresPerMetric = measures.get(componentKey);
+    ComponentMeasures measuresPerMetric = measures.get(componentKey);
     if (measuresPerMetric == null) {
       return Optional.absent();
     }
-    return Optional.fromNullable(measuresPerMetric.get(new MeasureKey(metric.getKey(), null)));
-  }
-
-  private Optional<Measure> find(Component component, Metric metric, Measure measure) {
-    T componentKey = componentToKey.apply(component);
-    Map<MeasureKey, Measure> measuresPerMetric = measures.get(componentKey);
-    if (measuresPerMetric == null) {
-      return Optional.absent();
-    }
-    return Optional.fromNullable(measuresPerMetric.get(new MeasureKey(metric.getKey(), measure.getDeveloper())));
+    return Optional.fromNullable(measuresPerMetric.get(metric.getKey(), developer));
   }
 
   public void add(Component component, Metric metric, Measure measure, OverridePolicy overridePolicy) {
@@ -160,14 +146,13 @@ public final class MapBasedRawMeasureRepository<T> implements MeasureRepository
     requireNonNull(overridePolicy);
 
     T componentKey = componentToKey.apply(component);
-    Map<MeasureKey, Measure> measuresPerMetric = measures.get(componentKey);
+    ComponentMeasures measuresPerMetric = measures.get(componentKey);
     if (measuresPerMetric == null) {
-      measuresPerMetric = new HashMap<>();
+      measuresPerMetric = new ComponentMeasures();
       measures.put(componentKey, measuresPerMetric);
     }
-    MeasureKey key = new MeasureKey(metric.getKey(), measure.getDeveloper());
-    if (!measuresPerMetric.containsKey(key) || overridePolicy == OverridePolicy.OVERRIDE) {
-      measuresPerMetric.put(key, measure);
+    if (overridePolicy == OverridePolicy.OVERRIDE || measuresPerMetric.get(metric.getKey(), measure.getDeveloper()) == null) {
+      measuresPerMetric.put(metric.getKey(), measure);
     }
   }
 
@@ -175,26 +160,62 @@ public final class MapBasedRawMeasureRepository<T> implements MeasureRepository
     OVERRIDE, DO_NOT_OVERRIDE
   }
 
-  private static class MatchMetric implements Predicate<Map.Entry<MeasureKey, Measure>> {
-    private final Metric metric;
-
-    public MatchMetric(Metric metric) {
-      this.metric = metric;
+  /**
+   * Measures of a single component. Measures which are not related to a developer, which are the vast majority,
+   * are indexed by metric key only, so that no {@link MeasureKey} has to be created to store or to read them.
+   */
+  private static final class ComponentMeasures {
+    private final Map<String, Measure> measuresByMetricKey = new HashMap<>();
+    @CheckForNull
+    private Map<MeasureKey, Measure> developerMeasures;
+
+    @CheckForNull
+    private Measure get(String metricKey, @Nullable Developer developer) {
+      if (developer == null) {
+        return measuresByMetricKey.get(metricKey);
+      }
+      return developerMeasures == null ? null : developerMeasures.get(new MeasureKey(metricKey, developer));
     }
 
-    @Override
-    public boolean apply(@Nonnull Map.Entry<MeasureKey, Measure> input) {
-      return input.getKey().getMetricKey().equals(metric.getKey());
+    private void put(String metricKey, Measure measure) {
+      Developer developer = measure.getDeveloper();
+      if (developer == null) {
+        measuresByMetricKey.put(metricKey, measure);
+      } else {
+        if (developerMeasures == null) {
+          developerMeasures = new HashMap<>();
+        }
+        developerMeasures.put(new MeasureKey(metricKey, developer), measure);
+      }
     }
-  }
 
-  private enum ToMeasure implements Function<Map.Entry<MeasureKey, Measure>, Measure> {
-    INSTANCE;
+    private Set<Measure> getAll(String metricKey) {
+      ImmutableSet.Builder<Measure> builder = ImmutableSet.builder();
+      Measure measure = measuresByMetricKey.get(metricKey);
+      if (measure != null) {
+        builder.add(measure);
+      }
+      if (developerMeasures != null) {
+        for (Map.Entry<MeasureKey, Measure> entry : developerMeasures.entrySet()) {
+          if (entry.getKey().getMetricKey().equals(metricKey)) {
+            builder.add(entry.getValue());
+          }
+        }
+      }
+      return builder.build();
+    }
 
-    @Nullable
-    @Override
-    public Measure apply(@Nonnull Map.Entry<MeasureKey, Measure> input) {
-      return input.getValue();
+    private SetMultimap<String, Measure> getAll() {
+      ImmutableSetMultimap.Builder<String, Measure> builder = ImmutableSetMultimap.builder();
+      for (Map.Entry<String, Measure> entry : measuresByMetricKey.entrySet()) {
+        builder.put(entry.getKey(), entry.getValue());
+      }
+      if (developerMeasures != null) {
+        for (Map.Entry<MeasureKey, Measure> entry : developerMeasures.entrySet()) {
+          builder.put(entry.getKey().getMetricKey(), entry.getValue());
+        }
+      }
+      return builder.build();
     }
   }
 }
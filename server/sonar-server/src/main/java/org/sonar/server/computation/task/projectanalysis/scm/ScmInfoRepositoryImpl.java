@@ -31,9 +31,14 @@ import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepository;
 
 import static java.util.Objects.requireNonNull;
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
 public class ScmInfoRepositoryImpl implements ScmInfoRepository {
 
@@ -44,13 +49,21 @@ public class ScmInfoRepositoryImpl implements ScmInfoRepository {
   private final DbClient dbClient;
   private final SourceHashRepository sourceHashRepository;
 
+  private final TreeRootHolder treeRootHolder;
+
   private final Map<Component, ScmInfo> scmInfoCache = new HashMap<>();
+  /**
+   * SCM info read from db, by file uuid. Loaded the first time a file is marked as unchanged by the report.
+   */
+  private Map<String, ScmInfo> dbScmInfoByFileUuid;
 
-  public ScmInfoRepositoryImpl(BatchReportReader batchReportReader, AnalysisMetadataHolder analysisMetadataHolder, DbClient dbClient, SourceHashRepository sourceHashRepository) {
+  public ScmInfoRepositoryImpl(BatchReportReader batchReportReader, AnalysisMetadataHolder analysisMetadataHolder, DbClient dbClient,
+    SourceHashRepository sourceHashRepository, TreeRootHolder treeRootHolder) {
     this.batchReportReader = batchReportReader;
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.dbClient = dbClient;
     this.sourceHashRepository = sourceHashRepository;
+    this.treeRootHolder = treeRootHolder;
   }
 
   @Override
@@ -98,16 +111,53 @@ public class ScmInfoRepositoryImpl implements ScmInfoRepository {
     }
 
     LOGGER.trace("Reading SCM info from db for file '{}'", file.getKey());
-    DbSession dbSession = dbClient.openSession(false);
-    try {
-      FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, file.getUuid());
-      if (dto == null || !sourceHashRepository.getRawSourceHash(file).equals(dto.getSrcHash())) {
-        return NoScmInfo.INSTANCE;
+    if (dbScmInfoByFileUuid == null) {
+      dbScmInfoByFileUuid = loadScmInfoFromDb(file);
+    }
+    ScmInfo scmInfo = dbScmInfoByFileUuid.remove(file.getUuid());
+    return scmInfo == null ? NoScmInfo.INSTANCE : scmInfo;
+  }
+
+  /**
+   * Loads with a single query the SCM info of all the files which are marked as unchanged by the report,
+   * instead of one query per file. Only the files with the same source hash as in db are kept.
+   * <p>
+   * The changesets of the files which are not cached yet are read from the report to find the unchanged files.
+   * The SCM info of the other files is cached at the same time, so that their changesets are not read twice.
+   */
+  private Map<String, ScmInfo> loadScmInfoFromDb(Component requestedFile) {
+    Map<String, Component> filesByUuid = new HashMap<>();
+    filesByUuid.put(requestedFile.getUuid(), requestedFile);
+    new DepthTraversalTypeAwareCrawler(new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, PRE_ORDER) {
+      @Override
+      public void visitFile(Component file) {
+        if (!scmInfoCache.containsKey(file) && !filesByUuid.containsKey(file.getUuid())) {
+          ScannerReport.Changesets changesets = batchReportReader.readChangesets(file.getReportAttributes().getRef());
+          if (changesets == null) {
+            scmInfoCache.put(file, NoScmInfo.INSTANCE);
+          } else if (changesets.getCopyFromPrevious()) {
+            filesByUuid.put(file.getUuid(), file);
+          } else {
+            scmInfoCache.put(file, new ReportScmInfo(changesets));
+          }
+        }
       }
-      return DbScmInfo.create(file, dto.getSourceData().getLinesList()).or(NoScmInfo.INSTANCE);
-    } finally {
-      dbClient.closeSession(dbSession);
+    }).visit(treeRootHolder.getRoot());
+
+    Map<String, ScmInfo> scmInfoByFileUuid = new HashMap<>();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbClient.fileSourceDao().scrollSourcesByFileUuids(dbSession, filesByUuid.keySet(), context -> {
+        FileSourceDto dto = (FileSourceDto) context.getResultObject();
+        Component file = filesByUuid.get(dto.getFileUuid());
+        if (sourceHashRepository.getRawSourceHash(file).equals(dto.getSrcHash())) {
+          Optional<ScmInfo> scmInfo = DbScmInfo.create(file, dto.getSourceData().getLinesList());
+          if (scmInfo.isPresent()) {
+            scmInfoByFileUuid.put(dto.getFileUuid(), scmInfo.get());
+          }
+        }
+      });
     }
+    return scmInfoByFileUuid;
   }
 
   private static ScmInfo getScmInfoFromReport(Component file, ScannerReport.Changesets changesets) {
@@ -20,11 +20,23 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Function;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.Nonnull;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.FutureUtils;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.duplication.DuplicationUnitDto;
@@ -58,6 +70,11 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
 
   private static final Logger LOGGER = Loggers.get(LoadCrossProjectDuplicationsRepositoryStep.class);
 
+  /**
+   * Number of files whose candidate blocks are loaded with the same requests
+   */
+  private static final int FILE_BATCH_SIZE = 100;
+
   private final TreeRootHolder treeRootHolder;
   private final BatchReportReader reportReader;
   private final AnalysisMetadataHolder analysisMetadataHolder;
@@ -79,7 +96,15 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
   @Override
   public void execute() {
     if (crossProjectDuplicationStatusHolder.isEnabled()) {
-      new DepthTraversalTypeAwareCrawler(new CrossProjectDuplicationVisitor()).visit(treeRootHolder.getRoot());
+      ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+        new ThreadFactoryBuilder().setNameFormat("CrossProjectDuplications-%d").build());
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        CrossProjectDuplicationVisitor visitor = new CrossProjectDuplicationVisitor(dbSession, executorService);
+        new DepthTraversalTypeAwareCrawler(visitor).visit(treeRootHolder.getRoot());
+        visitor.flush();
+      } finally {
+        executorService.shutdownNow();
+      }
     }
   }
 
@@ -89,9 +114,14 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
   }
 
   private class CrossProjectDuplicationVisitor extends TypeAwareVisitorAdapter {
+    private final DbSession dbSession;
+    private final ExecutorService executorService;
+    private final List<FileBlocks> batch = new ArrayList<>(FILE_BATCH_SIZE);
 
-    private CrossProjectDuplicationVisitor() {
+    private CrossProjectDuplicationVisitor(DbSession dbSession, ExecutorService executorService) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
+      this.dbSession = dbSession;
+      this.executorService = executorService;
     }
 
     @Override
@@ -102,28 +132,72 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
         return;
       }
 
-      Collection<String> hashes = from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toList();
-      List<DuplicationUnitDto> dtos = selectDuplicates(file, hashes);
-      if (dtos.isEmpty()) {
-        return;
+      batch.add(new FileBlocks(file, cpdTextBlocks));
+      if (batch.size() >= FILE_BATCH_SIZE) {
+        flush();
       }
+    }
+
+    /**
+     * Loads the candidate blocks of all the files of the batch, with one request per language, then detects
+     * duplications of each file in parallel.
+     */
+    private void flush() {
+      Multimap<String, FileBlocks> filesByLanguage = ArrayListMultimap.create();
+      for (FileBlocks fileBlocks : batch) {
+        filesByLanguage.put(fileBlocks.file.getFileAttributes().getLanguageKey(), fileBlocks);
+      }
+      batch.clear();
+
+      List<Future<?>> tasks = new ArrayList<>();
+      for (Map.Entry<String, Collection<FileBlocks>> entry : filesByLanguage.asMap().entrySet()) {
+        Multimap<String, DuplicationUnitDto> candidatesByHash = selectCandidatesByHash(entry.getKey(), entry.getValue());
+        for (FileBlocks fileBlocks : entry.getValue()) {
+          List<DuplicationUnitDto> dtos = new ArrayList<>();
+          for (String hash : fileBlocks.hashes) {
+            dtos.addAll(candidatesByHash.get(hash));
+          }
+          if (!dtos.isEmpty()) {
+            tasks.add(executorService.submit(() -> computeCpd(fileBlocks, dtos)));
+          }
+        }
+      }
+      tasks.forEach(FutureUtils::waitFor);
+    }
 
+    private Multimap<String, DuplicationUnitDto> selectCandidatesByHash(String language, Collection<FileBlocks> files) {
+      Set<String> hashes = new HashSet<>();
+      for (FileBlocks fileBlocks : files) {
+        hashes.addAll(fileBlocks.hashes);
+      }
+      Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
+      String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
+      Multimap<String, DuplicationUnitDto> candidatesByHash = ArrayListMultimap.create();
+      for (DuplicationUnitDto dto : dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, language, hashes)) {
+        candidatesByHash.put(dto.getHash(), dto);
+      }
+      return candidatesByHash;
+    }
+
+    private void computeCpd(FileBlocks fileBlocks, List<DuplicationUnitDto> dtos) {
+      Component file = fileBlocks.file;
       Collection<Block> duplicatedBlocks = from(dtos).transform(DtoToBlock.INSTANCE).toList();
-      Collection<Block> originBlocks = from(cpdTextBlocks).transform(new CpdTextBlockToBlock(file.getKey())).toList();
+      Collection<Block> originBlocks = from(fileBlocks.cpdTextBlocks).transform(new CpdTextBlockToBlock(file.getKey())).toList();
       LOGGER.trace("Found {} duplicated cpd blocks on file {}", duplicatedBlocks.size(), file.getKey());
 
       integrateCrossProjectDuplications.computeCpd(file, originBlocks, duplicatedBlocks);
     }
+  }
 
-    private List<DuplicationUnitDto> selectDuplicates(Component file, Collection<String> hashes) {
-      DbSession dbSession = dbClient.openSession(false);
-      try {
-        Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
-        String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
-        return dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, file.getFileAttributes().getLanguageKey(), hashes);
-      } finally {
-        dbClient.closeSession(dbSession);
-      }
+  private static class FileBlocks {
+    private final Component file;
+    private final List<CpdTextBlock> cpdTextBlocks;
+    private final Set<String> hashes;
+
+    private FileBlocks(Component file, List<CpdTextBlock> cpdTextBlocks) {
+      this.file = file;
+      this.cpdTextBlocks = cpdTextBlocks;
+      this.hashes = new LinkedHashSet<>(from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toList());
     }
   }
 
@@ -19,12 +19,24 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -63,6 +75,17 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 
 public class PersistFileSourcesStep implements ComputationStep {
 
+  /**
+   * Maximum size of the source data of the files being encoded or written at the same time. It bounds
+   * the memory used by the step, whatever the number and the size of the files.
+   */
+  private static final int MAX_PENDING_KB = 64 * 1024;
+  /**
+   * Inserts and updates are flushed as soon as the size of the binary data of the batch exceeds this limit
+   */
+  private static final long MAX_BATCH_BYTES = 16L * 1024 * 1024;
+  private static final int MAX_ENCODING_THREADS = 4;
+
   private final DbClient dbClient;
   private final System2 system2;
   private final TreeRootHolder treeRootHolder;
@@ -70,9 +93,18 @@ public class PersistFileSourcesStep implements ComputationStep {
   private final SourceLinesRepository sourceLinesRepository;
   private final ScmInfoRepository scmInfoRepository;
   private final DuplicationRepository duplicationRepository;
+  private final Supplier<ExecutorService> encodersFactory;
+  private final Supplier<ExecutorService> writerFactory;
 
   public PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder, BatchReportReader reportReader, SourceLinesRepository sourceLinesRepository,
     ScmInfoRepository scmInfoRepository, DuplicationRepository duplicationRepository) {
+    this(dbClient, system2, treeRootHolder, reportReader, sourceLinesRepository, scmInfoRepository, duplicationRepository,
+      PersistFileSourcesStep::newEncoders, PersistFileSourcesStep::newWriter);
+  }
+
+  @VisibleForTesting
+  PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder, BatchReportReader reportReader, SourceLinesRepository sourceLinesRepository,
+    ScmInfoRepository scmInfoRepository, DuplicationRepository duplicationRepository, Supplier<ExecutorService> encodersFactory, Supplier<ExecutorService> writerFactory) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.treeRootHolder = treeRootHolder;
@@ -80,40 +112,54 @@ public class PersistFileSourcesStep implements ComputationStep {
     this.sourceLinesRepository = sourceLinesRepository;
     this.scmInfoRepository = scmInfoRepository;
     this.duplicationRepository = duplicationRepository;
+    this.encodersFactory = encodersFactory;
+    this.writerFactory = writerFactory;
+  }
+
+  private static ExecutorService newEncoders() {
+    int encodingThreads = Math.max(1, Math.min(MAX_ENCODING_THREADS, Runtime.getRuntime().availableProcessors()));
+    return Executors.newFixedThreadPool(encodingThreads, new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat("FileSourcesEncoder-%d")
+      .build());
   }
 
+  private static ExecutorService newWriter() {
+    return Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat("FileSourcesWriter-%d")
+      .build());
+  }
+
+  /**
+   * Sources are persisted by a pipeline:
+   * <ol>
+   *   <li>the data of each file is computed from the report by the current thread (report readers and repositories are not thread-safe)</li>
+   *   <li>data are serialized, compressed and compared to the existing ones by a pool of threads</li>
+   *   <li>new and updated data are written in batches by a single thread</li>
+   * </ol>
+   */
   @Override
   public void execute() {
-    // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files
-    DbSession session = dbClient.openSession(false);
-    try {
-      new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(session))
+    try (SourcesPipeline pipeline = new SourcesPipeline()) {
+      new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(pipeline))
         .visit(treeRootHolder.getRoot());
-    } finally {
-      MyBatis.closeQuietly(session);
+      pipeline.finish();
     }
   }
 
   private class FileSourceVisitor extends TypeAwareVisitorAdapter {
 
-    private final DbSession session;
+    private final SourcesPipeline pipeline;
 
-    private Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
-    private String projectUuid;
-
-    private FileSourceVisitor(DbSession session) {
+    private FileSourceVisitor(SourcesPipeline pipeline) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
-      this.session = session;
+      this.pipeline = pipeline;
     }
 
     @Override
     public void visitProject(Component project) {
-      this.projectUuid = project.getUuid();
-      session.select("org.sonar.db.source.FileSourceMapper.selectHashesForProject", ImmutableMap.of("projectUuid", projectUuid, "dataType", Type.SOURCE),
-        context -> {
-          FileSourceDto dto = (FileSourceDto) context.getResultObject();
-          previousFileSourcesByUuid.put(dto.getFileUuid(), dto);
-        });
+      pipeline.loadPreviousFileSources(project.getUuid());
     }
 
     @Override
@@ -122,67 +168,221 @@ public class PersistFileSourcesStep implements ComputationStep {
       ScannerReport.Component component = reportReader.readComponent(fileRef);
       CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
       LineReaders lineReaders = new LineReaders(reportReader, scmInfoRepository, duplicationRepository, file);
+      ComputeFileSourceData.Data fileSourceData;
+      String revision;
       try {
         ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), component.getLines());
-        ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
-        persistSource(fileSourceData, file.getUuid(), lineReaders.getLatestChange());
+        fileSourceData = computeFileSourceData.compute();
+        revision = computeRevision(lineReaders.getLatestChange());
       } catch (Exception e) {
         throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
       } finally {
         linesIterator.close();
         lineReaders.close();
       }
+      pipeline.persist(file, fileSourceData, revision);
     }
 
-    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid, @Nullable Changeset latestChange) {
+    @CheckForNull
+    private String computeRevision(@Nullable Changeset latestChange) {
+      if (latestChange == null) {
+        return null;
+      }
+      return latestChange.getRevision();
+    }
+  }
+
+  private class SourcesPipeline implements AutoCloseable {
+    private final ExecutorService encoders;
+    private final ExecutorService writer;
+    private final Semaphore pendingKb = new Semaphore(MAX_PENDING_KB);
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    // read-only once loaded, before any file is persisted
+    private final Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
+    private String projectUuid;
+
+    // used only by the writer thread
+    private final DbSession batchSession;
+    private long batchBytes = 0L;
+
+    private SourcesPipeline() {
+      this.encoders = encodersFactory.get();
+      this.writer = writerFactory.get();
+      this.batchSession = dbClient.openSession(true);
+    }
+
+    void loadPreviousFileSources(String projectUuid) {
+      this.projectUuid = projectUuid;
+      try (DbSession session = dbClient.openSession(false)) {
+        session.select("org.sonar.db.source.FileSourceMapper.selectHashesForProject", ImmutableMap.of("projectUuid", projectUuid, "dataType", Type.SOURCE),
+          context -> {
+            FileSourceDto dto = (FileSourceDto) context.getResultObject();
+            previousFileSourcesByUuid.put(dto.getFileUuid(), dto);
+          });
+      }
+    }
+
+    /**
+     * Encodes the data in background and writes them if they changed. Blocks while too much data is pending.
+     */
+    void persist(Component file, ComputeFileSourceData.Data fileSourceData, @Nullable String revision) {
+      checkNoFailure();
       DbFileSources.Data fileData = fileSourceData.getFileSourceData();
+      String srcHash = fileSourceData.getSrcHash();
+      String lineHashes = fileSourceData.getLineHashes();
+      int permits = Math.max(1, Math.min(MAX_PENDING_KB, fileData.getSerializedSize() / 1024));
+      try {
+        pendingKb.acquire(permits);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while persisting sources", e);
+      }
+      try {
+        Future<EncodedSource> encodedSource = encoders.submit(() -> encode(file.getUuid(), fileData, srcHash, lineHashes, revision));
+        writer.execute(() -> {
+          try {
+            if (failure.get() == null) {
+              write(encodedSource.get());
+            }
+          } catch (InterruptedException e) {
+            // the pipeline is closed before completion
+            Thread.currentThread().interrupt();
+          } catch (CancellationException e) {
+            // the pipeline is closed before completion, encoding did not run
+          } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            failure.compareAndSet(null, new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), cause));
+          } finally {
+            pendingKb.release(permits);
+          }
+        });
+      } catch (RuntimeException e) {
+        pendingKb.release(permits);
+        throw e;
+      }
+    }
 
+    /**
+     * @return {@code null} if the source of the file did not change since the previous analysis
+     */
+    @CheckForNull
+    private EncodedSource encode(String fileUuid, DbFileSources.Data fileData, String srcHash, String lineHashes, @Nullable String revision) {
       byte[] data = FileSourceDto.encodeSourceData(fileData);
       String dataHash = DigestUtils.md5Hex(data);
-      String srcHash = fileSourceData.getSrcHash();
-      String lineHashes = fileSourceData.getLineHashes();
-      FileSourceDto previousDto = previousFileSourcesByUuid.get(componentUuid);
+      FileSourceDto previousDto = previousFileSourcesByUuid.get(fileUuid);
+      if (previousDto != null) {
+        // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
+        boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
+        boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
+        boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
+        if (!binaryDataUpdated && !srcHashUpdated && !revisionUpdated) {
+          return null;
+        }
+      }
+      return new EncodedSource(fileUuid, previousDto, data, dataHash, srcHash, lineHashes, revision);
+    }
 
-      if (previousDto == null) {
+    private void write(@Nullable EncodedSource source) {
+      if (source == null) {
+        return;
+      }
+      if (source.previousDto == null) {
         FileSourceDto dto = new FileSourceDto()
           .setProjectUuid(projectUuid)
-          .setFileUuid(componentUuid)
+          .setFileUuid(source.fileUuid)
           .setDataType(Type.SOURCE)
-          .setBinaryData(data)
-          .setSrcHash(srcHash)
-          .setDataHash(dataHash)
-          .setLineHashes(lineHashes)
+          .setBinaryData(source.data)
+          .setSrcHash(source.srcHash)
+          .setDataHash(source.dataHash)
+          .setLineHashes(source.lineHashes)
           .setCreatedAt(system2.now())
           .setUpdatedAt(system2.now())
-          .setRevision(computeRevision(latestChange));
-        dbClient.fileSourceDao().insert(session, dto);
-        session.commit();
+          .setRevision(source.revision);
+        dbClient.fileSourceDao().insert(batchSession, dto);
       } else {
-        // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
-        boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
-        boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
-        String revision = computeRevision(latestChange);
-        boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
-        if (binaryDataUpdated || srcHashUpdated || revisionUpdated) {
-          previousDto
-            .setBinaryData(data)
-            .setDataHash(dataHash)
-            .setSrcHash(srcHash)
-            .setLineHashes(lineHashes)
-            .setRevision(revision)
-            .setUpdatedAt(system2.now());
-          dbClient.fileSourceDao().update(session, previousDto);
-          session.commit();
+        source.previousDto
+          .setBinaryData(source.data)
+          .setDataHash(source.dataHash)
+          .setSrcHash(source.srcHash)
+          .setLineHashes(source.lineHashes)
+          .setRevision(source.revision)
+          .setUpdatedAt(system2.now());
+        dbClient.fileSourceDao().update(batchSession, source.previousDto);
+      }
+      batchBytes += source.data.length;
+      if (batchBytes >= MAX_BATCH_BYTES) {
+        batchSession.commit();
+        batchBytes = 0L;
+      }
+    }
+
+    /**
+     * Waits for all the pending files to be written, then commits
+     */
+    void finish() {
+      writer.execute(() -> {
+        if (failure.get() == null) {
+          batchSession.commit();
         }
+      });
+      writer.shutdown();
+      try {
+        writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while persisting sources", e);
       }
+      checkNoFailure();
     }
 
-    @CheckForNull
-    private String computeRevision(@Nullable Changeset latestChange) {
-      if (latestChange == null) {
-        return null;
+    private void checkNoFailure() {
+      Exception e = failure.get();
+      if (e != null) {
+        throw Throwables.propagate(e);
       }
-      return latestChange.getRevision();
+    }
+
+    @Override
+    public void close() {
+      for (Runnable pendingEncoding : encoders.shutdownNow()) {
+        // not started yet, the writer must not wait for them
+        if (pendingEncoding instanceof Future) {
+          ((Future<?>) pendingEncoding).cancel(false);
+        }
+      }
+      writer.shutdownNow();
+      try {
+        encoders.awaitTermination(1L, TimeUnit.MINUTES);
+        // the session must not be closed while being used by the writer
+        writer.awaitTermination(1L, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        MyBatis.closeQuietly(batchSession);
+      }
+    }
+  }
+
+  private static final class EncodedSource {
+    private final String fileUuid;
+    @CheckForNull
+    private final FileSourceDto previousDto;
+    private final byte[] data;
+    private final String dataHash;
+    private final String srcHash;
+    private final String lineHashes;
+    @CheckForNull
+    private final String revision;
+
+    private EncodedSource(String fileUuid, @Nullable FileSourceDto previousDto, byte[] data, String dataHash, String srcHash, String lineHashes,
+      @Nullable String revision) {
+      this.fileUuid = fileUuid;
+      this.previousDto = previousDto;
+      this.data = data;
+      this.dataHash = dataHash;
+      this.srcHash = srcHash;
+      this.lineHashes = lineHashes;
+      this.revision = revision;
     }
   }
 
@@ -23,6 +23,7 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +61,11 @@ public class PersistMeasuresStep implements ComputationStep {
     FUNCTION_COMPLEXITY_DISTRIBUTION_KEY,
     CLASS_COMPLEXITY_DISTRIBUTION_KEY);
 
+  /**
+   * Number of measures sent at once to {@link MeasureDao#insert(DbSession, Collection)}
+   */
+  private static final int MAX_PENDING_MEASURES = 1_000;
+
   private final DbClient dbClient;
   private final MetricRepository metricRepository;
   private final MeasureToMeasureDto measureToMeasureDto;
@@ -84,7 +90,9 @@ public class PersistMeasuresStep implements ComputationStep {
   public void execute() {
     DbSession dbSession = dbClient.openSession(true);
     try {
-      new DepthTraversalTypeAwareCrawler(new MeasureVisitor(dbSession)).visit(treeRootHolder.getRoot());
+      MeasureVisitor visitor = new MeasureVisitor(dbSession);
+      new DepthTraversalTypeAwareCrawler(visitor).visit(treeRootHolder.getRoot());
+      visitor.flush();
       dbSession.commit();
     } finally {
       dbSession.close();
@@ -93,6 +101,7 @@ public class PersistMeasuresStep implements ComputationStep {
 
   private class MeasureVisitor extends TypeAwareVisitorAdapter {
     private final DbSession session;
+    private final List<MeasureDto> pendingMeasures = new ArrayList<>(MAX_PENDING_MEASURES);
 
     private MeasureVisitor(DbSession session) {
       super(CrawlerDepthLimit.LEAVES, PRE_ORDER);
@@ -114,14 +123,20 @@ public class PersistMeasuresStep implements ComputationStep {
 
         Metric metric = metricRepository.getByKey(metricKey);
         Predicate<Measure> notBestValueOptimized = Predicates.not(BestValueOptimization.from(metric, component));
-        MeasureDao measureDao = dbClient.measureDao();
         for (Measure measure : from(measures.getValue()).filter(NonEmptyMeasure.INSTANCE).filter(notBestValueOptimized)) {
-          MeasureDto measureDto = measureToMeasureDto.toMeasureDto(measure, metric, component);
-          measureDao.insert(session, measureDto);
+          pendingMeasures.add(measureToMeasureDto.toMeasureDto(measure, metric, component));
+          if (pendingMeasures.size() >= MAX_PENDING_MEASURES) {
+            flush();
+          }
         }
       }
     }
 
+    private void flush() {
+      dbClient.measureDao().insert(session, pendingMeasures);
+      pendingMeasures.clear();
+    }
+
   }
 
   private enum NonEmptyMeasure implements Predicate<Measure> {
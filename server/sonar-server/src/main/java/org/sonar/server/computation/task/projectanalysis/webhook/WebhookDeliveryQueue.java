@@ -0,0 +1,309 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.webhook;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.picocontainer.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.Jmx;
+
+/**
+ * Sends webhooks asynchronously, so that Compute Engine workers are not blocked by slow
+ * or unavailable endpoints.
+ * <ul>
+ *   <li>calls are executed by a bounded pool of threads, and no more than {@link #MAX_CONCURRENT_CALLS_PER_URL}
+ *   calls to the same URL are executed concurrently</li>
+ *   <li>failed calls (no response or HTTP status 5xx) are retried with an exponential backoff</li>
+ *   <li>calls to a URL are suspended for a while after {@link #CIRCUIT_BREAKER_THRESHOLD} consecutive failures</li>
+ * </ul>
+ * The final result of each delivery is logged and persisted with {@link WebhookDeliveryStorage}. Deliveries
+ * are also stored when they are enqueued, so that the ones which are not completed when the Compute Engine
+ * stops are sent again at next startup.
+ */
+@ComputeEngineSide
+public class WebhookDeliveryQueue implements WebhookDeliveryQueueMBean, Startable {
+
+  static final int THREADS = 5;
+  static final int MAX_QUEUE_SIZE = 1_000;
+  static final int MAX_CONCURRENT_CALLS_PER_URL = 2;
+  static final int MAX_ATTEMPTS = 3;
+  static final int CIRCUIT_BREAKER_THRESHOLD = 5;
+
+  private static final Logger LOGGER = Loggers.get(WebhookDeliveryQueue.class);
+  private static final long DEFAULT_RETRY_DELAY_MS = 1_000L;
+  private static final long DEFAULT_SUSPENSION_DELAY_MS = 60_000L;
+
+  private final WebhookCaller caller;
+  private final WebhookDeliveryStorage deliveryStorage;
+  private final System2 system;
+  private final long retryDelayMs;
+  private final long suspensionDelayMs;
+  private final ConcurrentMap<String, Endpoint> endpointsByUrl = new ConcurrentHashMap<>();
+  private final AtomicInteger queueSize = new AtomicInteger();
+  private final AtomicLong deliveryCount = new AtomicLong();
+  private final AtomicLong failureCount = new AtomicLong();
+  private final AtomicLong droppedCount = new AtomicLong();
+  private final AtomicLong totalLatency = new AtomicLong();
+  private ScheduledExecutorService executorService;
+
+  public WebhookDeliveryQueue(WebhookCaller caller, WebhookDeliveryStorage deliveryStorage, System2 system) {
+    this(caller, deliveryStorage, system, DEFAULT_RETRY_DELAY_MS, DEFAULT_SUSPENSION_DELAY_MS);
+  }
+
+  @VisibleForTesting
+  WebhookDeliveryQueue(WebhookCaller caller, WebhookDeliveryStorage deliveryStorage, System2 system, long retryDelayMs, long suspensionDelayMs) {
+    this.caller = caller;
+    this.deliveryStorage = deliveryStorage;
+    this.system = system;
+    this.retryDelayMs = retryDelayMs;
+    this.suspensionDelayMs = suspensionDelayMs;
+  }
+
+  @Override
+  public void start() {
+    executorService = Executors.newScheduledThreadPool(THREADS,
+      new ThreadFactoryBuilder()
+        .setNameFormat("Webhook-sender-%d")
+        .setDaemon(true)
+        .build());
+    Jmx.register(OBJECT_NAME, this);
+    resumeQueuedDeliveries();
+  }
+
+  private void resumeQueuedDeliveries() {
+    try {
+      List<WebhookDeliveryStorage.Queued> queued = deliveryStorage.selectQueued(MAX_QUEUE_SIZE);
+      if (!queued.isEmpty()) {
+        LOGGER.info("Resume {} webhook deliveries", queued.size());
+      }
+      for (WebhookDeliveryStorage.Queued delivery : queued) {
+        queueSize.incrementAndGet();
+        new Delivery(delivery.getUuid(), delivery.getWebhook(), delivery.getPayload(), system.now()).schedule(0L);
+      }
+    } catch (Exception e) {
+      LOGGER.error("Fail to resume webhook deliveries", e);
+    }
+  }
+
+  @Override
+  public void stop() {
+    Jmx.unregister(OBJECT_NAME);
+    try {
+      executorService.shutdown();
+      if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
+        LOGGER.warn("{} webhook deliveries are interrupted, they will be sent again at next startup", executorService.shutdownNow().size());
+      }
+    } catch (InterruptedException e) {
+      LOGGER.error("Error during stop of webhook deliveries", e);
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Enqueues the delivery of the payload to the webhook. This method does not block on the call to the webhook.
+   * If the queue is full, the delivery is dropped and immediately stored as failed.
+   */
+  public void enqueue(Webhook webhook, WebhookPayload payload) {
+    if (queueSize.incrementAndGet() > MAX_QUEUE_SIZE) {
+      droppedCount.incrementAndGet();
+      new Delivery(null, webhook, payload, system.now()).fail(new IllegalStateException("Webhook delivery queue is full"));
+      return;
+    }
+    new Delivery(store(webhook, payload), webhook, payload, system.now()).schedule(0L);
+  }
+
+  @CheckForNull
+  private String store(Webhook webhook, WebhookPayload payload) {
+    try {
+      return deliveryStorage.enqueue(webhook, payload);
+    } catch (Exception e) {
+      LOGGER.error("Fail to store delivery of webhook '{}', it will not be sent again if the Compute Engine stops", webhook.getName(), e);
+      return null;
+    }
+  }
+
+  @Override
+  public int getQueueSize() {
+    return queueSize.get();
+  }
+
+  @Override
+  public long getDeliveryCount() {
+    return deliveryCount.get();
+  }
+
+  @Override
+  public long getFailureCount() {
+    return failureCount.get();
+  }
+
+  @Override
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  @Override
+  public long getAverageDeliveryLatency() {
+    long count = deliveryCount.get();
+    return count == 0 ? 0L : (totalLatency.get() / count);
+  }
+
+  private static boolean isRetryable(WebhookDelivery delivery) {
+    Optional<Integer> httpStatus = delivery.getHttpStatus();
+    return !httpStatus.isPresent() || httpStatus.get() >= 500;
+  }
+
+  private static void log(WebhookDelivery delivery) {
+    Optional<String> error = delivery.getErrorMessage();
+    if (error.isPresent()) {
+      LOGGER.debug("Failed to send webhook '{}' | url={} | message={}",
+        delivery.getWebhook().getName(), delivery.getWebhook().getUrl(), error.get());
+    } else {
+      LOGGER.debug("Sent webhook '{}' | url={} | time={}ms | status={}",
+        delivery.getWebhook().getName(), delivery.getWebhook().getUrl(), delivery.getDurationInMs().orElse(-1), delivery.getHttpStatus().orElse(-1));
+    }
+  }
+
+  private class Delivery implements Runnable {
+    @Nullable
+    private final String queuedUuid;
+    private final Webhook webhook;
+    private final WebhookPayload payload;
+    private final long enqueuedAt;
+    private int attempts = 0;
+
+    Delivery(@Nullable String queuedUuid, Webhook webhook, WebhookPayload payload, long enqueuedAt) {
+      this.queuedUuid = queuedUuid;
+      this.webhook = webhook;
+      this.payload = payload;
+      this.enqueuedAt = enqueuedAt;
+    }
+
+    @Override
+    public void run() {
+      try {
+        Endpoint endpoint = endpointsByUrl.computeIfAbsent(webhook.getUrl(), url -> new Endpoint());
+        if (endpoint.isSuspended(system.now())) {
+          fail(new IllegalStateException("Calls to this URL are suspended after too many failures"));
+        } else if (!endpoint.permits.tryAcquire()) {
+          // too many calls in progress to this URL, try again later without consuming an attempt
+          schedule(retryDelayMs);
+        } else {
+          call(endpoint);
+        }
+      } catch (Exception e) {
+        fail(e);
+      }
+    }
+
+    private void call(Endpoint endpoint) {
+      WebhookDelivery result;
+      try {
+        attempts++;
+        result = caller.call(webhook, payload);
+      } finally {
+        endpoint.permits.release();
+      }
+      endpoint.record(result.isSuccess(), system.now());
+      if (!result.isSuccess() && attempts < MAX_ATTEMPTS && isRetryable(result)) {
+        schedule(retryDelayMs << (attempts - 1));
+      } else {
+        complete(result);
+      }
+    }
+
+    void schedule(long delayMs) {
+      try {
+        executorService.schedule(this, delayMs, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        if (queuedUuid != null && executorService.isShutdown()) {
+          // kept in queue, it is sent again at next startup
+          queueSize.decrementAndGet();
+        } else {
+          fail(e);
+        }
+      }
+    }
+
+    void fail(Exception e) {
+      complete(new WebhookDelivery.Builder()
+        .setAt(system.now())
+        .setPayload(payload)
+        .setWebhook(webhook)
+        .setError(e)
+        .build());
+    }
+
+    private void complete(WebhookDelivery result) {
+      queueSize.decrementAndGet();
+      deliveryCount.incrementAndGet();
+      if (!result.isSuccess()) {
+        failureCount.incrementAndGet();
+      }
+      totalLatency.addAndGet(system.now() - enqueuedAt);
+      log(result);
+      try {
+        deliveryStorage.persist(result, queuedUuid);
+      } catch (Exception e) {
+        LOGGER.error("Fail to persist delivery of webhook '{}'", webhook.getName(), e);
+      }
+    }
+  }
+
+  private class Endpoint {
+    private final Semaphore permits = new Semaphore(MAX_CONCURRENT_CALLS_PER_URL);
+    private int consecutiveFailures = 0;
+    private long suspendedUntil = 0L;
+
+    synchronized boolean isSuspended(long now) {
+      return now < suspendedUntil;
+    }
+
+    synchronized void record(boolean success, long now) {
+      if (success) {
+        consecutiveFailures = 0;
+      } else {
+        consecutiveFailures++;
+        if (consecutiveFailures >= CIRCUIT_BREAKER_THRESHOLD) {
+          // a single call is allowed after the suspension to check whether the URL is back
+          consecutiveFailures = CIRCUIT_BREAKER_THRESHOLD - 1;
+          suspendedUntil = now + suspensionDelayMs;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.webhook;
+
+public interface WebhookDeliveryQueueMBean {
+
+  String OBJECT_NAME = "SonarQube:name=ComputeEngineWebhookDeliveries";
+
+  /**
+   * Count of webhook deliveries waiting to be sent or retried.
+   */
+  int getQueueSize();
+
+  /**
+   * Count of webhook deliveries completed since startup, successfully or not.
+   */
+  long getDeliveryCount();
+
+  /**
+   * Count of webhook deliveries which failed since startup, after all retries.
+   */
+  long getFailureCount();
+
+  /**
+   * Count of webhook deliveries dropped since startup because the queue was full. They are also counted
+   * as failures.
+   */
+  long getDroppedCount();
+
+  /**
+   * Average time between enqueue and completion of a delivery since startup, including retries, in milliseconds.
+   */
+  long getAverageDeliveryLatency();
+}
@@ -20,6 +20,8 @@
 package org.sonar.server.computation.task.projectanalysis.webhook;
 
 import com.google.common.base.Throwables;
+import java.util.List;
+import javax.annotation.Nullable;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.UuidFactory;
@@ -27,9 +29,13 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.webhook.WebhookDeliveryDao;
 import org.sonar.db.webhook.WebhookDeliveryDto;
+import org.sonar.db.webhook.WebhookQueueDto;
+
+import static java.util.stream.Collectors.toList;
 
 /**
- * Persist and purge {@link WebhookDelivery} into database
+ * Persist and purge {@link WebhookDelivery} into database. Deliveries which are not completed yet are
+ * stored in a queue, so that they can be sent again after a restart of the Compute Engine.
  */
 @ComputeEngineSide
 public class WebhookDeliveryStorage {
@@ -46,10 +52,53 @@ public class WebhookDeliveryStorage {
     this.uuidFactory = uuidFactory;
   }
 
-  public void persist(WebhookDelivery delivery) {
+  /**
+   * Stores a delivery which is not completed yet.
+   *
+   * @return the uuid of the queued delivery, to be given to {@link #persist(WebhookDelivery, String)}
+   */
+  public String enqueue(Webhook webhook, WebhookPayload payload) {
+    WebhookQueueDto dto = new WebhookQueueDto()
+      .setUuid(uuidFactory.create())
+      .setComponentUuid(webhook.getComponentUuid())
+      .setCeTaskUuid(webhook.getCeTaskUuid())
+      .setName(webhook.getName())
+      .setUrl(webhook.getUrl())
+      .setProjectKey(payload.getProjectKey())
+      .setPayload(payload.toJson())
+      .setCreatedAt(system.now());
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbClient.webhookQueueDao().insert(dbSession, dto);
+      dbSession.commit();
+    }
+    return dto.getUuid();
+  }
+
+  /**
+   * The oldest deliveries which have been queued but not completed, for example because the Compute Engine stopped.
+   */
+  public List<Queued> selectQueued(int limit) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return dbClient.webhookQueueDao().selectOldest(dbSession, limit).stream()
+        .map(dto -> new Queued(dto.getUuid(),
+          new Webhook(dto.getComponentUuid(), dto.getCeTaskUuid(), dto.getName(), dto.getUrl()),
+          new WebhookPayload(dto.getProjectKey(), dto.getPayload())))
+        .collect(toList());
+    }
+  }
+
+  /**
+   * Stores the completed delivery and removes it from queue.
+   *
+   * @param queuedUuid uuid returned by {@link #enqueue(Webhook, WebhookPayload)}, or null if the delivery was not queued
+   */
+  public void persist(WebhookDelivery delivery, @Nullable String queuedUuid) {
     WebhookDeliveryDao dao = dbClient.webhookDeliveryDao();
     try (DbSession dbSession = dbClient.openSession(false)) {
       dao.insert(dbSession, toDto(delivery));
+      if (queuedUuid != null) {
+        dbClient.webhookQueueDao().deleteByUuid(dbSession, queuedUuid);
+      }
       dbSession.commit();
     }
   }
@@ -77,4 +126,28 @@ public class WebhookDeliveryStorage {
     dto.setCreatedAt(delivery.getAt());
     return dto;
   }
+
+  public static class Queued {
+    private final String uuid;
+    private final Webhook webhook;
+    private final WebhookPayload payload;
+
+    Queued(String uuid, Webhook webhook, WebhookPayload payload) {
+      this.uuid = uuid;
+      this.webhook = webhook;
+      this.payload = payload;
+    }
+
+    public String getUuid() {
+      return uuid;
+    }
+
+    public Webhook getWebhook() {
+      return webhook;
+    }
+
+    public WebhookPayload getPayload() {
+      return payload;
+    }
+  }
 }
@@ -27,6 +27,6 @@ public class WebhookModule extends Module {
     add(
       WebhookCallerImpl.class,
       WebhookDeliveryStorage.class,
-      WebhookPostTask.class);
+      WebhookDeliveryQueue.class);
   }
 }
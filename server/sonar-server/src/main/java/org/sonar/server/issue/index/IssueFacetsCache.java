@@ -0,0 +1,174 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import org.sonar.server.es.Facets;
+
+/**
+ * In-memory cache of the facets computed by {@link IssueIndex#search(org.sonar.server.issue.IssueQuery, org.sonar.server.es.SearchOptions)}.
+ * <p/>
+ * Entries are keyed by the normalized query, including the authorization filter of the user. Each entry
+ * is associated to the {@link Generation} of the part of the index it has been computed on, and is discarded
+ * as soon as this generation changes.
+ */
+public class IssueFacetsCache {
+
+  private static final long DEFAULT_MAX_MEMORY_IN_BYTES = 20L * 1024 * 1024;
+  private static final int ENTRY_OVERHEAD_IN_BYTES = 128;
+  private static final int BUCKET_OVERHEAD_IN_BYTES = 64;
+
+  private final Cache<String, Entry> cache;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong memoryInBytes = new AtomicLong();
+
+  public IssueFacetsCache() {
+    this(DEFAULT_MAX_MEMORY_IN_BYTES);
+  }
+
+  IssueFacetsCache(long maxMemoryInBytes) {
+    this.cache = CacheBuilder.newBuilder()
+      .maximumWeight(maxMemoryInBytes)
+      .weigher((String key, Entry entry) -> entry.weight)
+      .expireAfterWrite(1, TimeUnit.HOURS)
+      .removalListener((RemovalNotification<String, Entry> notification) -> memoryInBytes.addAndGet(-notification.getValue().weight))
+      .build();
+  }
+
+  /**
+   * Returns a copy of the cached facets, or {@code null} if there are none or if they have been computed
+   * on another generation of the index.
+   */
+  @CheckForNull
+  Facets get(String key, Generation generation) {
+    Entry entry = cache.getIfPresent(key);
+    if (entry == null || !entry.generation.equals(generation)) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return new Facets(copy(entry.facetsByName));
+  }
+
+  void put(String key, Generation generation, Facets facets) {
+    LinkedHashMap<String, LinkedHashMap<String, Long>> facetsByName = copy(facets.getAll());
+    int weight = weigh(key, facetsByName);
+    memoryInBytes.addAndGet(weight);
+    cache.put(key, new Entry(generation, facetsByName, weight));
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Ratio of requests served from cache, between 0 and 1.
+   */
+  public double getHitRatio() {
+    long h = hits.get();
+    long total = h + misses.get();
+    return total == 0L ? 0D : ((double) h / total);
+  }
+
+  public long getSize() {
+    return cache.size();
+  }
+
+  /**
+   * Estimation of the heap consumed by the cached facets
+   */
+  public long getMemoryInBytes() {
+    return memoryInBytes.get();
+  }
+
+  private static LinkedHashMap<String, LinkedHashMap<String, Long>> copy(Map<String, LinkedHashMap<String, Long>> facetsByName) {
+    LinkedHashMap<String, LinkedHashMap<String, Long>> copy = new LinkedHashMap<>();
+    facetsByName.forEach((name, buckets) -> copy.put(name, new LinkedHashMap<>(buckets)));
+    return copy;
+  }
+
+  private static int weigh(String key, Map<String, LinkedHashMap<String, Long>> facetsByName) {
+    long weight = ENTRY_OVERHEAD_IN_BYTES + 2L * key.length();
+    for (Map.Entry<String, LinkedHashMap<String, Long>> facet : facetsByName.entrySet()) {
+      weight += BUCKET_OVERHEAD_IN_BYTES + 2L * facet.getKey().length();
+      for (String bucketKey : facet.getValue().keySet()) {
+        weight += BUCKET_OVERHEAD_IN_BYTES + 2L * bucketKey.length();
+      }
+    }
+    return (int) Math.min(Integer.MAX_VALUE, weight);
+  }
+
+  /**
+   * State of the (subset of the) issue index on which facets are computed. Issues are indexed by both
+   * the Compute Engine and the web server, so the generation is read from the index itself rather
+   * than maintained in memory: it changes as soon as documents are added, removed or updated.
+   */
+  static final class Generation {
+    private final long docs;
+    private final double maxUpdatedAt;
+
+    Generation(long docs, double maxUpdatedAt) {
+      this.docs = docs;
+      this.maxUpdatedAt = maxUpdatedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Generation that = (Generation) o;
+      return docs == that.docs && Double.compare(that.maxUpdatedAt, maxUpdatedAt) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(docs, maxUpdatedAt);
+    }
+  }
+
+  private static final class Entry {
+    private final Generation generation;
+    private final LinkedHashMap<String, LinkedHashMap<String, Long>> facetsByName;
+    private final int weight;
+
+    private Entry(Generation generation, LinkedHashMap<String, LinkedHashMap<String, Long>> facetsByName, int weight) {
+      this.generation = generation;
+      this.facetsByName = facetsByName;
+      this.weight = weight;
+    }
+  }
+}
@@ -37,6 +37,9 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -58,6 +61,7 @@ import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInter
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms.Order;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsBuilder;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
 import org.elasticsearch.search.aggregations.metrics.min.Min;
 import org.elasticsearch.search.aggregations.metrics.sum.SumBuilder;
 import org.joda.time.Duration;
@@ -71,6 +75,7 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.server.es.BaseIndex;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsUtils;
+import org.sonar.server.es.Facets;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
 import org.sonar.server.es.Sorting;
@@ -162,12 +167,22 @@ public class IssueIndex extends BaseIndex {
   private final Sorting sorting;
   private final System2 system;
   private final UserSession userSession;
+  @CheckForNull
+  private final IssueFacetsCache facetsCache;
 
+  /**
+   * Used by tests, facets are not cached
+   */
   public IssueIndex(EsClient client, System2 system, UserSession userSession) {
+    this(client, system, userSession, null);
+  }
+
+  public IssueIndex(EsClient client, System2 system, UserSession userSession, @Nullable IssueFacetsCache facetsCache) {
     super(client);
 
     this.system = system;
     this.userSession = userSession;
+    this.facetsCache = facetsCache;
     this.sorting = new Sorting();
     this.sorting.add(IssueQuery.SORT_BY_ASSIGNEE, IssueIndexDefinition.FIELD_ISSUE_ASSIGNEE);
     this.sorting.add(IssueQuery.SORT_BY_STATUS, IssueIndexDefinition.FIELD_ISSUE_STATUS);
@@ -236,8 +251,68 @@ public class IssueIndex extends BaseIndex {
       requestBuilder.setQuery(esQuery);
     }
 
+    if (!isFacetsCacheable(query, options)) {
+      configureStickyFacets(query, options, filters, esQuery, requestBuilder);
+      return new SearchResult<>(requestBuilder.get(), DOC_CONVERTER);
+    }
+
+    // generation is loaded before facets are computed, so that a concurrent indexation can only invalidate the cache entry
+    String cacheKey = facetsCacheKey(query, options, filters);
+    IssueFacetsCache.Generation generation = loadGeneration(query, options);
+    Facets cachedFacets = facetsCache.get(cacheKey, generation);
+    if (cachedFacets != null) {
+      return new SearchResult<>(requestBuilder.get(), DOC_CONVERTER, cachedFacets);
+    }
     configureStickyFacets(query, options, filters, esQuery, requestBuilder);
-    return new SearchResult<>(requestBuilder.get(), DOC_CONVERTER);
+    SearchResult<IssueDoc> result = new SearchResult<>(requestBuilder.get(), DOC_CONVERTER);
+    facetsCache.put(cacheKey, generation, result.getFacets());
+    return result;
+  }
+
+  /**
+   * Views are stored in another index, which changes are not detected by {@link #loadGeneration(IssueQuery, SearchOptions)}
+   */
+  private boolean isFacetsCacheable(IssueQuery query, SearchOptions options) {
+    return facetsCache != null && !options.getFacets().isEmpty() && query.viewUuids().isEmpty();
+  }
+
+  private String facetsCacheKey(IssueQuery query, SearchOptions options, Map<String, QueryBuilder> filters) {
+    StringBuilder key = new StringBuilder();
+    // filters include the authorization filter, so that entries are not shared by users with different permissions
+    new TreeMap<>(filters).forEach((name, filter) -> {
+      if (filter != null) {
+        key.append(name).append('=').append(filter).append('\n');
+      }
+    });
+    key.append("facets=").append(new TreeSet<>(options.getFacets())).append('\n');
+    key.append("facetMode=").append(query.facetMode()).append('\n');
+    if (options.getFacets().contains(FACET_ASSIGNED_TO_ME)) {
+      key.append("login=").append(userSession.getLogin()).append('\n');
+    }
+    if (options.getFacets().contains(CREATED_AT) && query.createdBefore() == null) {
+      // histogram ends now
+      key.append("day=").append(TimeUnit.MILLISECONDS.toDays(system.now())).append('\n');
+    }
+    return key.toString();
+  }
+
+  /**
+   * Issues and authorizations of projects share the same fields "project" and "updatedAt", so
+   * a single request detects both indexation of issues and changes of permissions.
+   * The sticky facet on projects ignores the filter on projects, so whole index is then considered.
+   */
+  private IssueFacetsCache.Generation loadGeneration(IssueQuery query, SearchOptions options) {
+    SearchRequestBuilder esRequest = getClient()
+      .prepareSearch(IssueIndexDefinition.INDEX)
+      .setTypes(IssueIndexDefinition.TYPE_ISSUE, IssueIndexDefinition.TYPE_AUTHORIZATION)
+      .setSize(0)
+      .addAggregation(AggregationBuilders.max(IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT).field(IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT));
+    if (!query.projectUuids().isEmpty() && !options.getFacets().contains(PROJECT_UUIDS)) {
+      esRequest.setQuery(termsQuery(IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID, query.projectUuids()));
+    }
+    SearchResponse response = esRequest.get();
+    Max maxUpdatedAt = response.getAggregations().get(IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT);
+    return new IssueFacetsCache.Generation(response.getHits().totalHits(), maxUpdatedAt.getValue());
   }
 
   private void configureSorting(IssueQuery query, SearchRequestBuilder esRequest) {
@@ -19,15 +19,25 @@
  */
 package org.sonar.server.issue.ws;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
+import org.picocontainer.Startable;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.db.DbClient;
@@ -36,6 +46,8 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.db.issue.IssueChangeDto;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.db.protobuf.DbIssues;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.user.UserDto;
 import org.sonar.server.es.Facets;
 import org.sonar.server.issue.ActionService;
 import org.sonar.server.issue.IssueCommentService;
@@ -51,74 +63,114 @@ import static org.sonar.server.issue.ws.SearchAdditionalField.USERS;
 
 /**
  * Loads all the information required for the response of api/issues/search.
+ * <p>
+ * Once issues are loaded, rules, comments and users are loaded by a background thread with its own DB session, while
+ * the calling thread loads the components. A call therefore uses at most two DB sessions, and no more than
+ * {@link #MAX_THREADS} background threads are used. When they are all busy, everything is loaded by the calling thread.
  */
-public class SearchResponseLoader {
+public class SearchResponseLoader implements Startable {
+
+  private static final int MAX_THREADS = 4;
 
   private final DbClient dbClient;
   private final IssueService issueService;
   private final ActionService actionService;
   private final IssueCommentService commentService;
+  private final ExecutorService executorService;
 
   public SearchResponseLoader(DbClient dbClient, IssueService issueService, ActionService actionService, IssueCommentService commentService) {
+    this(dbClient, issueService, actionService, commentService, new ThreadPoolExecutor(0, MAX_THREADS, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+      new ThreadFactoryBuilder().setNameFormat("IssueSearchResponseLoader-%d").setDaemon(true).build(),
+      // unlike CallerRunsPolicy, tasks are not discarded when the executor is shut down
+      (task, executor) -> task.run()));
+  }
+
+  @VisibleForTesting
+  SearchResponseLoader(DbClient dbClient, IssueService issueService, ActionService actionService, IssueCommentService commentService, ExecutorService executorService) {
     this.dbClient = dbClient;
     this.issueService = issueService;
     this.actionService = actionService;
     this.commentService = commentService;
+    this.executorService = executorService;
+  }
+
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  @Override
+  public void stop() {
+    executorService.shutdown();
   }
 
   /**
    * The issue keys are given by the multi-criteria search in Elasticsearch index.
    */
   public SearchResponseData load(Collector collector, @Nullable Facets facets) {
-    DbSession dbSession = dbClient.openSession(false);
-    try {
+    try (DbSession dbSession = dbClient.openSession(false)) {
       SearchResponseData result = new SearchResponseData(dbClient.issueDao().selectByOrderedKeys(dbSession, collector.getIssueKeys()));
       collector.collect(result.getIssues());
 
-      loadRules(collector, dbSession, result);
-      // order is important - loading of comments complete the list of users: loadComments() is
-      // before loadUsers()
-      loadComments(collector, dbSession, result);
-      loadUsers(collector, dbSession, result);
+      CompletableFuture<RulesCommentsAndUsers> rulesCommentsAndUsers = loadRulesCommentsAndUsers(collector, result.getIssues().isEmpty());
       loadComponents(collector, dbSession, result);
+      RulesCommentsAndUsers loaded = join(rulesCommentsAndUsers);
+
+      if (collector.contains(RULES)) {
+        result.setRules(loaded.rules);
+      }
+      if (collector.contains(COMMENTS)) {
+        setComments(collector, result, loaded.comments);
+      }
+      if (collector.contains(USERS)) {
+        result.setUsers(loaded.users);
+      }
       loadActionsAndTransitions(collector, result);
       completeTotalEffortFromFacet(facets, result);
       return result;
-    } finally {
-      dbClient.closeSession(dbSession);
     }
   }
 
-  private void loadUsers(Collector collector, DbSession dbSession, SearchResponseData result) {
-    if (collector.contains(USERS)) {
-      result.setUsers(dbClient.userDao().selectByLogins(dbSession, collector.<String>get(USERS)));
+  private CompletableFuture<RulesCommentsAndUsers> loadRulesCommentsAndUsers(Collector collector, boolean noIssues) {
+    if (noIssues || !(collector.contains(RULES) || collector.contains(COMMENTS) || collector.contains(USERS))) {
+      return CompletableFuture.completedFuture(new RulesCommentsAndUsers());
     }
-  }
-
-  private void loadComments(Collector collector, DbSession dbSession, SearchResponseData result) {
-    if (collector.contains(COMMENTS)) {
-      List<IssueChangeDto> comments = dbClient.issueChangeDao().selectByTypeAndIssueKeys(dbSession, collector.getIssueKeys(), IssueChangeDto.TYPE_COMMENT);
-      result.setComments(comments);
-      for (IssueChangeDto comment : comments) {
-        collector.add(USERS, comment.getUserLogin());
-        if (commentService.canEditOrDelete(comment)) {
-          result.addUpdatableComment(comment.getKey());
+    // keys are copied so that the collector is only used by the calling thread
+    List<RuleKey> ruleKeys = collector.contains(RULES) ? collector.get(RULES) : Collections.emptyList();
+    List<String> issueKeys = collector.contains(COMMENTS) ? collector.getIssueKeys() : Collections.emptyList();
+    Set<String> logins = collector.contains(USERS) ? new HashSet<>(collector.<String>get(USERS)) : null;
+    return CompletableFuture.supplyAsync(() -> {
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        RulesCommentsAndUsers loaded = new RulesCommentsAndUsers();
+        if (!ruleKeys.isEmpty()) {
+          loaded.rules = dbClient.ruleDao().selectByKeys(dbSession, ruleKeys);
+        }
+        if (!issueKeys.isEmpty()) {
+          loaded.comments = dbClient.issueChangeDao().selectByTypeAndIssueKeys(dbSession, issueKeys, IssueChangeDto.TYPE_COMMENT);
+        }
+        if (logins != null) {
+          // order is important - loading of comments complete the list of users
+          for (IssueChangeDto comment : loaded.comments) {
+            if (comment.getUserLogin() != null) {
+              logins.add(comment.getUserLogin());
+            }
+          }
+          loaded.users = dbClient.userDao().selectByLogins(dbSession, logins);
         }
+        return loaded;
       }
-    }
-  }
-
-  private void loadRules(Collector collector, DbSession dbSession, SearchResponseData result) {
-    if (collector.contains(RULES)) {
-      result.setRules(dbClient.ruleDao().selectByKeys(dbSession, collector.<RuleKey>get(RULES)));
-    }
+    }, executorService);
   }
 
+  /**
+   * Components, sub-projects, then projects. Components and projects are always loaded, because some issue
+   * fields still relate to component ids/keys. They should be dropped but are kept for backward-compatibility
+   * (see SearchResponseFormat).
+   */
   private void loadComponents(Collector collector, DbSession dbSession, SearchResponseData result) {
-    // always load components and projects, because some issue fields still relate to component ids/keys.
-    // They should be dropped but are kept for backward-compatibility (see SearchResponseFormat)
-    result.addComponents(dbClient.componentDao().selectByUuids(dbSession, collector.getComponentUuids()));
-    result.addComponents(dbClient.componentDao().selectSubProjectsByComponentUuids(dbSession, collector.getComponentUuids()));
+    Collection<String> componentUuids = collector.getComponentUuids();
+    result.addComponents(dbClient.componentDao().selectByUuids(dbSession, componentUuids));
+    result.addComponents(dbClient.componentDao().selectSubProjectsByComponentUuids(dbSession, componentUuids));
     for (ComponentDto component : result.getComponents()) {
       collector.addProjectUuid(component.projectUuid());
     }
@@ -126,6 +178,31 @@ public class SearchResponseLoader {
     result.addComponents(projects);
   }
 
+  private void setComments(Collector collector, SearchResponseData result, List<IssueChangeDto> comments) {
+    result.setComments(comments);
+    for (IssueChangeDto comment : comments) {
+      collector.add(USERS, comment.getUserLogin());
+      // user session is bound to the calling thread
+      if (commentService.canEditOrDelete(comment)) {
+        result.addUpdatableComment(comment.getKey());
+      }
+    }
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+    }
+  }
+
+  private static class RulesCommentsAndUsers {
+    private List<RuleDto> rules = Collections.emptyList();
+    private List<IssueChangeDto> comments = Collections.emptyList();
+    private List<UserDto> users = Collections.emptyList();
+  }
+
   private void loadActionsAndTransitions(Collector collector, SearchResponseData result) {
     if (collector.contains(ACTIONS) || collector.contains(TRANSITIONS)) {
       for (IssueDto dto : result.getIssues()) {
@@ -46,7 +46,6 @@ import static java.util.Comparator.comparing;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toMap;
 import static org.sonar.core.util.stream.Collectors.toList;
-import static org.sonar.core.util.stream.Collectors.uniqueIndex;
 import static org.sonar.server.measure.ws.MeasureDtoToWsMeasure.dbToWsMeasure;
 import static org.sonar.server.measure.ws.MeasuresWsParametersBuilder.createMetricKeysParameter;
 import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
@@ -138,12 +137,10 @@ public class SearchAction implements MeasuresWsAction {
     }
 
     private List<ComponentDto> getAuthorizedProjects(List<ComponentDto> projectDtos) {
-      Map<String, Long> projectIdsByUuids = projectDtos.stream().collect(uniqueIndex(ComponentDto::uuid, ComponentDto::getId));
-      Set<Long> authorizedProjectIds = dbClient.authorizationDao().keepAuthorizedProjectIds(dbSession,
-        projectDtos.stream().map(ComponentDto::getId).collect(toList()),
-        userSession.getUserId(), UserRole.USER);
+      Set<String> authorizedProjectUuids = userSession.keepAuthorizedComponentUuids(UserRole.USER,
+        projectDtos.stream().map(ComponentDto::uuid).collect(toList()));
       return projectDtos.stream()
-        .filter(c -> authorizedProjectIds.contains(projectIdsByUuids.get(c.projectUuid())))
+        .filter(c -> authorizedProjectUuids.contains(c.uuid()))
         .collect(Collectors.toList());
     }
 
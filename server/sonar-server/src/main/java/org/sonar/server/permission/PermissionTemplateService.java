@@ -126,6 +126,8 @@ public class PermissionTemplateService {
    * Apply a permission template to a set of projects. Authorization to administrate these projects
    * is not verified. The projects must exist, so the "project creator" permissions defined in the
    * template are ignored.
+   * When the template is applied to several projects, the authorization indexes are updated
+   * asynchronously (see {@link PermissionIndexer#indexAsync(DbSession, Collection)}).
    */
   public void apply(DbSession dbSession, PermissionTemplateDto template, Collection<ComponentDto> projects) {
     if (projects.isEmpty()) {
@@ -135,8 +137,14 @@ public class PermissionTemplateService {
     for (ComponentDto project : projects) {
       copyPermissions(dbSession, template, project, null);
     }
-    dbSession.commit();
-    indexProjectPermissions(dbSession, projects.stream().map(ComponentDto::uuid).collect(Collectors.toList()));
+    List<String> projectUuids = projects.stream().map(ComponentDto::uuid).collect(Collectors.toList());
+    if (projectUuids.size() == 1) {
+      dbSession.commit();
+      indexProjectPermissions(dbSession, projectUuids);
+    } else {
+      // commits the permission changes along with the indexing queue
+      permissionIndexer.indexAsync(dbSession, projectUuids);
+    }
   }
 
   /**
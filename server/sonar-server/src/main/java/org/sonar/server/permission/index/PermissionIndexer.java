@@ -22,6 +22,7 @@ package org.sonar.server.permission.index;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.Uninterruptibles;
 import java.util.Collection;
 import java.util.Date;
@@ -29,15 +30,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.picocontainer.Startable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.permission.PermissionIndexQueueDto;
 import org.sonar.server.component.es.ProjectMeasuresIndexDefinition;
 import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.EsClient;
@@ -46,6 +50,7 @@ import org.sonar.server.issue.index.IssueIndexDefinition;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
 
 /**
@@ -54,25 +59,52 @@ import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
  *   <li>index the projects with recent permission changes</li>
  *   <li>delete project orphans from index</li>
  * </ul>
+ * Projects can be indexed synchronously, or asynchronously with {@link #indexAsync(DbSession, Collection)}. In the latter
+ * case, the projects are queued in database and indexed in batches by a background thread after at most
+ * {@link #ASYNC_INDEXING_DELAY_MS}. Projects which are still queued when the server stops are indexed at next startup.
  */
 public class PermissionIndexer implements Startable {
 
+  /**
+   * Maximum delay before asynchronous changes are indexed. Changes requested during this delay are coalesced.
+   */
+  static final long ASYNC_INDEXING_DELAY_MS = 1_000L;
+
+  private static final Logger LOG = Loggers.get(PermissionIndexer.class);
+
   private static final int MAX_BATCH_SIZE = 1000;
 
   private static final String BULK_ERROR_MESSAGE = "Fail to index authorization";
 
-  private final ThreadPoolExecutor executor;
+  private final ScheduledThreadPoolExecutor executor;
   private final DbClient dbClient;
   private final EsClient esClient;
+  private final long asyncIndexingDelayMs;
+
+  // guarded by this
+  private boolean queueIndexingScheduled = false;
 
   public PermissionIndexer(DbClient dbClient, EsClient esClient) {
-    this.executor = new ThreadPoolExecutor(0, 1, 0L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    this(dbClient, esClient, ASYNC_INDEXING_DELAY_MS);
+  }
+
+  @VisibleForTesting
+  PermissionIndexer(DbClient dbClient, EsClient esClient, long asyncIndexingDelayMs) {
+    this.executor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat("PermissionIndexer-%d")
+      .build());
+    this.executor.setKeepAliveTime(1L, TimeUnit.SECONDS);
+    this.executor.allowCoreThreadTimeOut(true);
     this.dbClient = dbClient;
     this.esClient = esClient;
+    this.asyncIndexingDelayMs = asyncIndexingDelayMs;
   }
 
   /**
-   * Index issues authorization and project measures authorization indexes only when they are empty
+   * Index issues authorization and project measures authorization indexes only when they are empty, then
+   * index the projects which have been queued by {@link #indexAsync(DbSession, Collection)} but not indexed yet,
+   * for example because the server stopped.
    */
   public void indexAllIfEmpty() {
     Future submit = executor.submit(() -> {
@@ -84,6 +116,7 @@ public class PermissionIndexer implements Startable {
           index(new PermissionIndexerDao().selectAll(dbClient, dbSession));
         }
       }
+      indexQueuedProjects();
     });
     try {
       Uninterruptibles.getUninterruptibly(submit);
@@ -107,6 +140,58 @@ public class PermissionIndexer implements Startable {
     index(dao.selectByProjects(dbClient, dbSession, projectUuids));
   }
 
+  /**
+   * Queues the projects whose permissions changed and commits the session, so that the permission changes made in
+   * this session and the queue are persisted together. The projects are indexed in background, so the
+   * authorization indexes may be stale during at most {@link #ASYNC_INDEXING_DELAY_MS} plus the indexing duration.
+   * A project queued several times before being indexed is indexed only once per batch.
+   */
+  public void indexAsync(DbSession dbSession, Collection<String> projectUuids) {
+    if (projectUuids.isEmpty()) {
+      return;
+    }
+    dbClient.permissionIndexQueueDao().insert(dbSession, projectUuids);
+    dbSession.commit();
+    scheduleQueueIndexing();
+  }
+
+  private synchronized void scheduleQueueIndexing() {
+    if (queueIndexingScheduled || executor.isShutdown()) {
+      // queued projects are indexed at next startup if the indexer is stopped
+      return;
+    }
+    try {
+      executor.schedule(this::indexQueuedProjects, asyncIndexingDelayMs, TimeUnit.MILLISECONDS);
+      queueIndexingScheduled = true;
+    } catch (RejectedExecutionException e) {
+      LOG.debug("Authorization indexer is stopped, queued projects will be indexed at next startup", e);
+    }
+  }
+
+  private void indexQueuedProjects() {
+    synchronized (this) {
+      // projects queued from now on are indexed by the next execution
+      queueIndexingScheduled = false;
+    }
+    boolean done = false;
+    while (!done) {
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        List<PermissionIndexQueueDto> dtos = dbClient.permissionIndexQueueDao().selectOldest(dbSession, MAX_BATCH_SIZE);
+        List<String> projectUuids = dtos.stream().map(PermissionIndexQueueDto::getProjectUuid).distinct().collect(toList());
+        if (!projectUuids.isEmpty()) {
+          index(new PermissionIndexerDao().selectByProjects(dbClient, dbSession, projectUuids));
+          dbClient.permissionIndexQueueDao().delete(dbSession, dtos.stream().map(PermissionIndexQueueDto::getUuid).collect(toList()));
+          dbSession.commit();
+        }
+        done = dtos.size() < MAX_BATCH_SIZE;
+      } catch (RuntimeException e) {
+        // projects stay in queue. They are indexed by the next execution, at the latest at next startup.
+        LOG.error("Fail to index authorization of queued projects", e);
+        done = true;
+      }
+    }
+  }
+
   private void index(Collection<PermissionIndexerDao.Dto> authorizations) {
     if (authorizations.isEmpty()) {
       return;
@@ -180,6 +265,14 @@ public class PermissionIndexer implements Startable {
 
   @Override
   public void stop() {
+    // pending asynchronous indexing is executed before shutdown
     executor.shutdown();
+    try {
+      if (!executor.awaitTermination(10L, TimeUnit.SECONDS)) {
+        LOG.warn("Authorization indexing is not complete, remaining permission changes will be indexed at next startup");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
   }
 }
@@ -23,12 +23,14 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.apache.commons.dbutils.DbUtils;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
+import org.sonar.db.profiling.SqlStatementStatistics;
 import org.sonar.db.version.DatabaseVersion;
 
 /**
@@ -36,6 +38,8 @@ import org.sonar.db.version.DatabaseVersion;
  */
 public class DatabaseMonitor extends BaseMonitorMBean implements DatabaseMonitorMBean {
 
+  private static final int MAX_SQL_STATEMENTS = 20;
+
   private final DatabaseVersion dbVersion;
   private final DbClient dbClient;
 
@@ -99,14 +103,42 @@ public class DatabaseMonitor extends BaseMonitorMBean implements DatabaseMonitor
     return commonsDbcp().getRemoveAbandonedTimeout();
   }
 
+  @Override
+  public String[] getSlowestSqlStatements() {
+    return slowestSqlStatements().stream()
+      .map(s -> String.format("%s: count=%d, total=%dms, p50=%.1fms, p99=%.1fms, rows=%d",
+        s.getStatementId(), s.getCount(), s.getTotalMicros() / 1_000, s.getP50Micros() / 1_000d, s.getP99Micros() / 1_000d, s.getRows()))
+      .toArray(String[]::new);
+  }
+
   @Override
   public Map<String, Object> attributes() {
     Map<String, Object> attributes = new LinkedHashMap<>();
     completeDbAttributes(attributes);
     completePoolAttributes(attributes);
+    completeSqlStatementAttributes(attributes);
     return attributes;
   }
 
+  private void completeSqlStatementAttributes(Map<String, Object> attributes) {
+    Map<String, Object> statements = new LinkedHashMap<>();
+    for (SqlStatementStatistics.Snapshot statement : slowestSqlStatements()) {
+      Map<String, Object> statementAttributes = new LinkedHashMap<>();
+      statementAttributes.put("Count", statement.getCount());
+      statementAttributes.put("Total Time (ms)", statement.getTotalMicros() / 1_000);
+      statementAttributes.put("P50 (ms)", statement.getP50Micros() / 1_000d);
+      statementAttributes.put("P99 (ms)", statement.getP99Micros() / 1_000d);
+      statementAttributes.put("Rows", statement.getRows());
+      statementAttributes.put("Streamed Executions", statement.getStreamedCount());
+      statements.put(statement.getStatementId(), statementAttributes);
+    }
+    attributes.put("Slowest SQL Statements", statements);
+  }
+
+  private List<SqlStatementStatistics.Snapshot> slowestSqlStatements() {
+    return dbClient.getMyBatis().getStatementStatistics().getTopByTotalTime(MAX_SQL_STATEMENTS);
+  }
+
   private void completePoolAttributes(Map<String, Object> attributes) {
     attributes.put("Pool Active Connections", getPoolActiveConnections());
     attributes.put("Pool Max Connections", getPoolMaxActiveConnections());
@@ -68,4 +68,10 @@ public interface DatabaseMonitorMBean {
    * Timeout in seconds before an abandoned connection can be removed.
    */
   int getPoolRemoveAbandonedTimeoutSeconds();
+
+  /**
+   * The SQL statements which spent the most time in database since startup, one line per MyBatis statement id,
+   * with number of executions, total time, 50th and 99th percentiles and number of rows.
+   */
+  String[] getSlowestSqlStatements();
 }
@@ -32,15 +32,18 @@ import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.issue.index.IssueFacetsCache;
 
 import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
 
 public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
 
   private final EsClient esClient;
+  private final IssueFacetsCache issueFacetsCache;
 
-  public EsMonitor(EsClient esClient) {
+  public EsMonitor(EsClient esClient, IssueFacetsCache issueFacetsCache) {
     this.esClient = esClient;
+    this.issueFacetsCache = issueFacetsCache;
   }
 
   @Override
@@ -74,6 +77,7 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
       attributes.put("Indices", indexAttributes());
       attributes.put("Number of Nodes", getNumberOfNodes());
       attributes.put("Nodes", nodeAttributes());
+      attributes.put("Issue Facets Cache", issueFacetsCacheAttributes());
       return attributes;
     } catch (Exception es) {
       Loggers.get(EsMonitor.class).warn("Failed to retrieve ES attributes. There will be only a single \"state\" attribute.", es);
@@ -131,6 +135,16 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
     return nodes;
   }
 
+  private LinkedHashMap<String, Object> issueFacetsCacheAttributes() {
+    LinkedHashMap<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Entries", issueFacetsCache.getSize());
+    attributes.put("Hit Ratio", formatPercent(Math.round(100 * issueFacetsCache.getHitRatio())));
+    attributes.put("Hits", issueFacetsCache.getHits());
+    attributes.put("Misses", issueFacetsCache.getMisses());
+    attributes.put("Memory", byteCountToDisplaySize(issueFacetsCache.getMemoryInBytes()));
+    return attributes;
+  }
+
   private ClusterStatsResponse clusterStats() {
     return esClient.prepareClusterStats().get();
   }
@@ -20,6 +20,7 @@
 package org.sonar.server.qualityprofile;
 
 import com.google.common.base.Splitter;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -56,6 +57,8 @@ import static com.google.common.collect.Lists.newArrayList;
 @ServerSide
 public class RuleActivator {
 
+  private static final int BULK_ACTIVATION_CHUNK_SIZE = 1_000;
+
   private final System2 system2;
   private final DbClient db;
   private final TypeValidations typeValidations;
@@ -78,20 +81,20 @@ public class RuleActivator {
 
   public List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, String profileKey) {
     RuleActivatorContext context = contextFactory.create(profileKey, activation.getRuleKey(), dbSession);
-    return doActivate(dbSession, activation, context);
+    return doActivate(dbSession, activation, context, null);
   }
 
   public List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, QProfileName profileName) {
     RuleActivatorContext context = contextFactory.create(profileName, activation.getRuleKey(), dbSession);
-    return doActivate(dbSession, activation, context);
+    return doActivate(dbSession, activation, context, null);
   }
 
   List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, QualityProfileDto profileDto) {
     RuleActivatorContext context = contextFactory.create(profileDto, activation.getRuleKey(), dbSession);
-    return doActivate(dbSession, activation, context);
+    return doActivate(dbSession, activation, context, null);
   }
 
-  private List<ActiveRuleChange> doActivate(DbSession dbSession, RuleActivation activation, RuleActivatorContext context) {
+  private List<ActiveRuleChange> doActivate(DbSession dbSession, RuleActivation activation, RuleActivatorContext context, @Nullable RuleActivatorCache cache) {
     context.verifyForActivation();
     List<ActiveRuleChange> changes = Lists.newArrayList();
     ActiveRuleChange change;
@@ -136,26 +139,30 @@ public class RuleActivator {
 
     if (change != null) {
       changes.add(change);
-      persist(change, context, dbSession);
+      persist(change, context, dbSession, cache);
     }
 
     if (!stopPropagation) {
-      changes.addAll(cascadeActivation(dbSession, activation, context.profile().getKey()));
+      changes.addAll(cascadeActivation(dbSession, activation, context.profile().getKey(), cache));
     }
 
     if (!changes.isEmpty()) {
-      updateProfileDates(dbSession, context);
+      updateProfileDates(dbSession, context, cache);
     }
     return changes;
   }
 
-  private void updateProfileDates(DbSession dbSession, RuleActivatorContext context) {
+  private void updateProfileDates(DbSession dbSession, RuleActivatorContext context, @Nullable RuleActivatorCache cache) {
     QualityProfileDto profile = context.profile();
     profile.setRulesUpdatedAtAsDate(context.getInitDate());
     if (userSession.isLoggedIn()) {
       profile.setUserUpdatedAt(context.getInitDate().getTime());
     }
-    db.qualityProfileDao().update(dbSession, profile);
+    if (cache == null) {
+      db.qualityProfileDao().update(dbSession, profile);
+    } else {
+      cache.markAsUpdated(profile);
+    }
   }
 
   /**
@@ -228,19 +235,24 @@ public class RuleActivator {
     return null;
   }
 
-  private List<ActiveRuleChange> cascadeActivation(DbSession session, RuleActivation activation, String profileKey) {
+  private List<ActiveRuleChange> cascadeActivation(DbSession session, RuleActivation activation, String profileKey, @Nullable RuleActivatorCache cache) {
     List<ActiveRuleChange> changes = Lists.newArrayList();
 
     // get all inherited profiles
-    List<QualityProfileDto> children = db.qualityProfileDao().selectChildren(session, profileKey);
+    List<QualityProfileDto> children = cache == null ? db.qualityProfileDao().selectChildren(session, profileKey) : cache.children(profileKey);
     for (QualityProfileDto child : children) {
       RuleActivation childActivation = new RuleActivation(activation).setCascade(true);
-      changes.addAll(activate(session, childActivation, child.getKey()));
+      if (cache == null) {
+        changes.addAll(activate(session, childActivation, child.getKey()));
+      } else {
+        RuleActivatorContext childContext = contextFactory.create(child, childActivation.getRuleKey(), cache);
+        changes.addAll(doActivate(session, childActivation, childContext, cache));
+      }
     }
     return changes;
   }
 
-  private ActiveRuleDto persist(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession) {
+  private ActiveRuleDto persist(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession, @Nullable RuleActivatorCache cache) {
     ActiveRuleDto activeRule = null;
     if (change.getType() == ActiveRuleChange.Type.ACTIVATED) {
       activeRule = doInsert(change, context, dbSession);
@@ -252,6 +264,13 @@ public class RuleActivator {
       activeRule = doUpdate(change, context, dbSession);
     }
 
+    if (cache != null) {
+      if (activeRule == null) {
+        cache.removeActiveRule(change.getKey());
+      } else {
+        cache.putActiveRule(activeRule, context.activeRuleParamsAsMap().values());
+      }
+    }
     db.qProfileChangeDao().insert(dbSession, change.toDto(userSession.getLogin()));
     return activeRule;
   }
@@ -271,11 +290,13 @@ public class RuleActivator {
     activeRule.setUpdatedAt(system2.now());
     activeRule.setCreatedAt(system2.now());
     dao.insert(dbSession, activeRule);
+    context.setActiveRule(activeRule);
     for (Map.Entry<String, String> param : change.getParameters().entrySet()) {
       if (param.getValue() != null) {
         ActiveRuleParamDto paramDto = ActiveRuleParamDto.createFor(context.ruleParamsByKeys().get(param.getKey()));
         paramDto.setValue(param.getValue());
         dao.insertParam(dbSession, activeRule, paramDto);
+        context.activeRuleParamsAsMap().put(param.getKey(), paramDto);
       }
     }
     return activeRule;
@@ -304,6 +325,7 @@ public class RuleActivator {
             activeRuleParamDto = ActiveRuleParamDto.createFor(context.ruleParamsByKeys().get(param.getKey()));
             activeRuleParamDto.setValue(param.getValue());
             dao.insertParam(dbSession, activeRule, activeRuleParamDto);
+            context.activeRuleParamsAsMap().put(param.getKey(), activeRuleParamDto);
           }
         } else {
           if (param.getValue() != null) {
@@ -311,6 +333,7 @@ public class RuleActivator {
             dao.updateParam(dbSession, activeRule, activeRuleParamDto);
           } else {
             dao.deleteParam(dbSession, activeRule, activeRuleParamDto);
+            context.activeRuleParamsAsMap().remove(param.getKey());
           }
         }
       }
@@ -373,7 +396,7 @@ public class RuleActivator {
     }
     change = ActiveRuleChange.createFor(ActiveRuleChange.Type.DEACTIVATED, key);
     changes.add(change);
-    persist(change, context, dbSession);
+    persist(change, context, dbSession, null);
 
     // get all inherited profiles
     List<QualityProfileDto> profiles = db.qualityProfileDao().selectChildren(dbSession, key.qProfile());
@@ -384,7 +407,7 @@ public class RuleActivator {
     }
 
     if (!changes.isEmpty()) {
-      updateProfileDates(dbSession, context);
+      updateProfileDates(dbSession, context, null);
     }
 
     return changes;
@@ -404,28 +427,41 @@ public class RuleActivator {
     return value;
   }
 
+  /**
+   * The profile hierarchy and its active rules are loaded once, then the activations
+   * are computed and cascaded without reading them again from db. Rules are loaded by
+   * chunks of {@link #BULK_ACTIVATION_CHUNK_SIZE}.
+   */
   BulkChangeResult bulkActivate(RuleQuery ruleQuery, String profileKey, @Nullable String severity) {
     DbSession dbSession = db.openSession(false);
     BulkChangeResult result = new BulkChangeResult();
     try {
-      Iterator<RuleKey> rules = ruleIndex.searchAll(ruleQuery);
-      while (rules.hasNext()) {
-        RuleKey ruleKey = rules.next();
-        try {
-          RuleActivation activation = new RuleActivation(ruleKey);
-          activation.setSeverity(severity);
-          List<ActiveRuleChange> changes = activate(dbSession, activation, profileKey);
-          result.addChanges(changes);
-          if (!changes.isEmpty()) {
-            result.incrementSucceeded();
+      RuleActivatorCache cache = contextFactory.createCache(profileKey, dbSession);
+      Iterator<List<RuleKey>> chunks = Iterators.partition(ruleIndex.searchAll(ruleQuery), BULK_ACTIVATION_CHUNK_SIZE);
+      while (chunks.hasNext()) {
+        List<RuleKey> ruleKeys = chunks.next();
+        contextFactory.loadRules(cache, ruleKeys, dbSession);
+        for (RuleKey ruleKey : ruleKeys) {
+          try {
+            RuleActivation activation = new RuleActivation(ruleKey);
+            activation.setSeverity(severity);
+            RuleActivatorContext context = contextFactory.create(cache.profile(), ruleKey, cache);
+            List<ActiveRuleChange> changes = doActivate(dbSession, activation, context, cache);
+            result.addChanges(changes);
+            if (!changes.isEmpty()) {
+              result.incrementSucceeded();
+            }
+
+          } catch (BadRequestException e) {
+            // other exceptions stop the bulk activation
+            result.incrementFailed();
+            result.getErrors().add(e.errors());
           }
-
-        } catch (BadRequestException e) {
-          // other exceptions stop the bulk activation
-          result.incrementFailed();
-          result.getErrors().add(e.errors());
         }
       }
+      for (QualityProfileDto profile : cache.updatedProfiles()) {
+        db.qualityProfileDao().update(dbSession, profile);
+      }
       dbSession.commit();
       activeRuleIndexer.index(result.getChanges());
     } finally {
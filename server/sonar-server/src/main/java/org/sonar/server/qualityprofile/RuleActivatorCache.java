@@ -0,0 +1,135 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.qualityprofile;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.db.qualityprofile.ActiveRuleDto;
+import org.sonar.db.qualityprofile.ActiveRuleKey;
+import org.sonar.db.qualityprofile.ActiveRuleParamDto;
+import org.sonar.db.qualityprofile.QualityProfileDto;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.rule.RuleParamDto;
+
+/**
+ * Profile hierarchy, rules and active rules loaded once for a bulk activation. It is kept
+ * up-to-date with the changes persisted by {@link RuleActivator}, so that activations cascaded
+ * to descendant profiles do not read back from db what has just been written.
+ */
+class RuleActivatorCache {
+
+  private final QualityProfileDto profile;
+  private final Map<String, QualityProfileDto> profilesByKey = new HashMap<>();
+  private final ListMultimap<String, QualityProfileDto> childrenByParentKey = ArrayListMultimap.create();
+  private final Map<ActiveRuleKey, ActiveRuleDto> activeRulesByKey = new HashMap<>();
+  private final ListMultimap<Integer, ActiveRuleParamDto> activeRuleParamsByActiveRuleId = ArrayListMultimap.create();
+  private final Map<RuleKey, RuleDto> rulesByKey = new HashMap<>();
+  private final ListMultimap<Integer, RuleParamDto> ruleParamsByRuleId = ArrayListMultimap.create();
+  private final Map<String, QualityProfileDto> updatedProfilesByKey = new LinkedHashMap<>();
+
+  RuleActivatorCache(QualityProfileDto profile) {
+    this.profile = profile;
+    this.profilesByKey.put(profile.getKey(), profile);
+  }
+
+  /**
+   * The profile on which the bulk activation is requested
+   */
+  QualityProfileDto profile() {
+    return profile;
+  }
+
+  Collection<QualityProfileDto> profiles() {
+    return profilesByKey.values();
+  }
+
+  void addProfile(QualityProfileDto dto) {
+    profilesByKey.put(dto.getKey(), dto);
+    String parentKey = dto.getParentKee();
+    if (parentKey != null) {
+      childrenByParentKey.put(parentKey, dto);
+    }
+  }
+
+  @CheckForNull
+  QualityProfileDto profile(String profileKey) {
+    return profilesByKey.get(profileKey);
+  }
+
+  List<QualityProfileDto> children(String profileKey) {
+    return childrenByParentKey.get(profileKey);
+  }
+
+  void addRule(RuleDto rule, Collection<RuleParamDto> params) {
+    rulesByKey.put(rule.getKey(), rule);
+    ruleParamsByRuleId.replaceValues(rule.getId(), params);
+  }
+
+  @CheckForNull
+  RuleDto rule(RuleKey ruleKey) {
+    return rulesByKey.get(ruleKey);
+  }
+
+  List<RuleParamDto> ruleParams(RuleDto rule) {
+    return ruleParamsByRuleId.get(rule.getId());
+  }
+
+  /**
+   * Adds or replaces the active rule, with its parameters
+   */
+  void putActiveRule(ActiveRuleDto activeRule, Collection<ActiveRuleParamDto> params) {
+    activeRulesByKey.put(activeRule.getKey(), activeRule);
+    activeRuleParamsByActiveRuleId.replaceValues(activeRule.getId(), params);
+  }
+
+  void removeActiveRule(ActiveRuleKey key) {
+    ActiveRuleDto activeRule = activeRulesByKey.remove(key);
+    if (activeRule != null) {
+      activeRuleParamsByActiveRuleId.removeAll(activeRule.getId());
+    }
+  }
+
+  @CheckForNull
+  ActiveRuleDto activeRule(ActiveRuleKey key) {
+    return activeRulesByKey.get(key);
+  }
+
+  List<ActiveRuleParamDto> activeRuleParams(ActiveRuleDto activeRule) {
+    return activeRuleParamsByActiveRuleId.get(activeRule.getId());
+  }
+
+  /**
+   * Profiles are updated once at the end of the bulk change instead of after each rule
+   */
+  void markAsUpdated(QualityProfileDto dto) {
+    updatedProfilesByKey.put(dto.getKey(), dto);
+  }
+
+  Collection<QualityProfileDto> updatedProfiles() {
+    return updatedProfilesByKey.values();
+  }
+}
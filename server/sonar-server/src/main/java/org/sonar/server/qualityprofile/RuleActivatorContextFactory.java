@@ -20,7 +20,9 @@
 package org.sonar.server.qualityprofile;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ListMultimap;
 import java.util.Collection;
+import java.util.List;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.server.ServerSide;
 import org.sonar.db.DbClient;
@@ -30,8 +32,12 @@ import org.sonar.db.qualityprofile.ActiveRuleKey;
 import org.sonar.db.qualityprofile.ActiveRuleParamDto;
 import org.sonar.db.qualityprofile.QualityProfileDto;
 import org.sonar.db.rule.RuleDto;
+import org.sonar.db.rule.RuleParamDto;
 import org.sonar.server.exceptions.BadRequestException;
 
+import static org.sonar.core.util.stream.Collectors.index;
+import static org.sonar.core.util.stream.Collectors.toList;
+
 @ServerSide
 public class RuleActivatorContextFactory {
 
@@ -65,6 +71,65 @@ public class RuleActivatorContextFactory {
     return create(ruleKey, session, new RuleActivatorContext().setProfile(profile));
   }
 
+  /**
+   * Creates the context from the data of the cache, without any db round trip
+   */
+  RuleActivatorContext create(QualityProfileDto profile, RuleKey ruleKey, RuleActivatorCache cache) {
+    RuleActivatorContext context = new RuleActivatorContext().setProfile(profile);
+    RuleDto rule = cache.rule(ruleKey);
+    if (rule == null) {
+      throw new BadRequestException("Rule not found: " + ruleKey);
+    }
+    context.setRule(rule);
+    context.setRuleParams(cache.ruleParams(rule));
+    ActiveRuleDto activeRule = cache.activeRule(ActiveRuleKey.of(profile.getKey(), ruleKey));
+    context.setActiveRule(activeRule);
+    context.setActiveRuleParams(activeRule == null ? null : cache.activeRuleParams(activeRule));
+    String parentKee = profile.getParentKee();
+    if (parentKee != null) {
+      ActiveRuleDto parentActiveRule = cache.activeRule(ActiveRuleKey.of(parentKee, ruleKey));
+      context.setParentActiveRule(parentActiveRule);
+      context.setParentActiveRuleParams(parentActiveRule == null ? null : cache.activeRuleParams(parentActiveRule));
+    }
+    return context;
+  }
+
+  /**
+   * Loads the profile, its parent, its descendants and all their active rules. Rules must
+   * then be loaded with {@link #loadRules(RuleActivatorCache, List, DbSession)}.
+   */
+  RuleActivatorCache createCache(String profileKey, DbSession session) {
+    QualityProfileDto profile = db.qualityProfileDao().selectByKey(session, profileKey);
+    if (profile == null) {
+      throw new BadRequestException("Quality profile not found: " + profileKey);
+    }
+    RuleActivatorCache cache = new RuleActivatorCache(profile);
+    String parentKee = profile.getParentKee();
+    if (parentKee != null) {
+      cache.addProfile(db.qualityProfileDao().selectOrFailByKey(session, parentKee));
+    }
+    db.qualityProfileDao().selectDescendants(session, profileKey).forEach(cache::addProfile);
+
+    List<ActiveRuleDto> activeRules = cache.profiles().stream()
+      .flatMap(p -> db.activeRuleDao().selectByProfileKey(session, p.getKey()).stream())
+      .collect(toList());
+    ListMultimap<Integer, ActiveRuleParamDto> paramsByActiveRuleId = db.activeRuleDao()
+      .selectParamsByActiveRuleIds(session, activeRules.stream().map(ActiveRuleDto::getId).collect(toList()))
+      .stream()
+      .collect(index(ActiveRuleParamDto::getActiveRuleId));
+    activeRules.forEach(activeRule -> cache.putActiveRule(activeRule, paramsByActiveRuleId.get(activeRule.getId())));
+    return cache;
+  }
+
+  void loadRules(RuleActivatorCache cache, List<RuleKey> ruleKeys, DbSession session) {
+    List<RuleDto> rules = db.ruleDao().selectByKeys(session, ruleKeys);
+    ListMultimap<Integer, RuleParamDto> paramsByRuleId = db.ruleDao()
+      .selectRuleParamsByRuleIds(session, rules.stream().map(RuleDto::getId).collect(toList()))
+      .stream()
+      .collect(index(RuleParamDto::getRuleId));
+    rules.forEach(rule -> cache.addRule(rule, paramsByRuleId.get(rule.getId())));
+  }
+
   private RuleActivatorContext create(RuleKey ruleKey, DbSession session, RuleActivatorContext context) {
     initRule(ruleKey, context, session);
     initActiveRules(context.profile().getKey(), ruleKey, context, session, false);
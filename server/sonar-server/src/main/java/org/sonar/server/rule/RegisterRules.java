@@ -20,13 +20,17 @@
 package org.sonar.server.rule;
 
 import com.google.common.base.Function;
-import com.google.common.base.Optional;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +39,7 @@ import javax.annotation.Nullable;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.picocontainer.Startable;
+import org.sonar.api.SonarRuntime;
 import org.sonar.api.resources.Languages;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.RuleStatus;
@@ -54,6 +59,7 @@ import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleDto.Format;
 import org.sonar.db.rule.RuleParamDto;
 import org.sonar.db.rule.RuleRepositoryDto;
+import org.sonar.server.property.InternalProperties;
 import org.sonar.server.qualityprofile.ActiveRuleChange;
 import org.sonar.server.qualityprofile.RuleActivator;
 import org.sonar.server.qualityprofile.index.ActiveRuleIndexer;
@@ -77,9 +83,10 @@ public class RegisterRules implements Startable {
   private final ActiveRuleIndexer activeRuleIndexer;
   private final Languages languages;
   private final System2 system2;
+  private final SonarRuntime runtime;
 
   public RegisterRules(RuleDefinitionsLoader defLoader, RuleActivator ruleActivator, DbClient dbClient, RuleIndexer ruleIndexer,
-    ActiveRuleIndexer activeRuleIndexer, Languages languages, System2 system2) {
+    ActiveRuleIndexer activeRuleIndexer, Languages languages, System2 system2, SonarRuntime runtime) {
     this.defLoader = defLoader;
     this.ruleActivator = ruleActivator;
     this.dbClient = dbClient;
@@ -87,6 +94,7 @@ public class RegisterRules implements Startable {
     this.activeRuleIndexer = activeRuleIndexer;
     this.languages = languages;
     this.system2 = system2;
+    this.runtime = runtime;
   }
 
   @Override
@@ -94,30 +102,114 @@ public class RegisterRules implements Startable {
     Profiler profiler = Profiler.create(LOG).startInfo("Register rules");
     DbSession session = dbClient.openSession(false);
     try {
+      RulesDefinition.Context context = defLoader.load();
+      List<RulesDefinition.ExtendedRepository> repositories = getRepositories(context);
+      String fingerprint = computeFingerprint(repositories);
+      if (fingerprint.equals(dbClient.internalPropertiesDao().selectByKey(session, InternalProperties.RULES_FINGERPRINT).orElse(null))) {
+        LOG.debug("Rule definitions did not change since last registration");
+        ruleIndexer.index();
+        profiler.stopDebug();
+        return;
+      }
+      // fingerprint is reset first, so that registration is fully done again at next startup if it fails
+      dbClient.internalPropertiesDao().saveAsEmpty(session, InternalProperties.RULES_FINGERPRINT);
+      session.commit();
+
       Map<RuleKey, RuleDto> allRules = loadRules(session);
+      Map<Integer, RuleDto> allRulesById = allRules.values().stream().collect(Collectors.uniqueIndex(RuleDto::getId, allRules.size()));
+      ListMultimap<Integer, RuleParamDto> allParamsByRuleId = loadRuleParams(session, allRulesById.keySet());
 
-      RulesDefinition.Context context = defLoader.load();
-      for (RulesDefinition.ExtendedRepository repoDef : getRepositories(context)) {
+      for (RulesDefinition.ExtendedRepository repoDef : repositories) {
         if (languages.get(repoDef.language()) != null) {
           for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
-            registerRule(ruleDef, allRules, session);
+            registerRule(ruleDef, allRules, allParamsByRuleId, session);
           }
           session.commit();
         }
       }
-      List<RuleDto> activeRules = processRemainingDbRules(allRules.values(), session);
+      List<RuleDto> activeRules = processRemainingDbRules(allRules.values(), allRulesById, session);
       List<ActiveRuleChange> changes = removeActiveRulesOnStillExistingRepositories(session, activeRules, context);
       session.commit();
 
       persistRepositories(session, context.repositories());
       ruleIndexer.index();
       activeRuleIndexer.index(changes);
+
+      dbClient.internalPropertiesDao().save(session, InternalProperties.RULES_FINGERPRINT, fingerprint);
+      session.commit();
       profiler.stopDebug();
     } finally {
       session.close();
     }
   }
 
+  /**
+   * Fingerprint of everything registration depends on: the definitions of the rules of the repositories
+   * which language is installed, and the version of SonarQube.
+   */
+  private String computeFingerprint(List<RulesDefinition.ExtendedRepository> repositories) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    putString(hasher, runtime.getApiVersion().toString());
+    for (RulesDefinition.ExtendedRepository repoDef : repositories) {
+      putString(hasher, repoDef.key());
+      putString(hasher, repoDef.language());
+      hasher.putBoolean(languages.get(repoDef.language()) != null);
+      if (repoDef instanceof RulesDefinition.Repository) {
+        putString(hasher, ((RulesDefinition.Repository) repoDef).name());
+      }
+      List<RulesDefinition.Rule> ruleDefs = new ArrayList<>(repoDef.rules());
+      ruleDefs.sort(Comparator.comparing(RulesDefinition.Rule::key));
+      hasher.putInt(ruleDefs.size());
+      for (RulesDefinition.Rule ruleDef : ruleDefs) {
+        putRule(hasher, ruleDef);
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  private static void putRule(Hasher hasher, RulesDefinition.Rule ruleDef) {
+    putString(hasher, ruleDef.key());
+    putString(hasher, ruleDef.name());
+    putString(hasher, ruleDef.htmlDescription());
+    putString(hasher, ruleDef.markdownDescription());
+    putString(hasher, ruleDef.internalKey());
+    putString(hasher, ruleDef.severity());
+    hasher.putBoolean(ruleDef.template());
+    putString(hasher, ruleDef.status().name());
+    putString(hasher, ruleDef.type().name());
+    DebtRemediationFunction debtRemediationFunction = ruleDef.debtRemediationFunction();
+    if (debtRemediationFunction == null) {
+      hasher.putBoolean(false);
+    } else {
+      hasher.putBoolean(true);
+      putString(hasher, debtRemediationFunction.type().name());
+      putString(hasher, debtRemediationFunction.gapMultiplier());
+      putString(hasher, debtRemediationFunction.baseEffort());
+    }
+    putString(hasher, ruleDef.gapDescription());
+    List<String> tags = new ArrayList<>(ruleDef.tags());
+    Collections.sort(tags);
+    hasher.putInt(tags.size());
+    tags.forEach(tag -> putString(hasher, tag));
+    List<RulesDefinition.Param> params = new ArrayList<>(ruleDef.params());
+    params.sort(Comparator.comparing(RulesDefinition.Param::key));
+    hasher.putInt(params.size());
+    for (RulesDefinition.Param param : params) {
+      putString(hasher, param.key());
+      putString(hasher, param.description());
+      putString(hasher, param.defaultValue());
+      putString(hasher, param.type().toString());
+    }
+  }
+
+  private static void putString(Hasher hasher, @Nullable String s) {
+    if (s == null) {
+      hasher.putInt(-1);
+    } else {
+      hasher.putInt(s.length()).putUnencodedChars(s);
+    }
+  }
+
   private void persistRepositories(DbSession dbSession, List<RulesDefinition.Repository> repositories) {
     dbClient.ruleRepositoryDao().truncate(dbSession);
     List<RuleRepositoryDto> dtos = repositories
@@ -133,7 +225,7 @@ public class RegisterRules implements Startable {
     // nothing
   }
 
-  private void registerRule(RulesDefinition.Rule ruleDef, Map<RuleKey, RuleDto> allRules, DbSession session) {
+  private void registerRule(RulesDefinition.Rule ruleDef, Map<RuleKey, RuleDto> allRules, ListMultimap<Integer, RuleParamDto> allParamsByRuleId, DbSession session) {
     RuleKey ruleKey = RuleKey.of(ruleDef.repository().key(), ruleDef.key());
 
     RuleDto rule = allRules.containsKey(ruleKey) ? allRules.remove(ruleKey) : createRuleDto(ruleDef, session);
@@ -155,7 +247,7 @@ public class RegisterRules implements Startable {
       update(session, rule);
     }
 
-    mergeParams(ruleDef, rule, session);
+    mergeParams(ruleDef, rule, allParamsByRuleId.get(rule.getId()), session);
   }
 
   private Map<RuleKey, RuleDto> loadRules(DbSession session) {
@@ -166,6 +258,14 @@ public class RegisterRules implements Startable {
     return rules;
   }
 
+  private ListMultimap<Integer, RuleParamDto> loadRuleParams(DbSession session, Collection<Integer> ruleIds) {
+    ListMultimap<Integer, RuleParamDto> params = ArrayListMultimap.create();
+    for (RuleParamDto param : dbClient.ruleDao().selectRuleParamsByRuleIds(session, new ArrayList<>(ruleIds))) {
+      params.put(param.getRuleId(), param);
+    }
+    return params;
+  }
+
   private List<RulesDefinition.ExtendedRepository> getRepositories(RulesDefinition.Context context) {
     List<RulesDefinition.ExtendedRepository> repositories = new ArrayList<>();
     for (RulesDefinition.Repository repoDef : context.repositories()) {
@@ -296,8 +396,7 @@ public class RegisterRules implements Startable {
     return changed;
   }
 
-  private void mergeParams(RulesDefinition.Rule ruleDef, RuleDto rule, DbSession session) {
-    List<RuleParamDto> paramDtos = dbClient.ruleDao().selectRuleParamsByRuleKey(session, rule.getKey());
+  private void mergeParams(RulesDefinition.Rule ruleDef, RuleDto rule, List<RuleParamDto> paramDtos, DbSession session) {
     Map<String, RuleParamDto> existingParamsByName = Maps.newHashMap();
 
     for (RuleParamDto paramDto : paramDtos) {
@@ -370,7 +469,7 @@ public class RegisterRules implements Startable {
     return changed;
   }
 
-  private List<RuleDto> processRemainingDbRules(Collection<RuleDto> existingRules, DbSession session) {
+  private List<RuleDto> processRemainingDbRules(Collection<RuleDto> existingRules, Map<Integer, RuleDto> allRulesById, DbSession session) {
     // custom rules check status of template, so they must be processed at the end
     List<RuleDto> customRules = newArrayList();
     List<RuleDto> removedRules = newArrayList();
@@ -386,9 +485,10 @@ public class RegisterRules implements Startable {
     for (RuleDto customRule : customRules) {
       Integer templateId = customRule.getTemplateId();
       checkNotNull(templateId, "Template id of the custom rule '%s' is null", customRule);
-      Optional<RuleDto> template = dbClient.ruleDao().selectById(templateId, session);
-      if (template.isPresent() && template.get().getStatus() != RuleStatus.REMOVED) {
-        if (updateCustomRuleFromTemplateRule(customRule, template.get())) {
+      // rules loaded at startup have been updated in place during registration
+      RuleDto template = allRulesById.get(templateId);
+      if (template != null && template.getStatus() != RuleStatus.REMOVED) {
+        if (updateCustomRuleFromTemplateRule(customRule, template)) {
           update(session, customRule);
         }
       } else {
@@ -0,0 +1,235 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source;
+
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+import static org.sonar.server.source.HtmlTextDecorator.AMPERSAND;
+import static org.sonar.server.source.HtmlTextDecorator.ENCODED_AMPERSAND;
+import static org.sonar.server.source.HtmlTextDecorator.ENCODED_HTML_CLOSING;
+import static org.sonar.server.source.HtmlTextDecorator.ENCODED_HTML_OPENING;
+import static org.sonar.server.source.HtmlTextDecorator.HTML_CLOSING;
+import static org.sonar.server.source.HtmlTextDecorator.HTML_OPENING;
+
+/**
+ * Decorates a single line of source, without any end of line characters. Produces the same HTML as
+ * {@link HtmlTextDecorator} but decorations are parsed into arrays of offsets rather than
+ * into lists of {@link OpeningHtmlTag}, and the line is written in a single pass.
+ * <p/>
+ * Highlighting is encoded as "startOffset,endOffset,cssClass;..." and symbols as "startOffset,endOffset,symbolId;...".
+ */
+class HtmlLineDecorator {
+
+  private static final char ENTITY_SEPARATOR = ';';
+  private static final char FIELD_SEPARATOR = ',';
+  private static final String CLOSING_TAG = "</span>";
+  private static final int ESTIMATED_TAG_LENGTH = 30;
+  private static final int SYMBOL = -1;
+
+  private final String highlighting;
+
+  // opening tags, sorted by start offset. For symbols, classStart is SYMBOL and classEnd is the symbol id.
+  private final int[] openingOffsets;
+  private final int[] classStarts;
+  private final int[] classEnds;
+  private int openingCount = 0;
+
+  // sorted offsets of closing tags
+  private final int[] closingOffsets;
+  private int closingCount = 0;
+
+  private HtmlLineDecorator(String highlighting, String symbols) {
+    this.highlighting = highlighting;
+    int capacity = countEntities(highlighting) + countEntities(symbols);
+    this.openingOffsets = new int[capacity];
+    this.classStarts = new int[capacity];
+    this.classEnds = new int[capacity];
+    this.closingOffsets = new int[capacity];
+  }
+
+  static String decorate(String line, @Nullable String highlighting, @Nullable String symbols) {
+    HtmlLineDecorator decorator = new HtmlLineDecorator(highlighting == null ? "" : highlighting, symbols == null ? "" : symbols);
+    decorator.loadHighlighting();
+    if (symbols != null) {
+      decorator.loadSymbols(symbols);
+    }
+    return decorator.decorate(line);
+  }
+
+  private void loadHighlighting() {
+    int index = 0;
+    while (index < highlighting.length()) {
+      int entityEnd = indexOf(highlighting, ENTITY_SEPARATOR, index);
+      checkNotEmpty(highlighting, index, entityEnd);
+      if (entityEnd > index) {
+        int startOffsetEnd = indexOf(highlighting, FIELD_SEPARATOR, index);
+        int endOffsetEnd = indexOf(highlighting, FIELD_SEPARATOR, startOffsetEnd + 1);
+        int startOffset = parseInt(highlighting, index, startOffsetEnd);
+        int endOffset = parseInt(highlighting, startOffsetEnd + 1, endOffsetEnd);
+        if (startOffset < endOffset) {
+          addTag(startOffset, endOffset, endOffsetEnd + 1, fieldEnd(highlighting, endOffsetEnd + 1, entityEnd));
+        }
+      }
+      index = entityEnd + 1;
+    }
+  }
+
+  private void loadSymbols(String symbols) {
+    int index = 0;
+    while (index < symbols.length()) {
+      int entityEnd = indexOf(symbols, ENTITY_SEPARATOR, index);
+      checkNotEmpty(symbols, index, entityEnd);
+      if (entityEnd > index) {
+        int startOffsetEnd = indexOf(symbols, FIELD_SEPARATOR, index);
+        int endOffsetEnd = indexOf(symbols, FIELD_SEPARATOR, startOffsetEnd + 1);
+        int startOffset = parseInt(symbols, index, startOffsetEnd);
+        int endOffset = parseInt(symbols, startOffsetEnd + 1, endOffsetEnd);
+        int symbolId = parseInt(symbols, endOffsetEnd + 1, fieldEnd(symbols, endOffsetEnd + 1, entityEnd));
+        addTag(startOffset, endOffset, SYMBOL, symbolId);
+      }
+      index = entityEnd + 1;
+    }
+  }
+
+  /**
+   * Opening tags with same offset keep their order of declaration
+   */
+  private void addTag(int startOffset, int endOffset, int classStart, int classEnd) {
+    int i = openingCount;
+    while (i > 0 && openingOffsets[i - 1] > startOffset) {
+      openingOffsets[i] = openingOffsets[i - 1];
+      classStarts[i] = classStarts[i - 1];
+      classEnds[i] = classEnds[i - 1];
+      i--;
+    }
+    openingOffsets[i] = startOffset;
+    classStarts[i] = classStart;
+    classEnds[i] = classEnd;
+    openingCount++;
+
+    closingOffsets[closingCount] = endOffset;
+    closingCount++;
+  }
+
+  private String decorate(String line) {
+    Arrays.sort(closingOffsets, 0, closingCount);
+    StringBuilder html = new StringBuilder(line.length() + openingCount * ESTIMATED_TAG_LENGTH);
+    int openingIndex = 0;
+    int closingIndex = 0;
+    int openTags = 0;
+    for (int offset = 0; offset < line.length(); offset++) {
+      while (closingIndex < closingCount && closingOffsets[closingIndex] == offset) {
+        if (openTags == 0) {
+          // symbol which does not end after its start, rejected as HtmlTextDecorator does
+          throw new IllegalArgumentException(String.format("No tag to close at offset %d of '%s'", offset, line));
+        }
+        html.append(CLOSING_TAG);
+        openTags--;
+        closingIndex++;
+      }
+      while (openingIndex < openingCount && openingOffsets[openingIndex] == offset) {
+        appendOpeningTag(openingIndex, html);
+        openTags++;
+        openingIndex++;
+      }
+      appendEscaped(line.charAt(offset), html);
+    }
+    for (int i = 0; i < openTags; i++) {
+      html.append(CLOSING_TAG);
+    }
+    return html.toString();
+  }
+
+  private void appendOpeningTag(int index, StringBuilder html) {
+    html.append("<span class=\"");
+    if (classStarts[index] == SYMBOL) {
+      html.append("sym-").append(classEnds[index]).append(" sym");
+    } else {
+      html.append(highlighting, classStarts[index], classEnds[index]);
+    }
+    html.append("\">");
+  }
+
+  private static void appendEscaped(char c, StringBuilder html) {
+    if (c == HTML_OPENING) {
+      html.append(ENCODED_HTML_OPENING);
+    } else if (c == HTML_CLOSING) {
+      html.append(ENCODED_HTML_CLOSING);
+    } else if (c == AMPERSAND) {
+      html.append(ENCODED_AMPERSAND);
+    } else {
+      html.append(c);
+    }
+  }
+
+  private static int countEntities(String s) {
+    int count = 1;
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) == ENTITY_SEPARATOR) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Like {@link DecorationDataHolder}, trailing empty entities are ignored but other empty entities are invalid
+   */
+  private static void checkNotEmpty(String s, int entityStart, int entityEnd) {
+    if (entityEnd == entityStart) {
+      for (int i = entityEnd; i < s.length(); i++) {
+        if (s.charAt(i) != ENTITY_SEPARATOR) {
+          throw new NumberFormatException(String.format("Missing number at index %d of '%s'", entityStart, s));
+        }
+      }
+    }
+  }
+
+  /**
+   * Same as {@link String#indexOf(int, int)}, except that length of string is returned if character is not found
+   */
+  private static int indexOf(String s, char c, int fromIndex) {
+    int index = s.indexOf(c, fromIndex);
+    return index < 0 ? s.length() : index;
+  }
+
+  /**
+   * Additional fields of an entity are ignored
+   */
+  private static int fieldEnd(String s, int fieldStart, int entityEnd) {
+    return Math.min(indexOf(s, FIELD_SEPARATOR, fieldStart), entityEnd);
+  }
+
+  private static int parseInt(String s, int start, int end) {
+    if (start >= end) {
+      throw new NumberFormatException(String.format("Missing number at index %d of '%s'", start, s));
+    }
+    int value = 0;
+    for (int i = start; i < end; i++) {
+      int digit = Character.digit(s.charAt(i), 10);
+      if (digit < 0) {
+        throw new NumberFormatException(String.format("Invalid number at index %d of '%s'", i, s));
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+}
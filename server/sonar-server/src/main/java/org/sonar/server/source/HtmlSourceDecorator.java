@@ -26,11 +26,16 @@ import org.apache.commons.lang.StringUtils;
 
 public class HtmlSourceDecorator {
 
+  private static final char[] END_OF_LINE_CHARS = {HtmlTextDecorator.CR_END_OF_LINE, HtmlTextDecorator.LF_END_OF_LINE};
+
   @CheckForNull
   public String getDecoratedSourceAsHtml(@Nullable String sourceLine, @Nullable String highlighting, @Nullable String symbols) {
     if (sourceLine == null) {
       return null;
     }
+    if (StringUtils.containsNone(sourceLine, END_OF_LINE_CHARS)) {
+      return HtmlLineDecorator.decorate(sourceLine, StringUtils.trimToNull(highlighting), StringUtils.trimToNull(symbols));
+    }
     DecorationDataHolder decorationDataHolder = new DecorationDataHolder();
     if (StringUtils.isNotBlank(highlighting)) {
       decorationDataHolder.loadSyntaxHighlightingData(highlighting);
@@ -20,7 +20,9 @@
 package org.sonar.server.user;
 
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.UnauthorizedException;
 
@@ -111,6 +113,17 @@ public abstract class AbstractUserSession implements UserSession {
     return this;
   }
 
+  @Override
+  public Set<String> keepAuthorizedComponentUuids(String permission, Collection<String> componentUuids) {
+    Set<String> authorizedUuids = new LinkedHashSet<>();
+    for (String componentUuid : componentUuids) {
+      if (hasComponentUuidPermission(permission, componentUuid)) {
+        authorizedUuids.add(componentUuid);
+      }
+    }
+    return authorizedUuids;
+  }
+
   public static ForbiddenException insufficientPrivilegesException() {
     return INSUFFICIENT_PRIVILEGES_EXCEPTION;
   }
@@ -19,7 +19,9 @@
  */
 package org.sonar.server.user;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
@@ -126,6 +128,11 @@ public final class DoPrivileged {
       public boolean hasComponentUuidPermission(String permission, String componentUuid) {
         return true;
       }
+
+      @Override
+      public Set<String> keepAuthorizedComponentUuids(String permission, Collection<String> componentUuids) {
+        return new LinkedHashSet<>(componentUuids);
+      }
     }
 
     private void start() {
@@ -25,6 +25,7 @@ import com.google.common.collect.SetMultimap;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -36,6 +37,7 @@ import org.sonar.api.security.DefaultGroups;
 import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ResourceDao;
 import org.sonar.db.component.ResourceDto;
 import org.sonar.db.user.GroupDto;
@@ -213,13 +215,44 @@ public class ServerUserSession extends AbstractUserSession {
         return false;
       }
       projectUuid = project.getProjectUuid();
-    }
-    boolean hasComponentPermission = hasProjectPermissionByUuid(permission, projectUuid);
-    if (hasComponentPermission) {
       projectUuidByComponentUuid.put(componentUuid, projectUuid);
-      return true;
     }
-    return false;
+    return hasProjectPermissionByUuid(permission, projectUuid);
+  }
+
+  @Override
+  public Set<String> keepAuthorizedComponentUuids(String permission, Collection<String> componentUuids) {
+    if (isRoot() || hasPermission(permission)) {
+      return new LinkedHashSet<>(componentUuids);
+    }
+
+    loadProjectUuids(componentUuids);
+    Set<String> authorizedUuids = new LinkedHashSet<>();
+    for (String componentUuid : componentUuids) {
+      String projectUuid = projectUuidByComponentUuid.get(componentUuid);
+      if (projectUuid != null && hasProjectPermissionByUuid(permission, projectUuid)) {
+        authorizedUuids.add(componentUuid);
+      }
+    }
+    return authorizedUuids;
+  }
+
+  /**
+   * Loads the project uuids of the components that are not already known, in a single (partitioned) request
+   */
+  private void loadProjectUuids(Collection<String> componentUuids) {
+    List<String> unknownUuids = componentUuids.stream()
+      .filter(uuid -> !projectUuidByComponentUuid.containsKey(uuid))
+      .distinct()
+      .collect(Collectors.toList());
+    if (unknownUuids.isEmpty()) {
+      return;
+    }
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      for (ComponentDto component : dbClient.componentDao().selectByUuids(dbSession, unknownUuids)) {
+        projectUuidByComponentUuid.put(component.uuid(), component.projectUuid());
+      }
+    }
   }
 
   // To keep private
@@ -158,6 +158,11 @@ public class ThreadLocalUserSession implements UserSession {
     return get().hasComponentUuidPermission(permission, componentUuid);
   }
 
+  @Override
+  public Set<String> keepAuthorizedComponentUuids(String permission, Collection<String> componentUuids) {
+    return get().keepAuthorizedComponentUuids(permission, componentUuids);
+  }
+
   @Override
   public UserSession checkOrganizationPermission(String organizationUuid, String permission) {
     get().checkOrganizationPermission(organizationUuid, permission);
@@ -135,4 +135,12 @@ public interface UserSession {
    * If the component doesn't exist, return false
    */
   boolean hasComponentUuidPermission(String permission, String componentUuid);
+
+  /**
+   * Filters the component uuids on which the user has the given project permission, with the same
+   * rules as {@link #hasComponentUuidPermission(String, String)}. Order of the given uuids is kept.
+   * Should be preferred to calling {@link #hasComponentUuidPermission(String, String)} in a loop
+   * as permissions are checked for the whole collection at once.
+   */
+  Set<String> keepAuthorizedComponentUuids(String permission, Collection<String> componentUuids);
 }
@@ -121,6 +121,19 @@ public class GlobalActionTest {
     request.execute().assertJson(getClass(), "return_only_license_settings_without_scan_but_with_preview_permission.json");
   }
 
+  @Test
+  public void do_not_return_entity_tag_when_secured_settings_are_returned() throws Exception {
+    userSessionRule.setGlobalPermissions(SCAN_EXECUTION);
+
+    when(propertiesDao.selectGlobalProperties(session)).thenReturn(newArrayList(
+      new PropertyDto().setKey("foo").setValue("bar"),
+      new PropertyDto().setKey("foo.secured").setValue("1234")
+      ));
+
+    // scanners must not store secured settings in their cache
+    tester.newGetRequest("batch", "global").execute().assertHeader("ETag", null);
+  }
+
   @Test
   public void access_forbidden_without_preview_permission_and_not_logged() throws Exception {
     userSessionRule.setGlobalPermissions();
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.batch;
 
+import com.google.common.collect.ImmutableMap;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -87,4 +88,51 @@ public class ProjectActionTest {
     WsProjectResponse wsProjectResponse = WsProjectResponse.parseFrom(result.getInputStream());
     assertThat(wsProjectResponse.getFileDataByModuleAndPath()).isEmpty();
   }
+
+  @Test
+  public void return_not_modified_when_etag_matches() throws Exception {
+    ProjectRepositories projectRepositories = new ProjectRepositories().addFileData("module-1", "src/Foo.java", new FileData("hash", "rev"));
+    when(projectDataLoader.load(any(ProjectDataQuery.class))).thenReturn(projectRepositories);
+
+    TestResponse first = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .execute();
+    String etag = first.getHeader("ETag");
+    assertThat(etag).isNotEmpty();
+    assertThat(first.getStatus()).isNotEqualTo(304);
+
+    TestResponse second = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .setHeader("If-None-Match", etag)
+      .execute();
+    assertThat(second.getStatus()).isEqualTo(304);
+    assertThat(second.getHeader("ETag")).isEqualTo(etag);
+    assertThat(second.getInput()).isEmpty();
+
+    TestResponse other = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .setHeader("If-None-Match", "\"outdated\"")
+      .execute();
+    assertThat(other.getStatus()).isNotEqualTo(304);
+    assertThat(WsProjectResponse.parseFrom(other.getInputStream()).getFileDataByModuleAndPath()).containsKey("module-1");
+  }
+
+  @Test
+  public void do_not_return_etag_when_secured_settings_are_returned() throws Exception {
+    ProjectRepositories projectRepositories = new ProjectRepositories()
+      .addSettings("module-1", ImmutableMap.of("sonar.jira.login.secured", "john"));
+    when(projectDataLoader.load(any(ProjectDataQuery.class))).thenReturn(projectRepositories);
+
+    TestResponse response = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .execute();
+
+    // scanners must not store secured settings in their cache
+    assertThat(response.getHeader("ETag")).isNull();
+    assertThat(WsProjectResponse.parseFrom(response.getInputStream()).getSettingsByModule()).containsKey("module-1");
+  }
 }
@@ -0,0 +1,108 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.queue.CeMemoryBudget.HEAP_BYTES_PER_REPORT_BYTE;
+import static org.sonar.server.computation.queue.CeMemoryBudget.MAX_CONSECUTIVE_BYPASSES;
+import static org.sonar.server.computation.queue.CeMemoryBudget.MIN_TASK_HEAP_BYTES;
+
+public class CeMemoryBudgetTest {
+
+  private static final long BUDGET = 1_000L;
+
+  private CeMemoryBudget underTest = new CeMemoryBudget(BUDGET);
+
+  @Test
+  public void estimate_is_proportional_to_report_size_with_a_minimum() {
+    assertThat(CeMemoryBudget.estimateHeapBytes(0L)).isEqualTo(MIN_TASK_HEAP_BYTES);
+    assertThat(CeMemoryBudget.estimateHeapBytes(10L)).isEqualTo(MIN_TASK_HEAP_BYTES);
+    assertThat(CeMemoryBudget.estimateHeapBytes(100_000_000L)).isEqualTo(100_000_000L * HEAP_BYTES_PER_REPORT_BYTE);
+  }
+
+  @Test
+  public void task_is_admitted_if_it_fits_in_budget() {
+    assertThat(underTest.tryReserve("T1", 600L, false)).isTrue();
+    assertThat(underTest.tryReserve("T2", 400L, false)).isTrue();
+    assertThat(underTest.tryReserve("T3", 1L, false)).isFalse();
+
+    assertThat(underTest.getReservedBytes()).isEqualTo(1_000L);
+  }
+
+  @Test
+  public void single_task_is_always_admitted_even_if_it_does_not_fit_in_budget() {
+    assertThat(underTest.tryReserve("T1", 5_000L, false)).isTrue();
+    assertThat(underTest.tryReserve("T2", 1L, false)).isFalse();
+  }
+
+  @Test
+  public void release_frees_memory_reserved_by_task() {
+    underTest.tryReserve("T1", 600L, false);
+    underTest.tryReserve("T2", 400L, false);
+
+    underTest.release("T1");
+    assertThat(underTest.getReservedBytes()).isEqualTo(400L);
+    assertThat(underTest.tryReserve("T3", 600L, false)).isTrue();
+
+    // releasing twice or a task which did not reserve anything has no effect
+    underTest.release("T1");
+    underTest.release("unknown");
+    assertThat(underTest.getReservedBytes()).isEqualTo(1_000L);
+  }
+
+  @Test
+  public void number_of_tasks_admitted_before_an_older_refused_task_is_limited() {
+    underTest.tryReserve("T1", 1L, false);
+    for (int i = 0; i < MAX_CONSECUTIVE_BYPASSES; i++) {
+      assertThat(underTest.tryReserve("B" + i, 1L, true)).isTrue();
+    }
+    assertThat(underTest.tryReserve("B", 1L, true)).isFalse();
+
+    // admitting the oldest task resets the counter
+    assertThat(underTest.tryReserve("T2", 1L, false)).isTrue();
+    assertThat(underTest.tryReserve("B", 1L, true)).isTrue();
+  }
+
+  @Test
+  public void live_heap_peak_is_the_max_heap_used_after_gc_while_task_is_in_progress() {
+    underTest.onGarbageCollection(500L);
+    underTest.tryReserve("T1", 1L, false);
+    assertThat(underTest.getLiveHeapPeak("T1")).isNull();
+
+    underTest.onGarbageCollection(300L);
+    underTest.tryReserve("T2", 1L, false);
+    underTest.onGarbageCollection(200L);
+    assertThat(underTest.getLiveHeapPeak("T1")).isEqualTo(300L);
+    assertThat(underTest.getLiveHeapPeak("T2")).isEqualTo(200L);
+
+    underTest.release("T1");
+    assertThat(underTest.getLiveHeapPeak("T1")).isNull();
+    assertThat(underTest.getLiveHeapPeak("T2")).isEqualTo(200L);
+  }
+
+  @Test
+  public void stop_does_not_fail_if_not_started() {
+    underTest.start();
+    underTest.stop();
+    underTest.stop();
+  }
+}
@@ -20,6 +20,7 @@
 package org.sonar.server.computation.queue;
 
 import com.google.common.base.Optional;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.List;
@@ -48,6 +49,8 @@ import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.guava.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -66,7 +69,8 @@ public class InternalCeQueueImplTest {
 
   UuidFactory uuidFactory = UuidFactoryImpl.INSTANCE;
   CEQueueStatus queueStatus = new CEQueueStatusImpl(dbTester.getDbClient());
-  InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus);
+  CeMemoryBudget memoryBudget = new CeMemoryBudget(2 * CeMemoryBudget.MIN_TASK_HEAP_BYTES);
+  InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, memoryBudget);
 
   @Test
   public void submit_returns_task_populated_from_CeTaskSubmit_and_creates_CeQueue_row() {
@@ -137,6 +141,7 @@ public class InternalCeQueueImplTest {
   public void test_remove() {
     CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
     Optional<CeTask> peek = underTest.peek();
+    memoryBudget.onGarbageCollection(123_456L);
     underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, null, null);
 
     // queue is empty
@@ -149,6 +154,12 @@ public class InternalCeQueueImplTest {
     assertThat(history.get().getStatus()).isEqualTo(CeActivityDto.Status.SUCCESS);
     assertThat(history.get().getIsLast()).isTrue();
     assertThat(history.get().getAnalysisUuid()).isNull();
+    assertThat(history.get().getCeHeapPeakBytes()).isEqualTo(123_456L);
+
+    // memory reserved by task is released
+    assertThat(memoryBudget.getReservedBytes()).isZero();
+    // task is given back to the queue
+    assertThat(dbTester.getDbClient().ceQueueDao().selectByUuid(dbTester.getSession(), task.getUuid()).get().getStatus()).isEqualTo(CeQueueDto.Status.PENDING);
   }
 
   @Test
@@ -238,6 +249,59 @@ public class InternalCeQueueImplTest {
     assertThat(peek.isPresent()).isFalse();
   }
 
+  @Test
+  public void peek_skips_task_which_does_not_fit_in_memory_budget() throws Exception {
+    CeTask task1 = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask bigTask = submit(CeTaskTypes.REPORT, "PROJECT_2");
+    insertReport(bigTask, CeMemoryBudget.MIN_TASK_HEAP_BYTES / CeMemoryBudget.HEAP_BYTES_PER_REPORT_BYTE + 1);
+    CeTask task3 = submit(CeTaskTypes.REPORT, "PROJECT_3");
+
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task1.getUuid());
+    // big task does not fit in what remains of the budget
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task3.getUuid());
+    assertThat(underTest.peek().isPresent()).isFalse();
+
+    underTest.remove(task1, CeActivityDto.Status.SUCCESS, null, null);
+    underTest.remove(task3, CeActivityDto.Status.SUCCESS, null, null);
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(bigTask.getUuid());
+  }
+
+  @Test
+  public void peek_does_not_skip_older_task_of_same_component_which_does_not_fit_in_memory_budget() throws Exception {
+    CeTask task1 = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask bigTask = submit(CeTaskTypes.REPORT, "PROJECT_2");
+    insertReport(bigTask, CeMemoryBudget.MIN_TASK_HEAP_BYTES / CeMemoryBudget.HEAP_BYTES_PER_REPORT_BYTE + 1);
+    CeTask newerTaskOfSameProject = submit(CeTaskTypes.REPORT, "PROJECT_2");
+
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task1.getUuid());
+    // big task does not fit in what remains of the budget and the newer task of the same project must wait for it
+    assertThat(underTest.peek().isPresent()).isFalse();
+
+    underTest.remove(task1, CeActivityDto.Status.SUCCESS, null, null);
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(bigTask.getUuid());
+    assertThat(underTest.peek().isPresent()).isFalse();
+    underTest.remove(bigTask, CeActivityDto.Status.SUCCESS, null, null);
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(newerTaskOfSameProject.getUuid());
+  }
+
+  @Test
+  public void peek_releases_memory_and_gives_back_task_to_queue_if_it_fails() {
+    CEQueueStatus failingQueueStatus = mock(CEQueueStatus.class);
+    doThrow(new IllegalStateException("faking failure")).when(failingQueueStatus).addInProgress();
+    underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, failingQueueStatus, memoryBudget);
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
+
+    try {
+      underTest.peek();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("faking failure");
+    }
+    assertThat(memoryBudget.getReservedBytes()).isZero();
+    // task is given back to the queue
+    assertThat(dbTester.getDbClient().ceQueueDao().selectByUuid(dbTester.getSession(), task.getUuid()).get().getStatus()).isEqualTo(CeQueueDto.Status.PENDING);
+  }
+
   @Test
   public void peek_nothing_if_paused() throws Exception {
     submit(CeTaskTypes.REPORT, "PROJECT_1");
@@ -336,6 +400,10 @@ public class InternalCeQueueImplTest {
     return ComponentTesting.newProjectDto(uuid).setName("name_" + uuid).setKey("key_" + uuid);
   }
 
+  private void insertReport(CeTask task, long size) {
+    dbTester.getDbClient().ceTaskInputDao().insert(session, task.getUuid(), new ByteArrayInputStream(new byte[(int) size]));
+  }
+
   private CeTask submit(String reportType, String componentUuid) {
     return underTest.submit(createTaskSubmit(reportType, componentUuid, null));
   }
@@ -21,6 +21,8 @@ package org.sonar.server.computation.task.projectanalysis.component;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -71,6 +73,7 @@ public class ComponentRootBuilderTest {
   @Rule
   public ScannerComponentProvider scannerComponentProvider = new ScannerComponentProvider();
 
+  private Interner<String> stringInterner = Interners.newStrongInterner();
   private ComponentRootBuilder underTest = new ComponentRootBuilder(NO_BRANCH, SIMPLE_UUID_GENERATOR, scannerComponentProvider, NO_COMPONENT_DTO_FOR_PROJECT, NO_BASEANALYSIS);
 
   @Test
@@ -348,6 +351,28 @@ public class ComponentRootBuilderTest {
 
   }
 
+  @Test
+  public void files_with_same_language_and_test_flag_share_the_same_FileAttributes() {
+    ScannerReport.Component project = newBuilder().setType(PROJECT).setRef(1).addChildRef(2).build();
+    scannerComponentProvider.add(newBuilder().setRef(2).setType(MODULE).setKey(MODULE_KEY).addChildRef(3));
+    scannerComponentProvider.add(newBuilder().setRef(3).setType(DIRECTORY).setPath(DIRECTORY_PATH).addChildRef(4).addChildRef(5).addChildRef(6).addChildRef(7));
+    scannerComponentProvider.add(newBuilder().setRef(4).setType(FILE).setPath("file 4").setLanguage("java"));
+    scannerComponentProvider.add(newBuilder().setRef(5).setType(FILE).setPath("file 5").setLanguage("java"));
+    scannerComponentProvider.add(newBuilder().setRef(6).setType(FILE).setPath("file 6").setLanguage("java").setIsTest(true));
+    scannerComponentProvider.add(newBuilder().setRef(7).setType(FILE).setPath("file 7").setLanguage("js"));
+
+    Component root = underTest.build(project, PROJECT_KEY);
+    Map<Integer, Component> componentByRef = indexComponentByRef(root);
+    FileAttributes fileAttributes = componentByRef.get(4).getFileAttributes();
+    assertThat(fileAttributes.getLanguageKey()).isEqualTo("java");
+    assertThat(fileAttributes.isUnitTest()).isFalse();
+    assertThat(componentByRef.get(5).getFileAttributes()).isSameAs(fileAttributes);
+    assertThat(componentByRef.get(6).getFileAttributes().getLanguageKey()).isEqualTo("java");
+    assertThat(componentByRef.get(6).getFileAttributes().isUnitTest()).isTrue();
+    assertThat(componentByRef.get(7).getFileAttributes().getLanguageKey()).isEqualTo("js");
+    assertThat(componentByRef.get(7).getFileAttributes().isUnitTest()).isFalse();
+  }
+
   @Test
   public void description_of_project_module_directory_and_file_is_null_when_unset_in_Scanner_Component() {
     ScannerReport.Component project = newBuilder().setType(PROJECT).setRef(1).addChildRef(2).build();
@@ -411,7 +436,7 @@ public class ComponentRootBuilderTest {
       .setRef(ref)
       .setVersion(version)
       .setPath(path)
-      .build());
+      .build(), stringInterner);
     assertThat(reportAttributes.getRef()).isEqualTo(ref);
     assertThat(reportAttributes.getPath()).isEqualTo(path);
     assertThat(reportAttributes.getVersion()).isEqualTo(version);
@@ -419,25 +444,25 @@ public class ComponentRootBuilderTest {
 
   @Test
   public void createOtherReportAttributes_sets_null_version_when_unset_in_Scanner_Component() {
-    ReportAttributes reportAttributes = createOtherReportAttributes(newBuilder().build());
+    ReportAttributes reportAttributes = createOtherReportAttributes(newBuilder().build(), stringInterner);
     assertThat(reportAttributes.getVersion()).isNull();
   }
 
   @Test
   public void createOtherReportAttributes_sets_null_version_when_empty_in_Scanner_Component() {
-    ReportAttributes reportAttributes = createOtherReportAttributes(newBuilder().setVersion("").build());
+    ReportAttributes reportAttributes = createOtherReportAttributes(newBuilder().setVersion("").build(), stringInterner);
     assertThat(reportAttributes.getVersion()).isNull();
   }
 
   @Test
   public void createOtherReportAttributes_sets_null_path_when_unset_in_Scanner_Component() {
-    ReportAttributes reportAttributes = createOtherReportAttributes(newBuilder().build());
+    ReportAttributes reportAttributes = createOtherReportAttributes(newBuilder().build(), stringInterner);
     assertThat(reportAttributes.getPath()).isNull();
   }
 
   @Test
   public void createOtherReportAttributes_sets_null_path_when_empty_in_Scanner_Component() {
-    ReportAttributes reportAttributes = createOtherReportAttributes(newBuilder().setPath("").build());
+    ReportAttributes reportAttributes = createOtherReportAttributes(newBuilder().setPath("").build(), stringInterner);
     assertThat(reportAttributes.getPath()).isNull();
   }
 
@@ -291,4 +291,17 @@ public class MapBasedRawMeasureRepositoryTest {
     assertThat(measures.iterator().next()).isSameAs(devMeasure);
   }
 
+  @Test
+  public void developer_and_non_developer_measures_of_same_metric_are_stored_side_by_side() {
+    Measure devMeasure = Measure.newMeasureBuilder().forDeveloper(SOME_DEVELOPER).createNoValue();
+
+    underTest.add(FILE_COMPONENT, metric1, SOME_MEASURE);
+    underTest.add(FILE_COMPONENT, metric1, devMeasure);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric1).get()).isSameAs(SOME_MEASURE);
+    assertThat(underTest.getRawMeasures(FILE_COMPONENT, metric1)).containsOnly(SOME_MEASURE, devMeasure);
+    assertThat(underTest.getRawMeasures(FILE_COMPONENT).get(METRIC_KEY_1)).containsOnly(SOME_MEASURE, devMeasure);
+    assertThat(underTest.getRawMeasures(FILE_COMPONENT, metric2)).isEmpty();
+  }
+
 }
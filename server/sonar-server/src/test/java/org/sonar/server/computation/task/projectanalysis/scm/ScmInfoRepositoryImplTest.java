@@ -46,6 +46,8 @@ import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.ViewsComponent;
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepositoryImpl;
@@ -54,6 +56,8 @@ import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepos
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.guava.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.sonar.api.utils.log.LoggerLevel.TRACE;
 import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
@@ -63,6 +67,9 @@ public class ScmInfoRepositoryImplTest {
 
   static final int FILE_REF = 1;
   static final Component FILE = builder(Component.Type.FILE, FILE_REF).setKey("FILE_KEY").setUuid("FILE_UUID").build();
+  static final int FILE_2_REF = 2;
+  static final Component FILE_2 = builder(Component.Type.FILE, FILE_2_REF).setKey("FILE_2_KEY").setUuid("FILE_2_UUID").build();
+  static final Component PROJECT = builder(Component.Type.PROJECT, 3).addChildren(FILE, FILE_2).build();
   static final long DATE_1 = 123456789L;
   static final long DATE_2 = 1234567810L;
 
@@ -82,11 +89,13 @@ public class ScmInfoRepositoryImplTest {
   public AnalysisMetadataHolderRule analysisMetadataHolder = new AnalysisMetadataHolderRule();
   @Rule
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule().setRoot(PROJECT);
 
   DbClient dbClient = dbTester.getDbClient();
 
   ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(reportReader, analysisMetadataHolder, dbClient,
-    new SourceHashRepositoryImpl(new SourceLinesRepositoryImpl(reportReader)));
+    new SourceHashRepositoryImpl(new SourceLinesRepositoryImpl(reportReader)), treeRootHolder);
 
   @Test
   public void read_from_report() throws Exception {
@@ -210,11 +219,12 @@ public class ScmInfoRepositoryImplTest {
     AnalysisMetadataHolder analysisMetadataHolder = mock(AnalysisMetadataHolder.class);
     DbClient dbClient = mock(DbClient.class);
     SourceHashRepository sourceHashRepository = mock(SourceHashRepository.class);
-    ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(batchReportReader, analysisMetadataHolder, dbClient, sourceHashRepository);
+    TreeRootHolder treeRootHolder = mock(TreeRootHolder.class);
+    ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(batchReportReader, analysisMetadataHolder, dbClient, sourceHashRepository, treeRootHolder);
 
     assertThat(underTest.getScmInfo(component)).isAbsent();
 
-    verifyNoMoreInteractions(batchReportReader, analysisMetadataHolder, dbClient, sourceHashRepository);
+    verifyNoMoreInteractions(batchReportReader, analysisMetadataHolder, dbClient, sourceHashRepository, treeRootHolder);
   }
 
   @Test
@@ -242,7 +252,54 @@ public class ScmInfoRepositoryImplTest {
     assertThat(logTester.logs(TRACE)).isEmpty();
   }
 
+  @Test
+  public void read_scm_info_of_all_unchanged_files_from_db_at_once() {
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    addFileSourceInDb(FILE, "henry", DATE_1, "rev-1", computeSourceHash(1));
+    addFileSourceInDb(FILE_2, "john", DATE_2, "rev-2", computeSourceHash(1));
+    addFileSourceInReport(FILE_REF, 1);
+    addFileSourceInReport(FILE_2_REF, 1);
+    addCopyFromPreviousChangesetInReport(FILE_REF);
+    addCopyFromPreviousChangesetInReport(FILE_2_REF);
+
+    assertThat(underTest.getScmInfo(FILE).get().getLatestChangeset().getAuthor()).isEqualTo("henry");
+    // SCM info of FILE_2 has already been loaded
+    dbTester.executeUpdateSql("delete from file_sources");
+    dbTester.commit();
+    assertThat(underTest.getScmInfo(FILE_2).get().getLatestChangeset().getAuthor()).isEqualTo("john");
+  }
+
+  @Test
+  public void read_changesets_of_each_file_once_when_loading_unchanged_files_from_db() {
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    BatchReportReader spiedReportReader = spy(reportReader);
+    underTest = new ScmInfoRepositoryImpl(spiedReportReader, analysisMetadataHolder, dbClient,
+      new SourceHashRepositoryImpl(new SourceLinesRepositoryImpl(reportReader)), treeRootHolder);
+    addFileSourceInDb(FILE, "henry", DATE_1, "rev-1", computeSourceHash(1));
+    addFileSourceInReport(FILE_REF, 1);
+    addCopyFromPreviousChangesetInReport(FILE_REF);
+    reportReader.putChangesets(ScannerReport.Changesets.newBuilder()
+      .setComponentRef(FILE_2_REF)
+      .addChangeset(ScannerReport.Changesets.Changeset.newBuilder()
+        .setAuthor("john")
+        .setDate(DATE_2)
+        .setRevision("rev-2")
+        .build())
+      .addChangesetIndexByLine(0)
+      .build());
+
+    assertThat(underTest.getScmInfo(FILE).get().getLatestChangeset().getAuthor()).isEqualTo("henry");
+    assertThat(underTest.getScmInfo(FILE_2).get().getLatestChangeset().getAuthor()).isEqualTo("john");
+
+    verify(spiedReportReader).readChangesets(FILE_REF);
+    verify(spiedReportReader).readChangesets(FILE_2_REF);
+  }
+
   private void addFileSourceInDb(@Nullable String author, @Nullable Long date, @Nullable String revision, String srcHash) {
+    addFileSourceInDb(FILE, author, date, revision, srcHash);
+  }
+
+  private void addFileSourceInDb(Component file, @Nullable String author, @Nullable Long date, @Nullable String revision, String srcHash) {
     DbFileSources.Data.Builder fileDataBuilder = DbFileSources.Data.newBuilder();
     DbFileSources.Line.Builder builder = fileDataBuilder.addLinesBuilder()
       .setLine(1);
@@ -256,15 +313,19 @@ public class ScmInfoRepositoryImplTest {
       builder.setScmRevision(revision);
     }
     dbTester.getDbClient().fileSourceDao().insert(new FileSourceDto()
-      .setFileUuid(FILE.getUuid())
+      .setFileUuid(file.getUuid())
       .setProjectUuid("PROJECT_UUID")
       .setSourceData(fileDataBuilder.build())
       .setSrcHash(srcHash));
   }
 
   private void addCopyFromPreviousChangesetInReport() {
+    addCopyFromPreviousChangesetInReport(FILE_REF);
+  }
+
+  private void addCopyFromPreviousChangesetInReport(int fileRef) {
     reportReader.putChangesets(ScannerReport.Changesets.newBuilder()
-      .setComponentRef(FILE_REF)
+      .setComponentRef(fileRef)
       .setCopyFromPrevious(true)
       .build());
   }
@@ -287,9 +348,13 @@ public class ScmInfoRepositoryImplTest {
   }
 
   private void addFileSourceInReport(int lineCount) {
-    reportReader.putFileSourceLines(FILE_REF, generateLines(lineCount));
+    addFileSourceInReport(FILE_REF, lineCount);
+  }
+
+  private void addFileSourceInReport(int fileRef, int lineCount) {
+    reportReader.putFileSourceLines(fileRef, generateLines(lineCount));
     reportReader.putComponent(ScannerReport.Component.newBuilder()
-      .setRef(FILE_REF)
+      .setRef(fileRef)
       .setLines(lineCount)
       .build());
   }
@@ -20,6 +20,9 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -38,6 +41,7 @@ import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.server.computation.task.projectanalysis.component.VisitException;
 import org.sonar.server.computation.task.projectanalysis.duplication.Duplicate;
 import org.sonar.server.computation.task.projectanalysis.duplication.Duplication;
 import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepositoryRule;
@@ -50,6 +54,7 @@ import org.sonar.server.computation.task.step.ComputationStep;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -119,6 +124,87 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(data.getLines(1).getSource()).isEqualTo("line2");
   }
 
+  @Test
+  public void persist_sources_of_many_files() {
+    int nbFiles = 50;
+    ReportComponent.Builder moduleBuilder = ReportComponent.builder(Component.Type.MODULE, 2).setUuid("MODULE").setKey("MODULE_KEY");
+    ScannerReport.Component.Builder module = ScannerReport.Component.newBuilder().setRef(2).setType(ComponentType.MODULE);
+    for (int ref = 10; ref < 10 + nbFiles; ref++) {
+      moduleBuilder.addChildren(ReportComponent.builder(Component.Type.FILE, ref).setUuid("FILE_" + ref).setKey("MODULE_KEY:src/Foo" + ref + ".java").build());
+      module.addChildRef(ref);
+      reportReader.putComponent(ScannerReport.Component.newBuilder().setRef(ref).setType(ComponentType.FILE).setLines(ref).build());
+      for (int line = 1; line <= ref; line++) {
+        fileSourceRepository.addLine(ref, "file" + ref + "_line" + line);
+      }
+    }
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(moduleBuilder.build()).build());
+    reportReader.putComponent(ScannerReport.Component.newBuilder().setRef(1).setType(ComponentType.PROJECT).addChildRef(2).build());
+    reportReader.putComponent(module.build());
+
+    underTest.execute();
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(nbFiles);
+    for (int ref = 10; ref < 10 + nbFiles; ref++) {
+      FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, "FILE_" + ref);
+      assertThat(fileSourceDto.getProjectUuid()).isEqualTo(PROJECT_UUID);
+      DbFileSources.Data data = fileSourceDto.getSourceData();
+      assertThat(data.getLinesCount()).isEqualTo(ref);
+      assertThat(data.getLines(ref - 1).getSource()).isEqualTo("file" + ref + "_line" + ref);
+    }
+
+    // nothing changed, nothing is updated
+    when(system2.now()).thenReturn(NOW + 1000L);
+    underTest.execute();
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(nbFiles);
+    for (int ref = 10; ref < 10 + nbFiles; ref++) {
+      assertThat(dbClient.fileSourceDao().selectSourceByFileUuid(session, "FILE_" + ref).getUpdatedAt()).isEqualTo(NOW);
+    }
+  }
+
+  @Test
+  public void stop_pipeline_promptly_when_a_file_fails() throws InterruptedException {
+    ExecutorService encoders = Executors.newSingleThreadExecutor();
+    ExecutorService writer = Executors.newSingleThreadExecutor();
+    // the encoding thread is busy until the pipeline is closed, so encodings of the valid files are still pending
+    // when the failing file is visited
+    CountDownLatch neverReleased = new CountDownLatch(1);
+    encoders.execute(() -> {
+      try {
+        neverReleased.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, fileSourceRepository, scmInfoRepository, duplicationRepository,
+      () -> encoders, () -> writer);
+
+    int nbFiles = 10;
+    int failingRef = 10 + nbFiles;
+    ReportComponent.Builder moduleBuilder = ReportComponent.builder(Component.Type.MODULE, 2).setUuid("MODULE").setKey("MODULE_KEY");
+    for (int ref = 10; ref < 10 + nbFiles; ref++) {
+      moduleBuilder.addChildren(ReportComponent.builder(Component.Type.FILE, ref).setUuid("FILE_" + ref).setKey("MODULE_KEY:src/Foo" + ref + ".java").build());
+      reportReader.putComponent(ScannerReport.Component.newBuilder().setRef(ref).setType(ComponentType.FILE).setLines(1).build());
+      fileSourceRepository.addLine(ref, "file" + ref + "_line1");
+    }
+    // no source lines, reading them fails
+    moduleBuilder.addChildren(ReportComponent.builder(Component.Type.FILE, failingRef).setUuid("FILE_" + failingRef).setKey("MODULE_KEY:src/Failing.java").build());
+    reportReader.putComponent(ScannerReport.Component.newBuilder().setRef(failingRef).setType(ComponentType.FILE).setLines(1).build());
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(moduleBuilder.build()).build());
+
+    try {
+      underTest.execute();
+      fail();
+    } catch (VisitException e) {
+      assertThat(e.getCause()).hasMessageContaining("has no source code");
+    }
+
+    // pending encodings are cancelled instead of being executed, and threads are stopped before returning
+    assertThat(encoders.isTerminated()).isTrue();
+    assertThat(writer.isTerminated()).isTrue();
+    assertThat(dbTester.countRowsOfTable("file_sources")).isZero();
+  }
+
   @Test
   public void persist_source_hashes() {
     initBasicReport(2);
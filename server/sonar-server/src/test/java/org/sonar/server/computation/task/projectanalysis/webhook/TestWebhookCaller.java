@@ -21,6 +21,7 @@ package org.sonar.server.computation.task.projectanalysis.webhook;
 
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
@@ -30,6 +31,7 @@ public class TestWebhookCaller implements WebhookCaller {
 
   private final Queue<Item> deliveries = new LinkedList<>();
   private final AtomicInteger countSent = new AtomicInteger(0);
+  private CountDownLatch blocker = new CountDownLatch(0);
 
   public TestWebhookCaller enqueueSuccess(long at, int httpCode, int durationMs) {
     deliveries.add(new Item(at, httpCode, durationMs, null));
@@ -41,8 +43,21 @@ public class TestWebhookCaller implements WebhookCaller {
     return this;
   }
 
+  /**
+   * Calls do not return before the latch is released
+   */
+  public TestWebhookCaller blockCallsUntil(CountDownLatch latch) {
+    this.blocker = latch;
+    return this;
+  }
+
   @Override
   public WebhookDelivery call(Webhook webhook, WebhookPayload payload) {
+    try {
+      blocker.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
     Item item = requireNonNull(deliveries.poll(), "Queue is empty");
     countSent.incrementAndGet();
     return new WebhookDelivery.Builder()
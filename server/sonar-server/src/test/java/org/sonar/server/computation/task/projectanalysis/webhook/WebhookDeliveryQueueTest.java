@@ -0,0 +1,199 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.webhook;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import javax.management.ObjectName;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WebhookDeliveryQueueTest {
+
+  private static final long NOW = 1_500_000_000_000L;
+  private static final long TIMEOUT_MS = 5_000L;
+
+  @Rule
+  public LogTester logTester = new LogTester().setLevel(LoggerLevel.DEBUG);
+
+  private final Webhook webhook = new Webhook("P1_UUID", "#1", "First", "http://url1");
+  private final WebhookPayload payload = new WebhookPayload("P1", "{the payload}");
+  private final TestWebhookCaller caller = new TestWebhookCaller();
+  private final WebhookDeliveryStorage deliveryStorage = mock(WebhookDeliveryStorage.class);
+  private final WebhookDeliveryQueue underTest = new WebhookDeliveryQueue(caller, deliveryStorage, System2.INSTANCE, 1L, 60_000L);
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void register_and_unregister_mbean() throws Exception {
+    ObjectName name = new ObjectName(WebhookDeliveryQueueMBean.OBJECT_NAME);
+    underTest.start();
+    assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name)).isTrue();
+
+    underTest.stop();
+    assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name)).isFalse();
+  }
+
+  @Test
+  public void send_and_persist_delivery() {
+    underTest.start();
+    caller.enqueueSuccess(NOW, 200, 1_234);
+
+    underTest.enqueue(webhook, payload);
+
+    WebhookDelivery delivery = waitForPersistedDelivery();
+    assertThat(delivery.isSuccess()).isTrue();
+    assertThat(delivery.getWebhook()).isSameAs(webhook);
+    assertThat(caller.countSent()).isEqualTo(1);
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("Sent webhook 'First' | url=http://url1 | time=1234ms | status=200");
+    assertThat(underTest.getQueueSize()).isEqualTo(0);
+    assertThat(underTest.getDeliveryCount()).isEqualTo(1);
+    assertThat(underTest.getFailureCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void retry_failed_calls() {
+    underTest.start();
+    caller.enqueueFailure(NOW, new IOException("Fail to connect"));
+    caller.enqueueSuccess(NOW, 503, 10);
+    caller.enqueueSuccess(NOW, 200, 10);
+
+    underTest.enqueue(webhook, payload);
+
+    assertThat(waitForPersistedDelivery().isSuccess()).isTrue();
+    assertThat(caller.countSent()).isEqualTo(3);
+  }
+
+  @Test
+  public void give_up_after_max_attempts() {
+    underTest.start();
+    for (int i = 0; i < WebhookDeliveryQueue.MAX_ATTEMPTS; i++) {
+      caller.enqueueFailure(NOW, new IOException("Fail to connect"));
+    }
+
+    underTest.enqueue(webhook, payload);
+
+    WebhookDelivery delivery = waitForPersistedDelivery();
+    assertThat(delivery.getErrorMessage()).contains("Fail to connect");
+    assertThat(caller.countSent()).isEqualTo(WebhookDeliveryQueue.MAX_ATTEMPTS);
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("Failed to send webhook 'First' | url=http://url1 | message=Fail to connect");
+    assertThat(underTest.getFailureCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void do_not_retry_client_errors() {
+    underTest.start();
+    caller.enqueueSuccess(NOW, 404, 10);
+
+    underTest.enqueue(webhook, payload);
+
+    assertThat(waitForPersistedDelivery().getHttpStatus()).contains(404);
+    assertThat(caller.countSent()).isEqualTo(1);
+  }
+
+  @Test
+  public void suspend_calls_to_url_after_consecutive_failures() {
+    underTest.start();
+    for (int i = 0; i < WebhookDeliveryQueue.CIRCUIT_BREAKER_THRESHOLD; i++) {
+      caller.enqueueSuccess(NOW, 500, 10);
+    }
+    for (int i = 0; i < WebhookDeliveryQueue.CIRCUIT_BREAKER_THRESHOLD; i += WebhookDeliveryQueue.MAX_ATTEMPTS) {
+      underTest.enqueue(webhook, payload);
+      waitForPersistedDelivery();
+    }
+
+    underTest.enqueue(webhook, payload);
+
+    assertThat(waitForPersistedDelivery().getErrorMessage()).contains("Calls to this URL are suspended after too many failures");
+    assertThat(caller.countSent()).isEqualTo(WebhookDeliveryQueue.CIRCUIT_BREAKER_THRESHOLD);
+  }
+
+  @Test
+  public void remove_delivery_from_stored_queue_when_completed() {
+    underTest.start();
+    caller.enqueueSuccess(NOW, 200, 10);
+    when(deliveryStorage.enqueue(webhook, payload)).thenReturn("Q1");
+
+    underTest.enqueue(webhook, payload);
+
+    verify(deliveryStorage, timeout(TIMEOUT_MS)).persist(any(WebhookDelivery.class), eq("Q1"));
+  }
+
+  @Test
+  public void resume_stored_deliveries_at_startup() {
+    caller.enqueueSuccess(NOW, 200, 10);
+    when(deliveryStorage.selectQueued(anyInt())).thenReturn(singletonList(new WebhookDeliveryStorage.Queued("Q1", webhook, payload)));
+
+    underTest.start();
+
+    ArgumentCaptor<WebhookDelivery> captor = ArgumentCaptor.forClass(WebhookDelivery.class);
+    verify(deliveryStorage, timeout(TIMEOUT_MS)).persist(captor.capture(), eq("Q1"));
+    assertThat(captor.getValue().isSuccess()).isTrue();
+    assertThat(caller.countSent()).isEqualTo(1);
+  }
+
+  @Test
+  public void drop_delivery_when_queue_is_full() {
+    CountDownLatch blocker = new CountDownLatch(1);
+    caller.blockCallsUntil(blocker);
+    underTest.start();
+    try {
+      for (int i = 0; i < WebhookDeliveryQueue.MAX_QUEUE_SIZE; i++) {
+        underTest.enqueue(webhook, payload);
+      }
+      assertThat(underTest.getQueueSize()).isEqualTo(WebhookDeliveryQueue.MAX_QUEUE_SIZE);
+
+      underTest.enqueue(webhook, payload);
+
+      assertThat(underTest.getDroppedCount()).isEqualTo(1);
+      assertThat(underTest.getFailureCount()).isEqualTo(1);
+      assertThat(underTest.getQueueSize()).isEqualTo(WebhookDeliveryQueue.MAX_QUEUE_SIZE);
+    } finally {
+      blocker.countDown();
+    }
+  }
+
+  private WebhookDelivery waitForPersistedDelivery() {
+    ArgumentCaptor<WebhookDelivery> captor = ArgumentCaptor.forClass(WebhookDelivery.class);
+    verify(deliveryStorage, timeout(TIMEOUT_MS).atLeastOnce()).persist(captor.capture(), any());
+    reset(deliveryStorage);
+    return captor.getValue();
+  }
+}
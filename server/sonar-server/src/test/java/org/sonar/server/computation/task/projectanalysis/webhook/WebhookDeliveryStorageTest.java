@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.webhook;
 
 import java.io.IOException;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.utils.System2;
@@ -57,7 +58,7 @@ public class WebhookDeliveryStorageTest {
     when(uuidFactory.create()).thenReturn(DELIVERY_UUID);
     WebhookDelivery delivery = newBuilderTemplate().build();
 
-    underTest.persist(delivery);
+    underTest.persist(delivery, null);
 
     WebhookDeliveryDto dto = dbClient.webhookDeliveryDao().selectByUuid(dbSession, DELIVERY_UUID).get();
     assertThat(dto.getUuid()).isEqualTo(DELIVERY_UUID);
@@ -79,12 +80,46 @@ public class WebhookDeliveryStorageTest {
       .setError(new IOException("fail to connect"))
       .build();
 
-    underTest.persist(delivery);
+    underTest.persist(delivery, null);
 
     WebhookDeliveryDto dto = dbClient.webhookDeliveryDao().selectByUuid(dbSession, DELIVERY_UUID).get();
     assertThat(dto.getErrorStacktrace()).contains("java.io.IOException", "fail to connect");
   }
 
+  @Test
+  public void enqueue_stores_delivery_which_can_be_resumed() {
+    when(system.now()).thenReturn(NOW);
+    when(uuidFactory.create()).thenReturn("Q1");
+    WebhookDelivery delivery = newBuilderTemplate().build();
+
+    String queuedUuid = underTest.enqueue(delivery.getWebhook(), delivery.getPayload());
+
+    assertThat(queuedUuid).isEqualTo("Q1");
+    List<WebhookDeliveryStorage.Queued> queued = underTest.selectQueued(10);
+    assertThat(queued).hasSize(1);
+    assertThat(queued.get(0).getUuid()).isEqualTo("Q1");
+    Webhook webhook = queued.get(0).getWebhook();
+    assertThat(webhook.getComponentUuid()).isEqualTo("COMPONENT1");
+    assertThat(webhook.getCeTaskUuid()).isEqualTo("TASK1");
+    assertThat(webhook.getName()).isEqualTo("Jenkins");
+    assertThat(webhook.getUrl()).isEqualTo("http://jenkins");
+    assertThat(queued.get(0).getPayload().getProjectKey()).isEqualTo("my-project");
+    assertThat(queued.get(0).getPayload().toJson()).isEqualTo("{json}");
+  }
+
+  @Test
+  public void persist_removes_delivery_from_queue() {
+    when(uuidFactory.create()).thenReturn("Q1", "Q2", DELIVERY_UUID);
+    WebhookDelivery delivery = newBuilderTemplate().build();
+    underTest.enqueue(delivery.getWebhook(), delivery.getPayload());
+    underTest.enqueue(delivery.getWebhook(), delivery.getPayload());
+
+    underTest.persist(delivery, "Q1");
+
+    assertThat(dbClient.webhookDeliveryDao().selectByUuid(dbSession, DELIVERY_UUID)).isPresent();
+    assertThat(underTest.selectQueued(10)).extracting(WebhookDeliveryStorage.Queued::getUuid).containsExactly("Q2");
+  }
+
   @Test
   public void purge_deletes_records_older_than_one_month_on_the_project() {
     when(system.now()).thenReturn(NOW);
@@ -0,0 +1,101 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import java.util.LinkedHashMap;
+import org.junit.Test;
+import org.sonar.server.es.Facets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class IssueFacetsCacheTest {
+
+  private static final IssueFacetsCache.Generation GENERATION = new IssueFacetsCache.Generation(10L, 1_500_000_000_000D);
+
+  private IssueFacetsCache underTest = new IssueFacetsCache();
+
+  @Test
+  public void get_facets_put_on_same_generation() {
+    underTest.put("key", GENERATION, newFacets("severities", "MAJOR", 3L));
+
+    Facets facets = underTest.get("key", new IssueFacetsCache.Generation(10L, 1_500_000_000_000D));
+
+    assertThat(facets.get("severities")).containsOnly(entry("MAJOR", 3L));
+    assertThat(underTest.getHits()).isEqualTo(1L);
+    assertThat(underTest.getMisses()).isEqualTo(0L);
+    assertThat(underTest.getHitRatio()).isEqualTo(1D);
+  }
+
+  @Test
+  public void do_not_return_facets_of_another_generation() {
+    underTest.put("key", GENERATION, newFacets("severities", "MAJOR", 3L));
+
+    assertThat(underTest.get("key", new IssueFacetsCache.Generation(11L, 1_500_000_000_000D))).isNull();
+    assertThat(underTest.get("key", new IssueFacetsCache.Generation(10L, 1_500_000_000_001D))).isNull();
+    assertThat(underTest.get("other", GENERATION)).isNull();
+    assertThat(underTest.getMisses()).isEqualTo(3L);
+    assertThat(underTest.getHitRatio()).isEqualTo(0D);
+  }
+
+  @Test
+  public void cached_facets_can_not_be_altered_by_callers() {
+    Facets facets = newFacets("severities", "MAJOR", 3L);
+    underTest.put("key", GENERATION, facets);
+    facets.get("severities").put("MINOR", 1L);
+    underTest.get("key", GENERATION).get("severities").put("INFO", 2L);
+
+    assertThat(underTest.get("key", GENERATION).get("severities")).containsOnly(entry("MAJOR", 3L));
+  }
+
+  @Test
+  public void memory_is_estimated_and_released_on_eviction() {
+    assertThat(underTest.getMemoryInBytes()).isEqualTo(0L);
+
+    underTest.put("key", GENERATION, newFacets("severities", "MAJOR", 3L));
+    long memory = underTest.getMemoryInBytes();
+    assertThat(memory).isGreaterThan(0L);
+    assertThat(underTest.getSize()).isEqualTo(1L);
+
+    // replaced
+    underTest.put("key", GENERATION, newFacets("severities", "MAJOR", 3L));
+    assertThat(underTest.getMemoryInBytes()).isEqualTo(memory);
+  }
+
+  @Test
+  public void evict_entries_when_max_memory_is_reached() {
+    underTest = new IssueFacetsCache(1_000L);
+
+    for (int i = 0; i < 100; i++) {
+      underTest.put("key" + i, GENERATION, newFacets("severities", "MAJOR", 3L));
+    }
+
+    assertThat(underTest.getSize()).isLessThan(100L);
+    assertThat(underTest.getMemoryInBytes()).isLessThanOrEqualTo(1_000L);
+  }
+
+  private static Facets newFacets(String name, String bucket, long count) {
+    LinkedHashMap<String, LinkedHashMap<String, Long>> facetsByName = new LinkedHashMap<>();
+    LinkedHashMap<String, Long> buckets = new LinkedHashMap<>();
+    buckets.put(bucket, count);
+    facetsByName.put(name, buckets);
+    return new Facets(facetsByName);
+  }
+}
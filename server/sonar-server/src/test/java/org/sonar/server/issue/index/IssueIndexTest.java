@@ -398,6 +398,31 @@ public class IssueIndexTest {
     assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 2L), entry("MAJOR", 1L));
   }
 
+  @Test
+  public void facets_are_cached_until_issues_are_indexed() {
+    IssueFacetsCache facetsCache = new IssueFacetsCache();
+    underTest = new IssueIndex(tester.client(), system2, userSessionRule, facetsCache);
+    ComponentDto project = ComponentTesting.newProjectDto();
+    ComponentDto file = ComponentTesting.newFileDto(project, null);
+    indexIssues(
+      IssueTesting.newDoc("ISSUE1", file).setSeverity(Severity.INFO),
+      IssueTesting.newDoc("ISSUE2", file).setSeverity(Severity.MAJOR));
+    IssueQuery query = IssueQuery.builder(userSessionRule).projectUuids(singletonList(project.uuid())).build();
+    SearchOptions options = new SearchOptions().addFacets(newArrayList("severities"));
+
+    assertThat(underTest.search(query, options).getFacets().get("severities")).containsOnly(entry("INFO", 1L), entry("MAJOR", 1L));
+    SearchResult<IssueDoc> result = underTest.search(query, options);
+    assertThat(result.getDocs()).hasSize(2);
+    assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 1L), entry("MAJOR", 1L));
+    assertThat(facetsCache.getHits()).isEqualTo(1L);
+    assertThat(facetsCache.getMisses()).isEqualTo(1L);
+
+    indexIssues(IssueTesting.newDoc("ISSUE3", file).setSeverity(Severity.MAJOR));
+
+    assertThat(underTest.search(query, options).getFacets().get("severities")).containsOnly(entry("INFO", 1L), entry("MAJOR", 2L));
+    assertThat(facetsCache.getMisses()).isEqualTo(2L);
+  }
+
   @Test
   public void filter_by_statuses() {
     ComponentDto project = ComponentTesting.newProjectDto();
@@ -0,0 +1,176 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import java.util.EnumSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.issue.IssueChangeDto;
+import org.sonar.db.issue.IssueDto;
+import org.sonar.db.rule.RuleDao;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.rule.RuleTesting;
+import org.sonar.server.issue.ActionService;
+import org.sonar.server.issue.IssueCommentService;
+import org.sonar.server.issue.IssueService;
+import org.sonar.server.issue.IssueTesting;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+import static org.sonar.server.issue.ws.SearchAdditionalField.COMMENTS;
+import static org.sonar.server.issue.ws.SearchAdditionalField.RULES;
+import static org.sonar.server.issue.ws.SearchAdditionalField.USERS;
+
+public class SearchResponseLoaderTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private DbSession dbSession = db.getSession();
+  private AtomicInteger backgroundLoads = new AtomicInteger();
+  private Thread backgroundThread;
+  private ExecutorService executorService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()) {
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+      backgroundThread = t;
+      backgroundLoads.incrementAndGet();
+    }
+  };
+
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void load_rules_comments_and_users_in_background_while_loading_components() {
+    ComponentDto project = db.components().insertProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    RuleDto rule = insertRule();
+    IssueDto issue = IssueTesting.newDto(rule, file, project).setAssignee("john");
+    db.getDbClient().issueDao().insert(dbSession, issue);
+    db.getDbClient().issueChangeDao().insert(dbSession, new IssueChangeDto()
+      .setKey("COMMENT_1")
+      .setIssueKey(issue.getKey())
+      .setUserLogin("jane")
+      .setChangeType(IssueChangeDto.TYPE_COMMENT)
+      .setChangeData("the comment")
+      .setCreatedAt(1_500_000_000_000L)
+      .setUpdatedAt(1_500_000_000_000L)
+      .setIssueChangeCreationDate(1_500_000_000_000L));
+    db.users().insertUser("john");
+    db.users().insertUser("jane");
+    dbSession.commit();
+    SearchResponseLoader.Collector collector = new SearchResponseLoader.Collector(EnumSet.of(RULES, COMMENTS, USERS), singletonList(issue.getKey()));
+
+    SearchResponseData result = newLoader(db.getDbClient()).load(collector, null);
+
+    assertThat(result.getIssues()).extracting(IssueDto::getKey).containsExactly(issue.getKey());
+    assertThat(result.getRules()).extracting(RuleDto::getKey).containsExactly(rule.getKey());
+    assertThat(result.getCommentsForIssueKey(issue.getKey())).extracting(IssueChangeDto::getKey).containsExactly("COMMENT_1");
+    // users include the authors of comments
+    assertThat(result.getUsers()).extracting("login").containsOnly("john", "jane");
+    assertThat(result.getComponents()).extracting(ComponentDto::uuid).containsOnly(project.uuid(), file.uuid());
+    assertThat(backgroundLoads.get()).isEqualTo(1);
+    assertThat(backgroundThread).isNotEqualTo(Thread.currentThread());
+  }
+
+  @Test
+  public void do_not_use_background_thread_when_no_rules_comments_or_users_are_requested() {
+    ComponentDto project = db.components().insertProject();
+    IssueDto issue = IssueTesting.newDto(insertRule(), project, project);
+    db.getDbClient().issueDao().insert(dbSession, issue);
+    dbSession.commit();
+    SearchResponseLoader.Collector collector = new SearchResponseLoader.Collector(EnumSet.noneOf(SearchAdditionalField.class), singletonList(issue.getKey()));
+
+    SearchResponseData result = newLoader(db.getDbClient()).load(collector, null);
+
+    assertThat(result.getIssues()).hasSize(1);
+    assertThat(result.getComponents()).extracting(ComponentDto::uuid).containsOnly(project.uuid());
+    assertThat(result.getRules()).isNull();
+    assertThat(backgroundLoads.get()).isZero();
+  }
+
+  @Test
+  public void load_nothing_when_collector_is_empty() {
+    SearchResponseLoader.Collector collector = new SearchResponseLoader.Collector(EnumSet.of(RULES, COMMENTS, USERS), emptyList());
+
+    SearchResponseData result = newLoader(db.getDbClient()).load(collector, null);
+
+    assertThat(result.getIssues()).isEmpty();
+    assertThat(result.getComponents()).isEmpty();
+    assertThat(result.getRules()).isEmpty();
+    assertThat(result.getUsers()).isEmpty();
+    assertThat(backgroundLoads.get()).isZero();
+  }
+
+  @Test
+  public void propagate_failure_of_background_load() {
+    ComponentDto project = db.components().insertProject();
+    IssueDto issue = IssueTesting.newDto(insertRule(), project, project);
+    db.getDbClient().issueDao().insert(dbSession, issue);
+    dbSession.commit();
+    DbClient dbClient = spy(db.getDbClient());
+    RuleDao ruleDao = mock(RuleDao.class);
+    when(ruleDao.selectByKeys(any(DbSession.class), anyListOf(RuleKey.class))).thenThrow(new IllegalStateException("Fail to load rules"));
+    doReturn(ruleDao).when(dbClient).ruleDao();
+    SearchResponseLoader.Collector collector = new SearchResponseLoader.Collector(EnumSet.of(RULES), singletonList(issue.getKey()));
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to load rules");
+
+    newLoader(dbClient).load(collector, null);
+  }
+
+  private RuleDto insertRule() {
+    RuleDto rule = RuleTesting.newDto(RuleKey.of("java", "S001"));
+    db.getDbClient().ruleDao().insert(dbSession, rule);
+    dbSession.commit();
+    return rule;
+  }
+
+  private SearchResponseLoader newLoader(DbClient dbClient) {
+    return new SearchResponseLoader(dbClient, mock(IssueService.class), mock(ActionService.class), mock(IssueCommentService.class), executorService);
+  }
+}
@@ -446,6 +446,7 @@ public class SearchActionTest {
   private void setBrowsePermissionOnUser(ComponentDto... projects) {
     for (ComponentDto project : projects) {
       db.users().insertProjectPermissionOnUser(user, UserRole.USER, project);
+      userSession.addProjectUuidPermissions(UserRole.USER, project.uuid());
     }
     dbSession.commit();
   }
@@ -42,9 +42,14 @@ import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.permission.index.PermissionIndexer;
 import org.sonar.server.tester.UserSessionRule;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.core.permission.GlobalPermissions.PROVISIONING;
 import static org.sonar.core.permission.GlobalPermissions.SCAN_EXECUTION;
@@ -97,6 +102,19 @@ public class PermissionTemplateServiceTest {
     assertThat(selectProjectPermissionsOfUser(200L, PROJECT)).containsOnly("admin");
 
     checkAuthorizationUpdatedAtIsUpdated();
+    verify(permissionIndexer).index(session, singletonList(PROJECT.uuid()));
+  }
+
+  @Test
+  public void apply_permission_template_to_several_projects_indexes_asynchronously() {
+    PermissionTemplateDto template = templateDb.insertTemplate();
+    ComponentDto project1 = dbTester.components().insertProject();
+    ComponentDto project2 = dbTester.components().insertProject();
+
+    underTest.apply(session, template, asList(project1, project2));
+
+    verify(permissionIndexer).indexAsync(session, asList(project1.uuid(), project2.uuid()));
+    verify(permissionIndexer, never()).index(any(DbSession.class), anyListOf(String.class));
   }
 
   private List<String> selectProjectPermissionsOfGroup(String organizationUuid, @Nullable Long groupId, ComponentDto project) {
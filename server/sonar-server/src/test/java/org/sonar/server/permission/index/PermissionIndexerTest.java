@@ -48,6 +48,8 @@ import static org.sonar.api.web.UserRole.USER;
 
 public class PermissionIndexerTest {
 
+  private static final String QUEUE_TABLE = "permission_index_queue";
+
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
 
@@ -158,6 +160,59 @@ public class PermissionIndexerTest {
     authorizationIndexerTester.verifyProjectDoesNotExist(project3.uuid());
   }
 
+  @Test
+  public void index_projects_asynchronously() throws Exception {
+    GroupDto group = userDbTester.insertGroup();
+    ComponentDto project1 = componentDbTester.insertProject();
+    userDbTester.insertProjectPermissionOnGroup(group, USER, project1);
+    ComponentDto project2 = componentDbTester.insertProject();
+    userDbTester.insertProjectPermissionOnGroup(group, USER, project2);
+    ComponentDto project3 = componentDbTester.insertProject();
+    userDbTester.insertProjectPermissionOnGroup(group, USER, project3);
+    PermissionIndexer asyncIndexer = new PermissionIndexer(dbTester.getDbClient(), esTester.client(), 0L);
+
+    asyncIndexer.indexAsync(dbTester.getSession(), singletonList(project1.uuid()));
+    asyncIndexer.indexAsync(dbTester.getSession(), asList(project1.uuid(), project2.uuid()));
+    asyncIndexer.indexAsync(dbTester.getSession(), emptyList());
+    // pending projects are indexed before stopping
+    asyncIndexer.stop();
+
+    authorizationIndexerTester.verifyProjectExistsWithPermission(project1.uuid(), asList(group.getName(), ANYONE), emptyList());
+    authorizationIndexerTester.verifyProjectExistsWithPermission(project2.uuid(), asList(group.getName(), ANYONE), emptyList());
+    authorizationIndexerTester.verifyProjectDoesNotExist(project3.uuid());
+    assertThat(dbTester.countRowsOfTable(QUEUE_TABLE)).isZero();
+  }
+
+  @Test
+  public void keep_projects_in_queue_when_indexer_is_stopped() {
+    ComponentDto project = componentDbTester.insertProject();
+    PermissionIndexer asyncIndexer = new PermissionIndexer(dbTester.getDbClient(), esTester.client(), 0L);
+    asyncIndexer.stop();
+
+    asyncIndexer.indexAsync(dbTester.getSession(), singletonList(project.uuid()));
+
+    authorizationIndexerTester.verifyProjectDoesNotExist(project.uuid());
+    assertThat(dbTester.countRowsOfTable(QUEUE_TABLE)).isEqualTo(1);
+  }
+
+  @Test
+  public void index_projects_remaining_in_queue_at_startup() {
+    GroupDto group = userDbTester.insertGroup();
+    ComponentDto project1 = componentDbTester.insertProject();
+    userDbTester.insertProjectPermissionOnGroup(group, USER, project1);
+    underTest.index(dbTester.getSession(), project1.uuid());
+    // server stopped before project2 was indexed
+    ComponentDto project2 = componentDbTester.insertProject();
+    userDbTester.insertProjectPermissionOnGroup(group, USER, project2);
+    dbTester.getDbClient().permissionIndexQueueDao().insert(dbTester.getSession(), singletonList(project2.uuid()));
+    dbTester.getSession().commit();
+
+    underTest.indexAllIfEmpty();
+
+    authorizationIndexerTester.verifyProjectExistsWithPermission(project2.uuid(), asList(group.getName(), ANYONE), emptyList());
+    assertThat(dbTester.countRowsOfTable(QUEUE_TABLE)).isZero();
+  }
+
   @Test
   public void update_existing_permissions() {
     authorizationIndexerTester.indexProjectPermission("ABC", singletonList("dev"), singletonList(10L));
@@ -61,4 +61,13 @@ public class DatabaseMonitorTest {
     Map<String, Object> attributes = underTest.attributes();
     assertThat((int) attributes.get("Pool Max Connections")).isGreaterThan(0);
   }
+
+  @Test
+  public void sql_statements_info() {
+    dbTester.getDbClient().ruleDao().selectAll(dbTester.getSession());
+
+    Map<String, Object> attributes = underTest.attributes();
+    assertThat((Map<String, Object>) attributes.get("Slowest SQL Statements")).containsKey("org.sonar.db.rule.RuleMapper.selectAll");
+    assertThat(underTest.getSlowestSqlStatements()).isNotEmpty();
+  }
 }
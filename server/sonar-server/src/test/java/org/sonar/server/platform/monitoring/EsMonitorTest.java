@@ -27,6 +27,7 @@ import org.junit.Test;
 import org.sonar.api.config.MapSettings;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.issue.index.IssueFacetsCache;
 import org.sonar.server.issue.index.IssueIndexDefinition;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -38,7 +39,8 @@ public class EsMonitorTest {
   @Rule
   public EsTester esTester = new EsTester(new IssueIndexDefinition(new MapSettings()));
 
-  private EsMonitor underTest = new EsMonitor(esTester.client());
+  private IssueFacetsCache issueFacetsCache = new IssueFacetsCache();
+  private EsMonitor underTest = new EsMonitor(esTester.client(), issueFacetsCache);
 
   @Test
   public void name() {
@@ -78,10 +80,22 @@ public class EsMonitorTest {
     assertThat(indexAttributes.get("Store Size")).isNotNull();
   }
 
+  @Test
+  public void issue_facets_cache_attributes() {
+    Map<String, Object> attributes = underTest.attributes();
+    Map cacheAttributes = (Map) attributes.get("Issue Facets Cache");
+
+    assertThat(cacheAttributes.get("Entries")).isEqualTo(0L);
+    assertThat(cacheAttributes.get("Hit Ratio")).isEqualTo("0.0%");
+    assertThat(cacheAttributes.get("Hits")).isEqualTo(0L);
+    assertThat(cacheAttributes.get("Misses")).isEqualTo(0L);
+    assertThat(cacheAttributes.get("Memory")).isNotNull();
+  }
+
   @Test
   public void attributes_displays_exception_message_when_cause_null_when_client_fails() {
     EsClient esClientMock = mock(EsClient.class);
-    EsMonitor underTest = new EsMonitor(esClientMock);
+    EsMonitor underTest = new EsMonitor(esClientMock, issueFacetsCache);
     when(esClientMock.prepareClusterStats()).thenThrow(new RuntimeException("RuntimeException with no cause"));
 
     Map<String, Object> attributes = underTest.attributes();
@@ -92,7 +106,7 @@ public class EsMonitorTest {
   @Test
   public void attributes_displays_exception_message_when_cause_is_not_ElasticSearchException_when_client_fails() {
     EsClient esClientMock = mock(EsClient.class);
-    EsMonitor underTest = new EsMonitor(esClientMock);
+    EsMonitor underTest = new EsMonitor(esClientMock, issueFacetsCache);
     when(esClientMock.prepareClusterStats()).thenThrow(new RuntimeException("RuntimeException with cause not ES", new IllegalArgumentException("some cause message")));
 
     Map<String, Object> attributes = underTest.attributes();
@@ -103,7 +117,7 @@ public class EsMonitorTest {
   @Test
   public void attributes_displays_cause_message_when_cause_is_ElasticSearchException_when_client_fails() {
     EsClient esClientMock = mock(EsClient.class);
-    EsMonitor underTest = new EsMonitor(esClientMock);
+    EsMonitor underTest = new EsMonitor(esClientMock, issueFacetsCache);
     when(esClientMock.prepareClusterStats()).thenThrow(new RuntimeException("RuntimeException with ES cause", new ElasticsearchException("some cause message")));
 
     Map<String, Object> attributes = underTest.attributes();
@@ -1100,6 +1100,26 @@ public class RuleActivatorMediumTest {
     verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P3_KEY, XOO_X2), BLOCKER, INHERITED, Collections.<String, String>emptyMap());
   }
 
+  @Test
+  public void bulk_activation_propagates_to_descendants_except_overriding_ones() {
+    createChildProfiles();
+
+    // x1 is activated on P2 (propagated to P3)
+    activate(new RuleActivation(XOO_X1).setSeverity(INFO).setParameter("max", "7"), XOO_P2_KEY);
+
+    RuleQuery query = new RuleQuery().setRepositories(Arrays.asList("xoo"));
+    BulkChangeResult result = ruleActivator.bulkActivate(query, XOO_P1_KEY, "BLOCKER");
+    assertThat(result.countSucceeded()).isEqualTo(3);
+
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P1_KEY, XOO_X1), BLOCKER, null, ImmutableMap.of("max", "10"));
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P1_KEY, XOO_X2), BLOCKER, null, Collections.<String, String>emptyMap());
+    // P2 already activated x1 -> it now overrides P1 and stops the propagation
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P2_KEY, XOO_X1), INFO, OVERRIDES, ImmutableMap.of("max", "7"));
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P2_KEY, XOO_X2), BLOCKER, INHERITED, Collections.<String, String>emptyMap());
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P3_KEY, XOO_X1), INFO, INHERITED, ImmutableMap.of("max", "7"));
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P3_KEY, XOO_X2), BLOCKER, INHERITED, Collections.<String, String>emptyMap());
+  }
+
   private int countActiveRules(String profileKey) {
     List<ActiveRuleDto> activeRuleDtos = db.activeRuleDao().selectByProfileKey(dbSession, profileKey);
     return activeRuleDtos.size();
@@ -23,7 +23,10 @@ import java.util.Date;
 import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.api.SonarQubeSide;
+import org.sonar.api.SonarRuntime;
 import org.sonar.api.config.MapSettings;
+import org.sonar.api.internal.SonarRuntimeImpl;
 import org.sonar.api.resources.Language;
 import org.sonar.api.resources.Languages;
 import org.sonar.api.rule.RuleKey;
@@ -33,6 +36,7 @@ import org.sonar.api.server.debt.DebtRemediationFunction;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.Version;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
@@ -41,6 +45,7 @@ import org.sonar.db.rule.RuleParamDto;
 import org.sonar.db.rule.RuleRepositoryDto;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.es.SearchOptions;
+import org.sonar.server.property.InternalProperties;
 import org.sonar.server.qualityprofile.RuleActivator;
 import org.sonar.server.qualityprofile.index.ActiveRuleIndexer;
 import org.sonar.server.rule.index.RuleIndex;
@@ -75,6 +80,7 @@ public class RegisterRulesTest {
   public EsTester esTester = new EsTester(new RuleIndexDefinition(new MapSettings()));
 
   private RuleActivator ruleActivator = mock(RuleActivator.class);
+  private SonarRuntime runtime = SonarRuntimeImpl.forSonarQube(Version.create(6, 3), SonarQubeSide.SERVER);
   private DbClient dbClient = dbTester.getDbClient();
   private RuleIndexer ruleIndexer;
   private ActiveRuleIndexer activeRuleIndexer;
@@ -329,6 +335,38 @@ public class RegisterRulesTest {
     assertThat(rule1.getUpdatedAt()).isEqualTo(DATE1.getTime());
   }
 
+  @Test
+  public void skip_registration_when_rule_definitions_did_not_change() {
+    execute(new FakeRepositoryV1());
+    assertThat(dbClient.internalPropertiesDao().selectByKey(dbTester.getSession(), InternalProperties.RULES_FINGERPRINT).get()).isNotEmpty();
+    RuleDto rule1 = dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), RULE_KEY1);
+    rule1.setName("Name changed in db");
+    dbClient.ruleDao().update(dbTester.getSession(), rule1);
+    dbTester.getSession().commit();
+
+    // same definitions -> rules are not loaded nor merged
+    execute(new FakeRepositoryV1());
+    assertThat(dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), RULE_KEY1).getName()).isEqualTo("Name changed in db");
+
+    // definitions changed -> rules are registered
+    execute(new FakeRepositoryV2());
+    assertThat(dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), RULE_KEY1).getName()).isEqualTo("One v2");
+  }
+
+  @Test
+  public void register_rules_again_when_sonarqube_version_changed() {
+    execute(new FakeRepositoryV1());
+    RuleDto rule1 = dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), RULE_KEY1);
+    rule1.setName("Name changed in db");
+    dbClient.ruleDao().update(dbTester.getSession(), rule1);
+    dbTester.getSession().commit();
+
+    runtime = SonarRuntimeImpl.forSonarQube(Version.create(6, 4), SonarQubeSide.SERVER);
+    execute(new FakeRepositoryV1());
+
+    assertThat(dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), RULE_KEY1).getName()).isEqualTo("One");
+  }
+
   @Test
   public void do_not_update_already_removed_rules() {
     execute(new FakeRepositoryV1());
@@ -409,7 +447,7 @@ public class RegisterRulesTest {
     Languages languages = mock(Languages.class);
     when(languages.get("java")).thenReturn(mock(Language.class));
 
-    RegisterRules task = new RegisterRules(loader, ruleActivator, dbClient, ruleIndexer, activeRuleIndexer, languages, system);
+    RegisterRules task = new RegisterRules(loader, ruleActivator, dbClient, ruleIndexer, activeRuleIndexer, languages, system, runtime);
     task.start();
     // Execute a commit to refresh session state as the task is using its own session
     dbTester.getSession().commit();
@@ -0,0 +1,123 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class HtmlLineDecoratorTest {
+
+  @Test
+  public void decorate_highlighting_and_symbols() {
+    assertThat(HtmlLineDecorator.decorate("package org.polop;", "0,7,k", "8,17,42"))
+      .isEqualTo("<span class=\"k\">package</span> <span class=\"sym-42 sym\">org.polop</span>;");
+  }
+
+  @Test
+  public void escape_html() {
+    assertThat(HtmlLineDecorator.decorate("if (a < b && c > d)", null, null)).isEqualTo("if (a &lt; b &amp;&amp; c &gt; d)");
+  }
+
+  @Test
+  public void ignore_additional_fields() {
+    assertThat(HtmlLineDecorator.decorate("abc", "0,1,k,foo", "1,2,3,4")).isEqualTo("<span class=\"k\">a</span><span class=\"sym-3 sym\">b</span>c");
+  }
+
+  @Test
+  public void ignore_trailing_empty_entities() {
+    assertThat(HtmlLineDecorator.decorate("abc", "0,1,k;1,2,c;;", "2,3,1;")).isEqualTo("<span class=\"k\">a</span><span class=\"c\">b</span><span class=\"sym-1 sym\">c</span>");
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void fail_on_empty_entity_of_highlighting() {
+    HtmlLineDecorator.decorate("abc", "0,1,k;;1,2,c", null);
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void fail_on_empty_entity_of_symbols() {
+    HtmlLineDecorator.decorate("abc", null, ";0,1,1");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_on_symbol_ending_before_its_start() {
+    HtmlLineDecorator.decorate("abcdef", null, "4,2,1");
+  }
+
+  @Test
+  public void fail_on_same_malformed_data_as_HtmlTextDecorator() {
+    verifyBothFail("abc", "0,1,k;;1,2,c", null);
+    verifyBothFail("abc", null, ";0,1,1");
+    verifyBothFail("abcdef", null, "4,2,1");
+    verifyBothFail("abc", "0,x,k", null);
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void fail_on_invalid_offset() {
+    HtmlLineDecorator.decorate("abc", "0,x,k", null);
+  }
+
+  @Test
+  public void produce_same_html_as_HtmlTextDecorator() {
+    verifySameHtml("", "0,1,cppd", null);
+    verifySameHtml("abc", "0,5,c", null);
+    verifySameHtml("@Deprecated", "0,0,a;0,11,a", "1,11,1");
+    verifySameHtml("public void foo() {", "0,6,k;7,11,k;0,19,cppd", "12,15,12");
+    verifySameHtml("int i = 1 + 2; // <comment>", "0,3,k;8,9,c;12,13,c;15,27,cd;18,27,j", "4,5,4;4,5,4");
+    verifySameHtml("a & b", "4,5,k;0,1,k;2,3,s", "0,1,0;4,5,0");
+    verifySameHtml("abc", "0,1,k;1,2,c;;", "2,3,1;");
+  }
+
+  private static void verifyBothFail(String line, @Nullable String highlighting, @Nullable String symbols) {
+    try {
+      decorateWithHtmlTextDecorator(line, highlighting, symbols);
+      fail("HtmlTextDecorator should fail");
+    } catch (RuntimeException e) {
+      // expected
+    }
+    try {
+      HtmlLineDecorator.decorate(line, highlighting, symbols);
+      fail("HtmlLineDecorator should fail");
+    } catch (RuntimeException e) {
+      // expected
+    }
+  }
+
+  private static void verifySameHtml(String line, @Nullable String highlighting, @Nullable String symbols) {
+    String expected = decorateWithHtmlTextDecorator(line, highlighting, symbols);
+
+    assertThat(HtmlLineDecorator.decorate(line, highlighting, symbols)).isEqualTo(expected);
+  }
+
+  private static String decorateWithHtmlTextDecorator(String line, @Nullable String highlighting, @Nullable String symbols) {
+    DecorationDataHolder dataHolder = new DecorationDataHolder();
+    if (highlighting != null) {
+      dataHolder.loadSyntaxHighlightingData(highlighting);
+    }
+    if (symbols != null) {
+      dataHolder.loadLineSymbolReferences(symbols);
+    }
+    List<String> lines = new HtmlTextDecorator().decorateTextWithHtml(line, dataHolder, 1, 1);
+    return lines.isEmpty() ? "" : lines.get(0);
+  }
+}
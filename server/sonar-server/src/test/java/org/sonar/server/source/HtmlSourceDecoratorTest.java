@@ -75,4 +75,9 @@ public class HtmlSourceDecoratorTest {
     assertThat(sourceDecorator.getDecoratedSourceAsHtml(sourceLine, highlighting, symbols)).isEqualTo("<span class=\"a\">@<span class=\"sym-1 sym\">Deprecated</span></span>");
   }
 
+  @Test
+  public void should_decorate_first_line_of_multiline_source() {
+    assertThat(sourceDecorator.getDecoratedSourceAsHtml("abc\ndef", "0,5,c", "")).isEqualTo("<span class=\"c\">abc</span>");
+  }
+
 }
@@ -260,6 +260,11 @@ public class UserSessionRule implements TestRule, UserSession {
     return currentUserSession.hasComponentUuidPermission(permission, componentUuid);
   }
 
+  @Override
+  public Set<String> keepAuthorizedComponentUuids(String permission, Collection<String> componentUuids) {
+    return currentUserSession.keepAuthorizedComponentUuids(permission, componentUuids);
+  }
+
   @Override
   @CheckForNull
   public String getLogin() {
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.user;
 
+import java.util.Collections;
 import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Rule;
@@ -35,6 +36,7 @@ import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.exceptions.ForbiddenException;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.core.permission.GlobalPermissions.QUALITY_GATE_ADMIN;
 import static org.sonar.core.permission.GlobalPermissions.QUALITY_PROFILE_ADMIN;
@@ -172,6 +174,48 @@ public class ServerUserSessionTest {
     assertThat(underTest.hasComponentUuidPermission("whatever", "who cares?")).isTrue();
   }
 
+  @Test
+  public void keepAuthorizedComponentUuids_returns_components_of_projects_on_which_user_has_permission_in_db() {
+    ComponentDto project2 = db.components().insertComponent(ComponentTesting.newProjectDto());
+    ComponentDto file2 = db.components().insertComponent(ComponentTesting.newFileDto(project2, null));
+    addProjectPermissions(project, UserRole.USER);
+    UserSession session = newUserSession(userDto);
+
+    assertThat(session.keepAuthorizedComponentUuids(UserRole.USER, asList(FILE_UUID, file2.uuid(), PROJECT_UUID, project2.uuid(), "unknown")))
+      .containsExactly(FILE_UUID, PROJECT_UUID);
+    assertThat(session.keepAuthorizedComponentUuids(UserRole.ADMIN, asList(FILE_UUID, file2.uuid(), PROJECT_UUID, project2.uuid()))).isEmpty();
+    assertThat(session.keepAuthorizedComponentUuids(UserRole.USER, Collections.emptyList())).isEmpty();
+  }
+
+  @Test
+  public void keepAuthorizedComponentUuids_is_consistent_with_hasComponentUuidPermission() {
+    ComponentDto project2 = db.components().insertComponent(ComponentTesting.newProjectDto());
+    ComponentDto file2 = db.components().insertComponent(ComponentTesting.newFileDto(project2, null));
+    addProjectPermissions(project2, UserRole.USER);
+    UserSession session = newUserSession(userDto);
+
+    assertThat(session.hasComponentUuidPermission(UserRole.USER, FILE_UUID)).isFalse();
+    assertThat(session.keepAuthorizedComponentUuids(UserRole.USER, asList(FILE_UUID, file2.uuid()))).containsExactly(file2.uuid());
+    assertThat(session.hasComponentUuidPermission(UserRole.USER, file2.uuid())).isTrue();
+    assertThat(session.hasComponentUuidPermission(UserRole.USER, FILE_UUID)).isFalse();
+  }
+
+  @Test
+  public void keepAuthorizedComponentUuids_returns_all_uuids_if_user_has_global_permission_in_db() {
+    addGlobalPermissions(UserRole.USER);
+    UserSession session = newUserSession(userDto);
+
+    assertThat(session.keepAuthorizedComponentUuids(UserRole.USER, asList(FILE_UUID, "unknown"))).containsExactly(FILE_UUID, "unknown");
+    assertThat(session.keepAuthorizedComponentUuids(UserRole.ADMIN, asList(FILE_UUID, "unknown"))).isEmpty();
+  }
+
+  @Test
+  public void keepAuthorizedComponentUuids_returns_all_uuids_when_flag_is_true_on_UserDto() {
+    UserSession underTest = newUserSession(ROOT_USER_DTO);
+
+    assertThat(underTest.keepAuthorizedComponentUuids("whatever", asList(FILE_UUID, "who cares?"))).containsExactly(FILE_UUID, "who cares?");
+  }
+
   @Test
   public void hasComponentPermission_returns_true_if_user_has_global_permission_in_db() {
     addGlobalPermissions(UserRole.USER);
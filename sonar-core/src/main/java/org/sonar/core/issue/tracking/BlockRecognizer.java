@@ -20,14 +20,11 @@
 package org.sonar.core.issue.tracking;
 
 import com.google.common.collect.LinkedHashMultimap;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
 
@@ -41,56 +38,48 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
 
     Multimap<Integer, RAW> rawsByLine = groupByLine(tracking.getUnmatchedRaws(), rawHashSequence);
     Multimap<Integer, BASE> basesByLine = groupByLine(tracking.getUnmatchedBases(), baseHashSequence);
-    Map<Integer, HashOccurrence> occurrencesByHash = new HashMap<>();
+    HashOccurrences occurrences = new HashOccurrences(basesByLine.keySet().size());
 
     for (Integer line : basesByLine.keySet()) {
-      int hash = baseHashSequence.getBlockHashForLine(line);
-      HashOccurrence hashOccurrence = occurrencesByHash.get(hash);
-      if (hashOccurrence == null) {
-        // first occurrence in base
-        hashOccurrence = new HashOccurrence();
-        hashOccurrence.baseLine = line;
-        hashOccurrence.baseCount = 1;
-        occurrencesByHash.put(hash, hashOccurrence);
-      } else {
-        hashOccurrence.baseCount++;
-      }
+      occurrences.addBaseLine(baseHashSequence.getBlockHashForLine(line), line);
     }
 
     for (Integer line : rawsByLine.keySet()) {
-      int hash = rawHashSequence.getBlockHashForLine(line);
-      HashOccurrence hashOccurrence = occurrencesByHash.get(hash);
-      if (hashOccurrence != null) {
-        hashOccurrence.rawLine = line;
-        hashOccurrence.rawCount++;
-      }
+      occurrences.addRawLine(rawHashSequence.getBlockHashForLine(line), line);
     }
 
-    for (HashOccurrence hashOccurrence : occurrencesByHash.values()) {
-      if (hashOccurrence.baseCount == 1 && hashOccurrence.rawCount == 1) {
+    for (int i = 0; i < occurrences.size; i++) {
+      if (occurrences.baseCounts[i] == 1 && occurrences.rawCounts[i] == 1) {
         // Guaranteed that baseLine has been moved to rawLine, so we can map all issues on baseLine to all issues on rawLine
-        map(rawsByLine.get(hashOccurrence.rawLine), basesByLine.get(hashOccurrence.baseLine), tracking);
-        basesByLine.removeAll(hashOccurrence.baseLine);
-        rawsByLine.removeAll(hashOccurrence.rawLine);
+        int baseLine = occurrences.baseLines[i];
+        int rawLine = occurrences.rawLines[i];
+        map(rawsByLine.get(rawLine), basesByLine.get(baseLine), tracking);
+        basesByLine.removeAll(baseLine);
+        rawsByLine.removeAll(rawLine);
       }
     }
 
     // Check if remaining number of lines exceeds threshold. It avoids processing too many combinations.
-    if (basesByLine.keySet().size() * rawsByLine.keySet().size() >= 250_000) {
+    if (basesByLine.isEmpty() || rawsByLine.isEmpty() || basesByLine.keySet().size() * rawsByLine.keySet().size() >= 250_000) {
+      return;
+    }
+    LineHashSequence baseLineHashes = baseInput.getLineHashSequence();
+    LineHashSequence rawLineHashes = rawInput.getLineHashSequence();
+    if (Math.max(baseLineHashes.length(), rawLineHashes.length()) > LinePairs.MAX_LINES) {
       return;
     }
 
-    List<LinePair> possibleLinePairs = Lists.newArrayList();
-    for (Integer baseLine : basesByLine.keySet()) {
-      for (Integer rawLine : rawsByLine.keySet()) {
-        int weight = lengthOfMaximalBlock(baseInput.getLineHashSequence(), baseLine, rawInput.getLineHashSequence(), rawLine);
-        possibleLinePairs.add(new LinePair(baseLine, rawLine, weight));
+    int[] baseLines = toIntArray(basesByLine.keySet());
+    int[] rawLines = toIntArray(rawsByLine.keySet());
+    LinePairs linePairs = new LinePairs(baseLines.length * rawLines.length);
+    for (int baseLine : baseLines) {
+      for (int rawLine : rawLines) {
+        linePairs.add(lengthOfMaximalBlock(baseLineHashes, baseLine, rawLineHashes, rawLine), Math.abs(baseLine - rawLine));
       }
     }
-    Collections.sort(possibleLinePairs, LinePairComparator.INSTANCE);
-    for (LinePair linePair : possibleLinePairs) {
+    for (int pairIndex : linePairs.sortedIndices()) {
       // High probability that baseLine has been moved to rawLine, so we can map all issues on baseLine to all issues on rawLine
-      map(rawsByLine.get(linePair.rawLine), basesByLine.get(linePair.baseLine), tracking);
+      map(rawsByLine.get(rawLines[pairIndex % rawLines.length]), basesByLine.get(baseLines[pairIndex / rawLines.length]), tracking);
     }
   }
 
@@ -143,36 +132,106 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
     return result;
   }
 
-  private static class LinePair {
-    int baseLine;
-    int rawLine;
-    int weight;
-
-    public LinePair(int baseLine, int rawLine, int weight) {
-      this.baseLine = baseLine;
-      this.rawLine = rawLine;
-      this.weight = weight;
+  private static int[] toIntArray(Collection<Integer> integers) {
+    int[] result = new int[integers.size()];
+    int i = 0;
+    for (Integer integer : integers) {
+      result[i] = integer;
+      i++;
     }
+    return result;
   }
 
-  private static class HashOccurrence {
-    int baseLine;
-    int rawLine;
-    int baseCount;
-    int rawCount;
+  /**
+   * Block hashes of the lines having issues, in order of insertion, with the number of base and raw lines sharing
+   * each hash. Lookup by hash relies on open addressing.
+   */
+  private static class HashOccurrences {
+    private final int[] hashes;
+    private final int[] baseLines;
+    private final int[] rawLines;
+    private final int[] baseCounts;
+    private final int[] rawCounts;
+    private int size = 0;
+
+    private final int[] slots;
+    private final int slotMask;
+
+    HashOccurrences(int maxSize) {
+      this.hashes = new int[maxSize];
+      this.baseLines = new int[maxSize];
+      this.rawLines = new int[maxSize];
+      this.baseCounts = new int[maxSize];
+      this.rawCounts = new int[maxSize];
+      // load factor is at most 0.5. Slots contain index + 1, zero meaning empty slot.
+      int capacity = Integer.highestOneBit(Math.max(1, 2 * maxSize - 1)) << 1;
+      this.slots = new int[capacity];
+      this.slotMask = capacity - 1;
+    }
+
+    void addBaseLine(int hash, int line) {
+      int slot = slotOf(hash);
+      if (slots[slot] == 0) {
+        // first occurrence in base
+        hashes[size] = hash;
+        baseLines[size] = line;
+        baseCounts[size] = 1;
+        size++;
+        slots[slot] = size;
+      } else {
+        baseCounts[slots[slot] - 1]++;
+      }
+    }
+
+    void addRawLine(int hash, int line) {
+      int index = slots[slotOf(hash)] - 1;
+      if (index >= 0) {
+        rawLines[index] = line;
+        rawCounts[index]++;
+      }
+    }
+
+    private int slotOf(int hash) {
+      int slot = (hash * 0x9E3779B9) & slotMask;
+      while (slots[slot] != 0 && hashes[slots[slot] - 1] != hash) {
+        slot = (slot + 1) & slotMask;
+      }
+      return slot;
+    }
   }
 
-  private enum LinePairComparator implements Comparator<LinePair> {
-    INSTANCE;
+  /**
+   * Pairs of (base line, raw line) are sorted by descending weight, then by ascending distance between lines, then by order
+   * of insertion. These three values are encoded in a single long, so that pairs are sorted without allocating objects.
+   */
+  private static class LinePairs {
+    private static final int INDEX_BITS = 18;
+    private static final int DISTANCE_BITS = 22;
+    private static final int WEIGHT_BITS = 22;
+    static final int MAX_LINES = (1 << DISTANCE_BITS) - 1;
+
+    private final long[] pairs;
+    private int size = 0;
+
+    LinePairs(int maxSize) {
+      // guaranteed by the threshold of 250'000 pairs
+      checkArgument(maxSize <= (1 << INDEX_BITS), "Too many line pairs: %s", maxSize);
+      this.pairs = new long[maxSize];
+    }
 
-    @Override
-    public int compare(LinePair o1, LinePair o2) {
-      int weightDiff = o2.weight - o1.weight;
-      if (weightDiff != 0) {
-        return weightDiff;
-      } else {
-        return Math.abs(o1.baseLine - o1.rawLine) - Math.abs(o2.baseLine - o2.rawLine);
+    void add(int weight, int distance) {
+      long reversedWeight = (long) ((1 << WEIGHT_BITS) - 1 - weight);
+      pairs[size] = (reversedWeight << (DISTANCE_BITS + INDEX_BITS)) | ((long) distance << INDEX_BITS) | size;
+      size++;
+    }
+
+    int[] sortedIndices() {
+      Arrays.sort(pairs, 0, size);
+      int[] indices = new int[size];
+      for (int i = 0; i < size; i++) {
+        indices[i] = (int) (pairs[i] & ((1 << INDEX_BITS) - 1));
       }
+      return indices;
     }
   }
 }
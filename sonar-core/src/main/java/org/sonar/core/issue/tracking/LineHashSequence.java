@@ -37,18 +37,14 @@ public class LineHashSequence {
    * Hashes of lines. Line 1 is at index 0. No null elements.
    */
   private final List<String> hashes;
-  private final SetMultimap<String, Integer> lineByHash;
+  /**
+   * Lines by hash, lazily built on first call to {@link #getLinesForHash(String)} as
+   * it is not needed by most trackings and is costly for large files.
+   */
+  private SetMultimap<String, Integer> lineByHash;
 
   public LineHashSequence(List<String> hashes) {
     this.hashes = hashes;
-    this.lineByHash = HashMultimap.create();
-    
-    int lineNo = 1;
-    
-    for (String hash : hashes) {
-      lineByHash.put(hash, lineNo);
-      lineNo++;
-    }
   }
 
   /**
@@ -69,6 +65,14 @@ public class LineHashSequence {
    * The lines, starting with 1, that matches the given hash.
    */
   public Set<Integer> getLinesForHash(String hash) {
+    if (lineByHash == null) {
+      lineByHash = HashMultimap.create();
+      int lineNo = 1;
+      for (String h : hashes) {
+        lineByHash.put(h, lineNo);
+        lineNo++;
+      }
+    }
     return lineByHash.get(hash);
   }
 
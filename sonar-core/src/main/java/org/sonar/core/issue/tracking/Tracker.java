@@ -19,11 +19,12 @@
  */
 package org.sonar.core.issue.tracking;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import javax.annotation.Nonnull;
+import javax.annotation.CheckForNull;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.InstantiationStrategy;
@@ -35,22 +36,23 @@ public class Tracker<RAW extends Trackable, BASE extends Trackable> {
 
   public Tracking<RAW, BASE> track(Input<RAW> rawInput, Input<BASE> baseInput) {
     Tracking<RAW, BASE> tracking = new Tracking<>(rawInput, baseInput);
+    RuleIds ruleIds = new RuleIds();
 
     // 1. match issues with same rule, same line and same line hash, but not necessarily with same message
-    match(tracking, LineAndLineHashKeyFactory.INSTANCE);
+    match(tracking, SearchKey.LINE_AND_LINE_HASH, ruleIds);
 
     // 2. detect code moves by comparing blocks of codes
     detectCodeMoves(rawInput, baseInput, tracking);
 
     // 3. match issues with same rule, same message and same line hash
-    match(tracking, LineHashAndMessageKeyFactory.INSTANCE);
+    match(tracking, SearchKey.LINE_HASH_AND_MESSAGE, ruleIds);
 
     // 4. match issues with same rule, same line and same message
-    match(tracking, LineAndMessageKeyFactory.INSTANCE);
+    match(tracking, SearchKey.LINE_AND_MESSAGE, ruleIds);
 
     // 5. match issues with same rule and same line hash but different line and different message.
     // See SONAR-2812
-    match(tracking, LineHashKeyFactory.INSTANCE);
+    match(tracking, SearchKey.LINE_HASH, ruleIds);
 
     return tracking;
   }
@@ -61,189 +63,219 @@ public class Tracker<RAW extends Trackable, BASE extends Trackable> {
     }
   }
 
-  private void match(Tracking<RAW, BASE> tracking, SearchKeyFactory factory) {
+  private void match(Tracking<RAW, BASE> tracking, SearchKey searchKey, RuleIds ruleIds) {
     if (tracking.isComplete()) {
       return;
     }
 
-    Multimap<SearchKey, BASE> baseSearch = ArrayListMultimap.create();
-    for (BASE base : tracking.getUnmatchedBases()) {
-      baseSearch.put(factory.create(base), base);
+    List<BASE> bases = new ArrayList<>();
+    tracking.getUnmatchedBases().forEach(bases::add);
+    if (bases.isEmpty()) {
+      return;
     }
+    BaseSearch<BASE> baseSearch = new BaseSearch<>(bases, searchKey, ruleIds);
 
     for (RAW raw : tracking.getUnmatchedRaws()) {
-      SearchKey rawKey = factory.create(raw);
-      Collection<BASE> bases = baseSearch.get(rawKey);
-      if (!bases.isEmpty()) {
-        // TODO taking the first one. Could be improved if there are more than 2 issues on the same line.
-        // Message could be checked to take the best one.
-        BASE match = bases.iterator().next();
+      // TODO taking the first one. Could be improved if there are more than 2 issues on the same line.
+      // Message could be checked to take the best one.
+      BASE match = baseSearch.pollFirst(raw);
+      if (match != null) {
         tracking.match(raw, match);
-        baseSearch.remove(rawKey, match);
       }
     }
   }
 
-  private interface SearchKey {
-  }
-
-  private interface SearchKeyFactory {
-    SearchKey create(Trackable trackable);
-  }
-
-  private static class LineAndLineHashKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String lineHash;
-    private final Integer line;
+  /**
+   * Rule keys are replaced by integers, so that they are hashed and compared only once per issue
+   */
+  private static final class RuleIds {
+    private final Map<RuleKey, Integer> idsByRuleKey = new HashMap<>();
 
-    LineAndLineHashKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.line = trackable.getLine();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
+    int getOrCreate(RuleKey ruleKey) {
+      return idsByRuleKey.computeIfAbsent(ruleKey, k -> idsByRuleKey.size());
     }
 
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
-      }
-      LineAndLineHashKey that = (LineAndLineHashKey) o;
-      // start with most discriminant field
-      return Objects.equals(line, that.line)
-        && lineHash.equals(that.lineHash)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + lineHash.hashCode();
-      result = 31 * result + (line != null ? line.hashCode() : 0);
-      return result;
+    /**
+     * @return -1 if rule is unknown, so that no issues can match
+     */
+    int get(RuleKey ruleKey) {
+      Integer id = idsByRuleKey.get(ruleKey);
+      return id == null ? -1 : id;
     }
   }
 
-  private enum LineAndLineHashKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineAndLineHashKey(t);
+  /**
+   * Index of base issues by 64-bit hash of their search key. It is an open-addressing table of linked lists of
+   * base issues, which are stored in int arrays. Lists keep the order of base issues and
+   * contain issues with the same hash, which can have different search keys in case of collision.
+   */
+  private static final class BaseSearch<BASE extends Trackable> {
+    private final List<BASE> bases;
+    private final SearchKey searchKey;
+    private final RuleIds ruleIds;
+    private final int[] baseRuleIds;
+    private final boolean[] matchedBases;
+    private final int[] nextBases;
+
+    private final int slotMask;
+    private final boolean[] usedSlots;
+    private final long[] slotHashes;
+    private final int[] slotFirstBases;
+    private final int[] slotLastBases;
+
+    BaseSearch(List<BASE> bases, SearchKey searchKey, RuleIds ruleIds) {
+      this.bases = bases;
+      this.searchKey = searchKey;
+      this.ruleIds = ruleIds;
+      int size = bases.size();
+      this.baseRuleIds = new int[size];
+      this.matchedBases = new boolean[size];
+      this.nextBases = new int[size];
+
+      // load factor is at most 0.5
+      int capacity = Integer.highestOneBit(2 * size - 1) << 1;
+      this.slotMask = capacity - 1;
+      this.usedSlots = new boolean[capacity];
+      this.slotHashes = new long[capacity];
+      this.slotFirstBases = new int[capacity];
+      this.slotLastBases = new int[capacity];
+
+      for (int i = 0; i < size; i++) {
+        BASE base = bases.get(i);
+        int ruleId = ruleIds.getOrCreate(base.getRuleKey());
+        baseRuleIds[i] = ruleId;
+        nextBases[i] = -1;
+        long hash = searchKey.hash(ruleId, base);
+        int slot = slotOf(hash);
+        if (usedSlots[slot]) {
+          nextBases[slotLastBases[slot]] = i;
+        } else {
+          usedSlots[slot] = true;
+          slotHashes[slot] = hash;
+          slotFirstBases[slot] = i;
+        }
+        slotLastBases[slot] = i;
+      }
     }
-  }
-
-  private static class LineHashAndMessageKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String message;
-    private final String lineHash;
 
-    LineHashAndMessageKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.message = trackable.getMessage();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
+    /**
+     * Returns the first unmatched base issue with the same search key than the raw issue, and marks it as matched.
+     */
+    @CheckForNull
+    BASE pollFirst(Trackable raw) {
+      int ruleId = ruleIds.get(raw.getRuleKey());
+      if (ruleId < 0) {
+        return null;
+      }
+      int slot = slotOf(searchKey.hash(ruleId, raw));
+      if (!usedSlots[slot]) {
+        return null;
+      }
+      for (int i = slotFirstBases[slot]; i >= 0; i = nextBases[i]) {
+        if (!matchedBases[i] && baseRuleIds[i] == ruleId && searchKey.matches(raw, bases.get(i))) {
+          matchedBases[i] = true;
+          skipMatchedBases(slot);
+          return bases.get(i);
+        }
+      }
+      return null;
     }
 
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
+    /**
+     * Lists are not relinked when a base issue is matched. Only the leading matched issues are skipped,
+     * which is enough to avoid quadratic complexity when many issues have the same key.
+     */
+    private void skipMatchedBases(int slot) {
+      int first = slotFirstBases[slot];
+      while (first >= 0 && matchedBases[first]) {
+        first = nextBases[first];
       }
-      LineHashAndMessageKey that = (LineHashAndMessageKey) o;
-      // start with most discriminant field
-      return lineHash.equals(that.lineHash)
-        && message.equals(that.message)
-        && ruleKey.equals(that.ruleKey);
+      slotFirstBases[slot] = first;
     }
 
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + message.hashCode();
-      result = 31 * result + lineHash.hashCode();
-      return result;
+    private int slotOf(long hash) {
+      int slot = spread(hash) & slotMask;
+      while (usedSlots[slot] && slotHashes[slot] != hash) {
+        slot = (slot + 1) & slotMask;
+      }
+      return slot;
     }
-  }
 
-  private enum LineHashAndMessageKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineHashAndMessageKey(t);
+    private static int spread(long hash) {
+      long h = hash ^ (hash >>> 33);
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      return (int) h;
     }
   }
 
-  private static class LineAndMessageKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String message;
-    private final Integer line;
+  /**
+   * The rule is part of all the search keys. Hashes combine the rule id with the hash codes of
+   * the other fields. As they may collide, fields are compared with {@link #matches(Trackable, Trackable)}.
+   */
+  private enum SearchKey {
+    LINE_AND_LINE_HASH {
+      @Override
+      long hash(int ruleId, Trackable t) {
+        return combine(ruleId, Objects.hashCode(t.getLine()), lineHash(t).hashCode());
+      }
 
-    LineAndMessageKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.message = trackable.getMessage();
-      this.line = trackable.getLine();
-    }
+      @Override
+      boolean matches(Trackable t1, Trackable t2) {
+        // start with most discriminant field
+        return Objects.equals(t1.getLine(), t2.getLine()) && lineHash(t1).equals(lineHash(t2));
+      }
+    },
 
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
+    LINE_HASH_AND_MESSAGE {
+      @Override
+      long hash(int ruleId, Trackable t) {
+        return combine(ruleId, Objects.hashCode(t.getMessage()), lineHash(t).hashCode());
       }
-      LineAndMessageKey that = (LineAndMessageKey) o;
-      // start with most discriminant field
-      return Objects.equals(line, that.line)
-        && message.equals(that.message)
-        && ruleKey.equals(that.ruleKey);
-    }
 
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + message.hashCode();
-      result = 31 * result + (line != null ? line.hashCode() : 0);
-      return result;
-    }
-  }
+      @Override
+      boolean matches(Trackable t1, Trackable t2) {
+        return lineHash(t1).equals(lineHash(t2)) && Objects.equals(t1.getMessage(), t2.getMessage());
+      }
+    },
 
-  private enum LineAndMessageKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineAndMessageKey(t);
-    }
-  }
+    LINE_AND_MESSAGE {
+      @Override
+      long hash(int ruleId, Trackable t) {
+        return combine(ruleId, Objects.hashCode(t.getMessage()), Objects.hashCode(t.getLine()));
+      }
 
-  private static class LineHashKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String lineHash;
+      @Override
+      boolean matches(Trackable t1, Trackable t2) {
+        return Objects.equals(t1.getLine(), t2.getLine()) && Objects.equals(t1.getMessage(), t2.getMessage());
+      }
+    },
 
-    LineHashKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
-    }
+    LINE_HASH {
+      @Override
+      long hash(int ruleId, Trackable t) {
+        return combine(ruleId, 0, lineHash(t).hashCode());
+      }
 
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
+      @Override
+      boolean matches(Trackable t1, Trackable t2) {
+        return lineHash(t1).equals(lineHash(t2));
       }
-      LineHashKey that = (LineHashKey) o;
-      // start with most discriminant field
-      return lineHash.equals(that.lineHash)
-        && ruleKey.equals(that.ruleKey);
-    }
+    };
+
+    abstract long hash(int ruleId, Trackable t);
 
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + lineHash.hashCode();
-      return result;
+    /**
+     * Compares the fields of search key, except rule.
+     */
+    abstract boolean matches(Trackable t1, Trackable t2);
+
+    private static long combine(int ruleId, int hash1, int hash2) {
+      return ((long) ruleId << 32) ^ (hash1 * 0x9E3779B97F4A7C15L) ^ (hash2 & 0xFFFFFFFFL);
     }
-  }
 
-  private enum LineHashKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineHashKey(t);
+    private static String lineHash(Trackable t) {
+      return StringUtils.defaultString(t.getLineHash(), "");
     }
   }
 }
@@ -22,17 +22,22 @@ package org.sonar.core.platform;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.Closeable;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.lang.SystemUtils;
 import org.sonar.api.Plugin;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.updatecenter.common.Version;
 
 import static java.util.Arrays.asList;
+import static org.sonar.core.util.FutureUtils.waitFor;
 
 /**
  * Loads the plugin JAR files by creating the appropriate classloaders and by instantiating
@@ -80,6 +85,7 @@ public class PluginLoader {
   @VisibleForTesting
   Collection<PluginClassLoaderDef> defineClassloaders(Map<String, PluginInfo> infoByKeys) {
     Map<String, PluginClassLoaderDef> classloadersByBasePlugin = new HashMap<>();
+    Map<String, ExplodedPlugin> explodedPluginsByKey = explode(infoByKeys.values());
 
     for (PluginInfo info : infoByKeys.values()) {
       String baseKey = basePluginKey(info, infoByKeys);
@@ -88,7 +94,7 @@ public class PluginLoader {
         def = new PluginClassLoaderDef(baseKey);
         classloadersByBasePlugin.put(baseKey, def);
       }
-      ExplodedPlugin explodedPlugin = jarExploder.explode(info);
+      ExplodedPlugin explodedPlugin = explodedPluginsByKey.get(info.getKey());
       def.addFiles(asList(explodedPlugin.getMain()));
       def.addFiles(explodedPlugin.getLibs());
       def.addMainClass(info.getKey(), info.getMainClass());
@@ -115,6 +121,30 @@ public class PluginLoader {
     return classloadersByBasePlugin.values();
   }
 
+  /**
+   * Each plugin is exploded in its own directory, so JAR files are unzipped concurrently.
+   */
+  private Map<String, ExplodedPlugin> explode(Collection<PluginInfo> infos) {
+    Map<String, ExplodedPlugin> explodedPluginsByKey = new HashMap<>();
+    if (infos.isEmpty()) {
+      return explodedPluginsByKey;
+    }
+    int threads = Math.min(infos.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("PluginExploder-%d").build());
+    try {
+      Map<String, Future<ExplodedPlugin>> tasks = new HashMap<>();
+      for (PluginInfo info : infos) {
+        tasks.put(info.getKey(), executorService.submit(() -> jarExploder.explode(info)));
+      }
+      for (Map.Entry<String, Future<ExplodedPlugin>> task : tasks.entrySet()) {
+        explodedPluginsByKey.put(task.getKey(), waitFor(task.getValue()));
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+    return explodedPluginsByKey;
+  }
+
   private static boolean isPrivileged(String basePluginKey) {
     return PRIVILEGED_PLUGINS_BASE_KEYS.contains(basePluginKey);
   }
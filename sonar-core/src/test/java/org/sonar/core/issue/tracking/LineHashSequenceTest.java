@@ -0,0 +1,49 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LineHashSequenceTest {
+
+  @Test
+  public void test() {
+    LineHashSequence seq = new LineHashSequence(asList("h1", "h2", "h1"));
+
+    assertThat(seq.length()).isEqualTo(3);
+    assertThat(seq.hasLine(0)).isFalse();
+    assertThat(seq.hasLine(3)).isTrue();
+    assertThat(seq.hasLine(4)).isFalse();
+    assertThat(seq.getHashForLine(2)).isEqualTo("h2");
+    assertThat(seq.getHashForLine(4)).isEmpty();
+  }
+
+  @Test
+  public void get_lines_for_hash() {
+    LineHashSequence seq = new LineHashSequence(asList("h1", "h2", "h1"));
+
+    assertThat(seq.getLinesForHash("h1")).containsOnly(1, 3);
+    assertThat(seq.getLinesForHash("h2")).containsOnly(2);
+    assertThat(seq.getLinesForHash("h3")).isEmpty();
+  }
+}
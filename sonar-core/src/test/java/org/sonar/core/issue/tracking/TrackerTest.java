@@ -157,6 +157,47 @@ public class TrackerTest {
     assertThat(tracking.baseFor(raw)).isSameAs(base);
   }
 
+  @Test
+  public void issues_with_same_key_are_matched_in_order() {
+    FakeInput baseInput = new FakeInput("H1", "H2");
+    Issue base1 = baseInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+    Issue base2 = baseInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+    Issue base3 = baseInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+
+    FakeInput rawInput = new FakeInput("H1", "H2");
+    Issue raw1 = rawInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+    Issue raw2 = rawInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+
+    Tracking<Issue, Issue> tracking = tracker.track(rawInput, baseInput);
+    assertThat(tracking.baseFor(raw1)).isSameAs(base1);
+    assertThat(tracking.baseFor(raw2)).isSameAs(base2);
+    assertThat(tracking.getUnmatchedBases()).containsOnly(base3);
+  }
+
+  @Test
+  public void track_thousands_of_issues() {
+    String[] hashes = new String[1_000];
+    for (int i = 0; i < hashes.length; i++) {
+      hashes[i] = "H" + (i % 100);
+    }
+    FakeInput baseInput = new FakeInput(hashes);
+    FakeInput rawInput = new FakeInput(hashes);
+    List<Issue> raws = new ArrayList<>();
+    List<Issue> bases = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      int line = 1 + (i % hashes.length);
+      RuleKey ruleKey = RuleKey.of("java", "S" + (i % 20));
+      bases.add(baseInput.createIssueOnLine(line, ruleKey, "msg" + (i % 7)));
+      raws.add(rawInput.createIssueOnLine(line, ruleKey, "msg" + (i % 7)));
+    }
+
+    Tracking<Issue, Issue> tracking = tracker.track(rawInput, baseInput);
+
+    for (int i = 0; i < raws.size(); i++) {
+      assertThat(tracking.baseFor(raws.get(i))).isSameAs(bases.get(i));
+    }
+  }
+
   @Test
   public void do_not_fail_if_base_issue_without_line() {
     FakeInput baseInput = new FakeInput("H1", "H2");
@@ -38,6 +38,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class PluginLoaderTest {
 
@@ -92,6 +93,22 @@ public class PluginLoaderTest {
     assertThat(def.isCompatibilityMode()).isFalse();
   }
 
+  @Test
+  public void fail_if_a_plugin_can_not_be_exploded() throws Exception {
+    PluginJarExploder exploder = mock(PluginJarExploder.class);
+    PluginInfo info = new PluginInfo("foo")
+      .setJarFile(temp.newFile())
+      .setMainClass("org.foo.FooPlugin");
+    when(exploder.explode(info)).thenThrow(new IllegalStateException("Fail to open plugin [foo]"));
+
+    try {
+      new PluginLoader(exploder, classloaderFactory).defineClassloaders(ImmutableMap.of("foo", info));
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to open plugin [foo]");
+    }
+  }
+
   @Test
   public void enable_compatibility_mode_if_plugin_is_built_before_5_2() throws Exception {
     File jarFile = temp.newFile();
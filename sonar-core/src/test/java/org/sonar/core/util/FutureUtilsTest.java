@@ -0,0 +1,82 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.util;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class FutureUtilsTest {
+
+  @After
+  public void clearInterruptedStatus() {
+    Thread.interrupted();
+  }
+
+  @Test
+  public void waitFor_returns_result_of_task() {
+    assertThat(FutureUtils.waitFor(CompletableFuture.completedFuture("foo"))).isEqualTo("foo");
+  }
+
+  @Test
+  public void waitFor_rethrows_unchecked_exception_of_task() {
+    IllegalArgumentException cause = new IllegalArgumentException("bar");
+    try {
+      FutureUtils.waitFor(failedFuture(cause));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).isSameAs(cause);
+    }
+  }
+
+  @Test
+  public void waitFor_wraps_checked_exception_of_task() {
+    IOException cause = new IOException("bar");
+    try {
+      FutureUtils.waitFor(failedFuture(cause));
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e.getCause()).isSameAs(cause);
+    }
+  }
+
+  @Test
+  public void waitFor_fails_and_keeps_interrupted_status_if_thread_is_interrupted() {
+    Thread.currentThread().interrupt();
+    try {
+      FutureUtils.waitFor(new CompletableFuture<>());
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e.getCause()).isInstanceOf(InterruptedException.class);
+      assertThat(Thread.currentThread().isInterrupted()).isTrue();
+    }
+  }
+
+  private static Future<String> failedFuture(Throwable cause) {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    future.completeExceptionally(cause);
+    return future;
+  }
+}
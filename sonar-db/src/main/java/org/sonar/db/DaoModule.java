@@ -44,6 +44,7 @@ import org.sonar.db.notification.NotificationQueueDao;
 import org.sonar.db.organization.OrganizationDao;
 import org.sonar.db.permission.AuthorizationDao;
 import org.sonar.db.permission.GroupPermissionDao;
+import org.sonar.db.permission.PermissionIndexQueueDao;
 import org.sonar.db.permission.UserPermissionDao;
 import org.sonar.db.permission.template.PermissionTemplateCharacteristicDao;
 import org.sonar.db.permission.template.PermissionTemplateDao;
@@ -67,6 +68,7 @@ import org.sonar.db.user.UserDao;
 import org.sonar.db.user.UserGroupDao;
 import org.sonar.db.user.UserTokenDao;
 import org.sonar.db.webhook.WebhookDeliveryDao;
+import org.sonar.db.webhook.WebhookQueueDao;
 
 public class DaoModule extends Module {
   private static final List<Class<? extends Dao>> classes = ImmutableList.<Class<? extends Dao>>builder().add(
@@ -92,6 +94,7 @@ public class DaoModule extends Module {
     NotificationQueueDao.class,
     OrganizationDao.class,
     GroupPermissionDao.class,
+    PermissionIndexQueueDao.class,
     PermissionTemplateDao.class,
     PermissionTemplateCharacteristicDao.class,
     PropertiesDao.class,
@@ -114,7 +117,8 @@ public class DaoModule extends Module {
     UserGroupDao.class,
     UserPermissionDao.class,
     UserTokenDao.class,
-    WebhookDeliveryDao.class).build();
+    WebhookDeliveryDao.class,
+    WebhookQueueDao.class).build();
 
   @Override
   protected void configureModule() {
@@ -44,6 +44,7 @@ import org.sonar.db.notification.NotificationQueueDao;
 import org.sonar.db.organization.OrganizationDao;
 import org.sonar.db.permission.AuthorizationDao;
 import org.sonar.db.permission.GroupPermissionDao;
+import org.sonar.db.permission.PermissionIndexQueueDao;
 import org.sonar.db.permission.UserPermissionDao;
 import org.sonar.db.permission.template.PermissionTemplateCharacteristicDao;
 import org.sonar.db.permission.template.PermissionTemplateDao;
@@ -67,6 +68,7 @@ import org.sonar.db.user.UserDao;
 import org.sonar.db.user.UserGroupDao;
 import org.sonar.db.user.UserTokenDao;
 import org.sonar.db.webhook.WebhookDeliveryDao;
+import org.sonar.db.webhook.WebhookQueueDao;
 
 public class DbClient {
 
@@ -90,6 +92,7 @@ public class DbClient {
   private final RoleDao roleDao;
   private final GroupPermissionDao groupPermissionDao;
   private final PermissionTemplateDao permissionTemplateDao;
+  private final PermissionIndexQueueDao permissionIndexQueueDao;
   private final PermissionTemplateCharacteristicDao permissionTemplateCharacteristicDao;
   private final IssueDao issueDao;
   private final IssueChangeDao issueChangeDao;
@@ -117,6 +120,7 @@ public class DbClient {
   private final QProfileChangeDao qProfileChangeDao;
   private final UserPermissionDao userPermissionDao;
   private final WebhookDeliveryDao webhookDeliveryDao;
+  private final WebhookQueueDao webhookQueueDao;
 
   public DbClient(Database database, MyBatis myBatis, Dao... daos) {
     this.database = database;
@@ -144,6 +148,7 @@ public class DbClient {
     roleDao = getDao(map, RoleDao.class);
     groupPermissionDao = getDao(map, GroupPermissionDao.class);
     permissionTemplateDao = getDao(map, PermissionTemplateDao.class);
+    permissionIndexQueueDao = getDao(map, PermissionIndexQueueDao.class);
     permissionTemplateCharacteristicDao = getDao(map, PermissionTemplateCharacteristicDao.class);
     issueDao = getDao(map, IssueDao.class);
     issueChangeDao = getDao(map, IssueChangeDao.class);
@@ -171,6 +176,7 @@ public class DbClient {
     qProfileChangeDao = getDao(map, QProfileChangeDao.class);
     userPermissionDao = getDao(map, UserPermissionDao.class);
     webhookDeliveryDao = getDao(map, WebhookDeliveryDao.class);
+    webhookQueueDao = getDao(map, WebhookQueueDao.class);
   }
 
   public DbSession openSession(boolean batch) {
@@ -265,6 +271,10 @@ public class DbClient {
     return permissionTemplateDao;
   }
 
+  public PermissionIndexQueueDao permissionIndexQueueDao() {
+    return permissionIndexQueueDao;
+  }
+
   public PermissionTemplateCharacteristicDao permissionTemplateCharacteristicDao() {
     return permissionTemplateCharacteristicDao;
   }
@@ -365,6 +375,10 @@ public class DbClient {
     return webhookDeliveryDao;
   }
 
+  public WebhookQueueDao webhookQueueDao() {
+    return webhookQueueDao;
+  }
+
   protected <K extends Dao> K getDao(Map<Class, Dao> map, Class<K> clazz) {
     return (K) map.get(clazz);
   }
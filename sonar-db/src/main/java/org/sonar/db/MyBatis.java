@@ -24,6 +24,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import javax.annotation.Nullable;
 import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
@@ -71,6 +72,7 @@ import org.sonar.db.organization.OrganizationMapper;
 import org.sonar.db.permission.AuthorizationMapper;
 import org.sonar.db.permission.GroupPermissionDto;
 import org.sonar.db.permission.GroupPermissionMapper;
+import org.sonar.db.permission.PermissionIndexQueueMapper;
 import org.sonar.db.permission.UserPermissionDto;
 import org.sonar.db.permission.UserPermissionMapper;
 import org.sonar.db.permission.template.PermissionTemplateCharacteristicDto;
@@ -79,6 +81,8 @@ import org.sonar.db.permission.template.PermissionTemplateDto;
 import org.sonar.db.permission.template.PermissionTemplateGroupDto;
 import org.sonar.db.permission.template.PermissionTemplateMapper;
 import org.sonar.db.permission.template.PermissionTemplateUserDto;
+import org.sonar.db.profiling.SqlStatementStatistics;
+import org.sonar.db.profiling.SqlStatementStatisticsInterceptor;
 import org.sonar.db.property.InternalPropertiesMapper;
 import org.sonar.db.property.InternalPropertyDto;
 import org.sonar.db.property.PropertiesMapper;
@@ -123,10 +127,12 @@ import org.sonar.db.version.v45.Migration45Mapper;
 import org.sonar.db.version.v50.Migration50Mapper;
 import org.sonar.db.version.v53.Migration53Mapper;
 import org.sonar.db.webhook.WebhookDeliveryMapper;
+import org.sonar.db.webhook.WebhookQueueMapper;
 
 public class MyBatis {
 
   private final Database database;
+  private final SqlStatementStatistics statementStatistics = new SqlStatementStatistics();
   private SqlSessionFactory sessionFactory;
 
   public MyBatis(Database database) {
@@ -231,6 +237,7 @@ public class MyBatis {
       Migration53Mapper.class,
       NotificationQueueMapper.class,
       OrganizationMapper.class,
+      PermissionIndexQueueMapper.class,
       PermissionTemplateCharacteristicMapper.class,
       PermissionTemplateMapper.class,
       ProjectQgateAssociationMapper.class,
@@ -250,11 +257,14 @@ public class MyBatis {
       UserMapper.class,
       UserPermissionMapper.class,
       UserTokenMapper.class,
-      WebhookDeliveryMapper.class
+      WebhookDeliveryMapper.class,
+      WebhookQueueMapper.class
     };
     confBuilder.loadMappers(mappers);
 
-    sessionFactory = new SqlSessionFactoryBuilder().build(confBuilder.build());
+    Configuration conf = confBuilder.build();
+    conf.addInterceptor(new SqlStatementStatisticsInterceptor(statementStatistics));
+    sessionFactory = new SqlSessionFactoryBuilder().build(conf);
     return this;
   }
 
@@ -262,6 +272,13 @@ public class MyBatis {
     return sessionFactory;
   }
 
+  /**
+   * Statistics of the statements executed since startup, aggregated by MyBatis statement id
+   */
+  public SqlStatementStatistics getStatementStatistics() {
+    return statementStatistics;
+  }
+
   /**
    * @deprecated since 4.4. Replaced by <code>openSession(false)</code>.
    */
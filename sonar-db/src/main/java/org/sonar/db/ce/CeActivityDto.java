@@ -50,6 +50,13 @@ public class CeActivityDto {
   private long createdAt;
   private long updatedAt;
   private Long executionTimeMs;
+  /**
+   * Peak of the live heap of the whole Compute Engine JVM while the task was executed, ie. the heap used right
+   * after the garbage collections which occurred during the task. This is not the memory used by the task alone: it
+   * includes the memory used by the tasks executed concurrently. Null for activity created before the column has been
+   * introduced, for canceled tasks and when no garbage collection occurred during the task.
+   */
+  private Long ceHeapPeakBytes;
   /**
    * The error message of the activity. Shall be non null only when status is FAILED. When status is FAILED, can be null
    * (eg. for activity created before the column has been introduced).
@@ -205,6 +212,17 @@ public class CeActivityDto {
     return this;
   }
 
+  @CheckForNull
+  public Long getCeHeapPeakBytes() {
+    return ceHeapPeakBytes;
+  }
+
+  public CeActivityDto setCeHeapPeakBytes(@Nullable Long l) {
+    checkArgument(l == null || l >= 0, "Heap peak must be positive: %s", l);
+    this.ceHeapPeakBytes = l;
+    return this;
+  }
+
   @CheckForNull
   public String getAnalysisUuid() {
     return analysisUuid;
@@ -272,6 +290,7 @@ public class CeActivityDto {
       .add("createdAt", createdAt)
       .add("updatedAt", updatedAt)
       .add("executionTimeMs", executionTimeMs)
+      .add("ceHeapPeakBytes", ceHeapPeakBytes)
       .add("errorMessage", errorMessage)
       .add("errorStacktrace", errorStacktrace)
       .add("hasScannerContext", hasScannerContext)
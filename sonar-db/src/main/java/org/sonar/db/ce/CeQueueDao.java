@@ -33,7 +33,6 @@ import static org.sonar.db.ce.CeQueueDto.Status.PENDING;
 
 public class CeQueueDao implements Dao {
 
-  private static final RowBounds ONE_ROW_LIMIT = new RowBounds(0, 1);
 
   private final System2 system2;
 
@@ -100,6 +99,13 @@ public class CeQueueDao implements Dao {
     mapper(session).resetAllToPendingStatus(system2.now());
   }
 
+  /**
+   * Gives back to the queue a task which has been peeked but could not be started.
+   */
+  public void resetToPendingStatus(DbSession session, String taskUuid) {
+    mapper(session).updateIfStatus(taskUuid, PENDING, null, system2.now(), IN_PROGRESS);
+  }
+
   public int countByStatus(DbSession dbSession, CeQueueDto.Status status) {
     return mapper(dbSession).countByStatusAndComponentUuid(status, null);
   }
@@ -108,17 +114,18 @@ public class CeQueueDao implements Dao {
     return mapper(dbSession).countByStatusAndComponentUuid(status, componentUuid);
   }
 
-  public Optional<CeQueueDto> peek(DbSession session) {
-    List<String> taskUuids = mapper(session).selectEligibleForPeek(ONE_ROW_LIMIT);
-    if (taskUuids.isEmpty()) {
-      return Optional.absent();
-    }
-
-    String taskUuid = taskUuids.get(0);
-    return tryToPeek(session, taskUuid);
+  /**
+   * The tasks which could be peeked, oldest first.
+   */
+  public List<CeQueueDto> selectEligibleForPeek(DbSession session, int maxResults) {
+    return mapper(session).selectEligibleForPeek(new RowBounds(0, maxResults));
   }
 
-  private Optional<CeQueueDto> tryToPeek(DbSession session, String taskUuid) {
+  /**
+   * Updates the status of the specified task to {@link CeQueueDto.Status#IN_PROGRESS} if it is still
+   * {@link CeQueueDto.Status#PENDING}. Empty if the task has been peeked by someone else in the meantime.
+   */
+  public Optional<CeQueueDto> tryToPeek(DbSession session, String taskUuid) {
     int touchedRows = mapper(session).updateIfStatus(taskUuid, IN_PROGRESS, system2.now(), system2.now(), PENDING);
     if (touchedRows != 1) {
       return Optional.absent();
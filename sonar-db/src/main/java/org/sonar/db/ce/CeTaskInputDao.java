@@ -80,6 +80,13 @@ public class CeTaskInputDao implements Dao {
     }
   }
 
+  /**
+   * Size in bytes of the data of the specified task, without loading it. Empty if the task has no data.
+   */
+  public Optional<Long> selectDataSize(DbSession dbSession, String taskUuid) {
+    return Optional.ofNullable(dbSession.getMapper(CeTaskInputMapper.class).selectDataSize(taskUuid));
+  }
+
   public List<String> selectUuidsNotInQueue(DbSession dbSession) {
     return dbSession.getMapper(CeTaskInputMapper.class).selectUuidsNotInQueue();
   }
@@ -20,6 +20,7 @@
 package org.sonar.db.ce;
 
 import java.util.List;
+import javax.annotation.CheckForNull;
 import org.apache.ibatis.annotations.Param;
 
 public interface CeTaskInputMapper {
@@ -28,4 +29,7 @@ public interface CeTaskInputMapper {
 
   List<String> selectUuidsNotInQueue();
 
+  @CheckForNull
+  Long selectDataSize(@Param("taskUuid") String taskUuid);
+
 }
@@ -25,16 +25,27 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import javax.annotation.Nullable;
 import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.dialect.Oracle;
 
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
 
 public class MeasureDao implements Dao {
 
+  /**
+   * 15 columns per row, which keeps statements below the limit of 2,100 parameters of MSSQL
+   */
+  static final int MAX_ROWS_PER_INSERT = 100;
+  /**
+   * Oracle does not accept more than 1,000 columns in an INSERT ALL statement, ie 66 rows of 15 columns
+   */
+  static final int MAX_ROWS_PER_INSERT_ON_ORACLE = 66;
+
   public Optional<MeasureDto> selectSingle(DbSession dbSession, MeasureQuery query) {
     List<MeasureDto> measures = selectByQuery(dbSession, query);
     return Optional.ofNullable(Iterables.getOnlyElement(measures, null));
@@ -133,12 +144,21 @@ public class MeasureDao implements Dao {
     mapper(session).insert(measureDto);
   }
 
+  /**
+   * Inserts the measures with multi-row statements of at most {@link #MAX_ROWS_PER_INSERT} rows
+   * ({@link #MAX_ROWS_PER_INSERT_ON_ORACLE} on Oracle), instead of one statement per measure.
+   */
   public void insert(DbSession session, Collection<MeasureDto> items) {
-    for (MeasureDto item : items) {
-      insert(session, item);
+    MeasureMapper mapper = mapper(session);
+    for (List<MeasureDto> partition : Iterables.partition(items, maxRowsPerInsert(session.getConfiguration().getDatabaseId()))) {
+      mapper.insertMultiple(partition);
     }
   }
 
+  static int maxRowsPerInsert(@Nullable String databaseId) {
+    return Oracle.ID.equals(databaseId) ? MAX_ROWS_PER_INSERT_ON_ORACLE : MAX_ROWS_PER_INSERT;
+  }
+
   public void insert(DbSession session, MeasureDto item, MeasureDto... others) {
     insert(session, Lists.asList(item, others));
   }
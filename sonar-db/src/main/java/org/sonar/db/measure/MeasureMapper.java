@@ -45,4 +45,6 @@ public interface MeasureMapper {
   List<MeasureDto> selectProjectMeasuresOfDeveloper(@Param("developerId") long developerId, @Param("metricIds") Collection<Integer> metricIds);
 
   void insert(MeasureDto measureDto);
+
+  void insertMultiple(@Param("measures") List<MeasureDto> measures);
 }
@@ -0,0 +1,68 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.permission;
+
+import java.util.Collection;
+import java.util.List;
+import org.apache.ibatis.session.RowBounds;
+import org.sonar.api.utils.System2;
+import org.sonar.core.util.UuidFactory;
+import org.sonar.db.Dao;
+import org.sonar.db.DbSession;
+
+import static org.sonar.db.DatabaseUtils.executeLargeUpdates;
+
+/**
+ * Projects whose permissions changed but which are not indexed yet in the authorization indexes. The queue is
+ * stored in database so that the changes are not lost if the server stops before they are indexed.
+ */
+public class PermissionIndexQueueDao implements Dao {
+
+  private final System2 system2;
+  private final UuidFactory uuidFactory;
+
+  public PermissionIndexQueueDao(System2 system2, UuidFactory uuidFactory) {
+    this.system2 = system2;
+    this.uuidFactory = uuidFactory;
+  }
+
+  public void insert(DbSession dbSession, Collection<String> projectUuids) {
+    PermissionIndexQueueMapper mapper = mapper(dbSession);
+    long now = system2.now();
+    for (String projectUuid : projectUuids) {
+      mapper.insert(new PermissionIndexQueueDto().setUuid(uuidFactory.create()).setProjectUuid(projectUuid).setCreatedAt(now));
+    }
+  }
+
+  /**
+   * The oldest entries of the queue, ordered by ascending date. The same project may be returned several times.
+   */
+  public List<PermissionIndexQueueDto> selectOldest(DbSession dbSession, int limit) {
+    return mapper(dbSession).selectOldest(new RowBounds(0, limit));
+  }
+
+  public void delete(DbSession dbSession, Collection<String> uuids) {
+    executeLargeUpdates(uuids, mapper(dbSession)::deleteByUuids);
+  }
+
+  private static PermissionIndexQueueMapper mapper(DbSession dbSession) {
+    return dbSession.getMapper(PermissionIndexQueueMapper.class);
+  }
+}
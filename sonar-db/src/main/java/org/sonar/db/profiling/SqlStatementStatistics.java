@@ -0,0 +1,196 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.sonar.core.util.stream.Collectors.toList;
+
+/**
+ * Durations and number of rows of the MyBatis statements executed since startup, aggregated
+ * by statement id. Recording is lock-free, so it can stay enabled in production.
+ * <p>
+ * Durations are kept in a histogram of {@link #BUCKETS} power-of-two buckets of microseconds,
+ * so percentiles are approximated by the upper bound of their bucket.
+ * </p>
+ */
+public class SqlStatementStatistics {
+
+  static final int BUCKETS = 32;
+
+  private final ConcurrentMap<String, Histogram> histogramsByStatementId = new ConcurrentHashMap<>();
+
+  public void record(String statementId, long durationNanos, int rows) {
+    histogramsByStatementId.computeIfAbsent(statementId, id -> new Histogram()).record(durationNanos, rows);
+  }
+
+  /**
+   * Records a select which rows are streamed to a result handler. Its rows are unknown, so it is
+   * excluded from {@link Snapshot#getRows()}.
+   */
+  public void recordStreamed(String statementId, long durationNanos) {
+    histogramsByStatementId.computeIfAbsent(statementId, id -> new Histogram()).recordStreamed(durationNanos);
+  }
+
+  /**
+   * The statements which spent the most time in database, in descending order
+   */
+  public List<Snapshot> getTopByTotalTime(int limit) {
+    return histogramsByStatementId.entrySet().stream()
+      .map(entry -> entry.getValue().snapshot(entry.getKey()))
+      .sorted(Comparator.comparingLong(Snapshot::getTotalMicros).reversed())
+      .limit(limit)
+      .collect(toList());
+  }
+
+  public void clear() {
+    histogramsByStatementId.clear();
+  }
+
+  private static class Histogram {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder streamed = new LongAdder();
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    private Histogram() {
+      for (int i = 0; i < BUCKETS; i++) {
+        buckets[i] = new LongAdder();
+      }
+    }
+
+    private void record(long durationNanos, int rowCount) {
+      recordDuration(durationNanos);
+      if (rowCount > 0) {
+        // negative on statements which are only queued by batch sessions
+        rows.add(rowCount);
+      }
+    }
+
+    private void recordStreamed(long durationNanos) {
+      recordDuration(durationNanos);
+      streamed.increment();
+    }
+
+    private void recordDuration(long durationNanos) {
+      long micros = TimeUnit.NANOSECONDS.toMicros(durationNanos);
+      count.increment();
+      totalMicros.add(micros);
+      buckets[bucketOf(micros)].increment();
+    }
+
+    private Snapshot snapshot(String statementId) {
+      long[] counts = new long[BUCKETS];
+      long total = 0L;
+      for (int i = 0; i < BUCKETS; i++) {
+        counts[i] = buckets[i].sum();
+        total += counts[i];
+      }
+      return new Snapshot(statementId, count.sum(), totalMicros.sum(), percentile(counts, total, 50), percentile(counts, total, 99), rows.sum(),
+        streamed.sum());
+    }
+  }
+
+  static int bucketOf(long micros) {
+    if (micros <= 1L) {
+      return 0;
+    }
+    return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros - 1));
+  }
+
+  /**
+   * Upper bound, in microseconds, of the bucket containing the given percentile
+   */
+  static long percentile(long[] counts, long total, int percentile) {
+    if (total == 0L) {
+      return 0L;
+    }
+    long rank = (long) Math.ceil(total * percentile / 100.0);
+    long cumulated = 0L;
+    for (int i = 0; i < counts.length; i++) {
+      cumulated += counts[i];
+      if (cumulated >= rank) {
+        return 1L << i;
+      }
+    }
+    return 1L << (counts.length - 1);
+  }
+
+  public static class Snapshot {
+    private final String statementId;
+    private final long count;
+    private final long totalMicros;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long rows;
+    private final long streamedCount;
+
+    Snapshot(String statementId, long count, long totalMicros, long p50Micros, long p99Micros, long rows, long streamedCount) {
+      this.statementId = statementId;
+      this.count = count;
+      this.totalMicros = totalMicros;
+      this.p50Micros = p50Micros;
+      this.p99Micros = p99Micros;
+      this.rows = rows;
+      this.streamedCount = streamedCount;
+    }
+
+    public String getStatementId() {
+      return statementId;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTotalMicros() {
+      return totalMicros;
+    }
+
+    public long getP50Micros() {
+      return p50Micros;
+    }
+
+    public long getP99Micros() {
+      return p99Micros;
+    }
+
+    /**
+     * Number of rows fetched by selects, or updated by inserts, updates and deletes. Selects
+     * streamed to a result handler are not counted.
+     */
+    public long getRows() {
+      return rows;
+    }
+
+    /**
+     * Number of executions which rows are streamed to a result handler, so are excluded from {@link #getRows()}
+     */
+    public long getStreamedCount() {
+      return streamedCount;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.util.List;
+import java.util.Properties;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Feeds {@link SqlStatementStatistics} with the statements executed by MyBatis. On batch
+ * sessions, the duration of inserts, updates and deletes is the time to queue them.
+ */
+@Intercepts({
+  @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+  @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class})
+})
+public class SqlStatementStatisticsInterceptor implements Interceptor {
+
+  private final SqlStatementStatistics statistics;
+
+  public SqlStatementStatisticsInterceptor(SqlStatementStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+    long start = System.nanoTime();
+    Object result = null;
+    try {
+      result = invocation.proceed();
+      return result;
+    } finally {
+      long durationNanos = System.nanoTime() - start;
+      if (isStreamedToResultHandler(invocation)) {
+        // rows are passed to the handler and not returned, so they can't be counted
+        statistics.recordStreamed(statement.getId(), durationNanos);
+      } else {
+        statistics.record(statement.getId(), durationNanos, countRows(result));
+      }
+    }
+  }
+
+  private static boolean isStreamedToResultHandler(Invocation invocation) {
+    Object[] args = invocation.getArgs();
+    return args.length == 4 && args[3] instanceof ResultHandler;
+  }
+
+  private static int countRows(Object result) {
+    if (result instanceof List) {
+      return ((List<?>) result).size();
+    }
+    if (result instanceof Integer) {
+      return (Integer) result;
+    }
+    return 0;
+  }
+
+  @Override
+  public Object plugin(Object target) {
+    return Plugin.wrap(target, this);
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    // no properties
+  }
+}
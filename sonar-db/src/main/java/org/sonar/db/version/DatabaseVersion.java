@@ -30,7 +30,7 @@ import org.sonar.db.MyBatis;
 
 public class DatabaseVersion {
 
-  public static final int LAST_VERSION = 1_423;
+  public static final int LAST_VERSION = 1_426;
 
   /**
    * The minimum supported version which can be upgraded. Lower
@@ -84,6 +84,7 @@ public class DatabaseVersion {
     "metrics",
     "notifications",
     "organizations",
+    "permission_index_queue",
     "permission_templates",
     "perm_templates_users",
     "perm_templates_groups",
@@ -106,7 +107,8 @@ public class DatabaseVersion {
     "users",
     "user_roles",
     "user_tokens",
-    "webhook_deliveries");
+    "webhook_deliveries",
+    "webhook_queue");
 
   private MyBatis mybatis;
 
@@ -182,6 +182,9 @@ import org.sonar.db.version.v62.PopulateOrganizationUuidOfGroups;
 import org.sonar.db.version.v62.PopulateOrganizationUuidOfPermissionTemplates;
 import org.sonar.db.version.v62.PopulateOrganizationUuidOfUserRoles;
 import org.sonar.db.version.v62.UpdateQualityGateConditionsOnCoverage;
+import org.sonar.db.version.v63.AddCeHeapPeakBytesToCeActivity;
+import org.sonar.db.version.v63.CreateTablePermissionIndexQueue;
+import org.sonar.db.version.v63.CreateTableWebhookQueue;
 
 public class MigrationStepModule extends Module {
   @Override
@@ -384,6 +387,11 @@ public class MigrationStepModule extends Module {
       DropRelatedDashboardTables.class,
       DropMeasureFiltersTables.class,
       DropIssueFiltersTables.class,
-      CreateTableWebhookDeliveries.class);
+      CreateTableWebhookDeliveries.class,
+
+      // 6.3
+      AddCeHeapPeakBytesToCeActivity.class,
+      CreateTablePermissionIndexQueue.class,
+      CreateTableWebhookQueue.class);
   }
 }
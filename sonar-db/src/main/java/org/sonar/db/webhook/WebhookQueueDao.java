@@ -0,0 +1,51 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.webhook;
+
+import java.util.List;
+import org.apache.ibatis.session.RowBounds;
+import org.sonar.db.Dao;
+import org.sonar.db.DbSession;
+
+/**
+ * Webhook deliveries which are not completed yet. They are stored so that they are sent
+ * again if the Compute Engine stops before completing them.
+ */
+public class WebhookQueueDao implements Dao {
+
+  /**
+   * The oldest deliveries of the queue. Results are ordered by ascending date.
+   */
+  public List<WebhookQueueDto> selectOldest(DbSession dbSession, int limit) {
+    return mapper(dbSession).selectOldest(new RowBounds(0, limit));
+  }
+
+  public void insert(DbSession dbSession, WebhookQueueDto dto) {
+    mapper(dbSession).insert(dto);
+  }
+
+  public void deleteByUuid(DbSession dbSession, String uuid) {
+    mapper(dbSession).deleteByUuid(uuid);
+  }
+
+  private static WebhookQueueMapper mapper(DbSession dbSession) {
+    return dbSession.getMapper(WebhookQueueMapper.class);
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.webhook;
+
+/**
+ * A webhook delivery which is not completed yet
+ */
+public class WebhookQueueDto {
+  /** Technical unique identifier, can't be null */
+  private String uuid;
+  /** Component UUID, can't be null */
+  private String componentUuid;
+  /** Compute Engine task UUID, can't be null */
+  private String ceTaskUuid;
+  /** Name, can't be null */
+  private String name;
+  /** URL, can't be null */
+  private String url;
+  /** Key of the project, can't be null */
+  private String projectKey;
+  /** Payload, can't be null */
+  private String payload;
+  /** Time of enqueue */
+  private long createdAt;
+
+  public String getUuid() {
+    return uuid;
+  }
+
+  public WebhookQueueDto setUuid(String s) {
+    this.uuid = s;
+    return this;
+  }
+
+  public String getComponentUuid() {
+    return componentUuid;
+  }
+
+  public WebhookQueueDto setComponentUuid(String s) {
+    this.componentUuid = s;
+    return this;
+  }
+
+  public String getCeTaskUuid() {
+    return ceTaskUuid;
+  }
+
+  public WebhookQueueDto setCeTaskUuid(String s) {
+    this.ceTaskUuid = s;
+    return this;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public WebhookQueueDto setName(String s) {
+    this.name = s;
+    return this;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public WebhookQueueDto setUrl(String s) {
+    this.url = s;
+    return this;
+  }
+
+  public String getProjectKey() {
+    return projectKey;
+  }
+
+  public WebhookQueueDto setProjectKey(String s) {
+    this.projectKey = s;
+    return this;
+  }
+
+  public String getPayload() {
+    return payload;
+  }
+
+  public WebhookQueueDto setPayload(String s) {
+    this.payload = s;
+    return this;
+  }
+
+  public long getCreatedAt() {
+    return createdAt;
+  }
+
+  public WebhookQueueDto setCreatedAt(long l) {
+    this.createdAt = l;
+    return this;
+  }
+}
@@ -69,6 +69,7 @@ public class CeActivityDaoTest {
     assertThat(dto.getStartedAt()).isEqualTo(1_500_000_000_000L);
     assertThat(dto.getExecutedAt()).isEqualTo(1_500_000_000_500L);
     assertThat(dto.getExecutionTimeMs()).isEqualTo(500L);
+    assertThat(dto.getCeHeapPeakBytes()).isEqualTo(120_000_000L);
     assertThat(dto.getAnalysisUuid()).isEqualTo(inserted.getAnalysisUuid());
     assertThat(dto.toString()).isNotEmpty();
     assertThat(dto.getErrorMessage()).isNull();
@@ -352,6 +353,7 @@ public class CeActivityDaoTest {
     dto.setStartedAt(1_500_000_000_000L);
     dto.setExecutedAt(1_500_000_000_500L);
     dto.setExecutionTimeMs(500L);
+    dto.setCeHeapPeakBytes(120_000_000L);
     dto.setAnalysisUuid(uuid + "_2");
     if (status == FAILED) {
       dto.setErrorMessage("error msg for " + uuid);
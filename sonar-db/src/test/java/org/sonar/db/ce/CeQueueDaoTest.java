@@ -36,6 +36,7 @@ import static com.google.common.collect.FluentIterable.from;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.db.ce.CeQueueDto.Status.IN_PROGRESS;
 import static org.sonar.db.ce.CeQueueDto.Status.PENDING;
 import static org.sonar.db.ce.CeQueueTesting.newCeQueueDto;
@@ -124,13 +125,25 @@ public class CeQueueDaoTest {
     verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, PENDING, TASK_UUID_3, PENDING);
   }
 
+  @Test
+  public void resetToPendingStatus_resets_only_specified_in_progress_task() throws Exception {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, IN_PROGRESS);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, IN_PROGRESS);
+
+    underTest.resetToPendingStatus(db.getSession(), TASK_UUID_1);
+    db.getSession().commit();
+
+    verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, IN_PROGRESS);
+    assertThat(underTest.selectByUuid(db.getSession(), TASK_UUID_1).get().getStartedAt()).isNull();
+  }
+
   @Test
   public void peek_none_if_no_pendings() throws Exception {
-    assertThat(underTest.peek(db.getSession()).isPresent()).isFalse();
+    assertThat(peekOldest().isPresent()).isFalse();
 
     // not pending, but in progress
     insert(TASK_UUID_1, COMPONENT_UUID_1, IN_PROGRESS);
-    assertThat(underTest.peek(db.getSession()).isPresent()).isFalse();
+    assertThat(peekOldest().isPresent()).isFalse();
   }
 
   @Test
@@ -143,21 +156,47 @@ public class CeQueueDaoTest {
     verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, PENDING);
 
     // peek first one
-    Optional<CeQueueDto> peek = underTest.peek(db.getSession());
+    Optional<CeQueueDto> peek = peekOldest();
     assertThat(peek.isPresent()).isTrue();
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_1);
     assertThat(peek.get().getStatus()).isEqualTo(IN_PROGRESS);
     verifyCeQueueStatuses(TASK_UUID_1, IN_PROGRESS, TASK_UUID_2, PENDING);
 
     // peek second one
-    peek = underTest.peek(db.getSession());
+    peek = peekOldest();
     assertThat(peek.isPresent()).isTrue();
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
     assertThat(peek.get().getStatus()).isEqualTo(IN_PROGRESS);
     verifyCeQueueStatuses(TASK_UUID_1, IN_PROGRESS, TASK_UUID_2, IN_PROGRESS);
 
     // no more pendings
-    assertThat(underTest.peek(db.getSession()).isPresent()).isFalse();
+    assertThat(peekOldest().isPresent()).isFalse();
+  }
+
+  @Test
+  public void selectEligibleForPeek_returns_pending_tasks_oldest_first_up_to_max_results() throws Exception {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 3_000_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+    system2.setNow(INIT_TIME + 6_000_000);
+    insert(TASK_UUID_3, "PROJECT_3", PENDING);
+
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 2)).extracting("uuid").containsExactly(TASK_UUID_1, TASK_UUID_2);
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 10))
+      .extracting("uuid", "componentUuid")
+      .containsExactly(tuple(TASK_UUID_1, COMPONENT_UUID_1), tuple(TASK_UUID_2, COMPONENT_UUID_2), tuple(TASK_UUID_3, "PROJECT_3"));
+  }
+
+  @Test
+  public void tryToPeek_peeks_only_pending_task() throws Exception {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, IN_PROGRESS);
+
+    Optional<CeQueueDto> peek = underTest.tryToPeek(db.getSession(), TASK_UUID_1);
+    assertThat(peek.isPresent()).isTrue();
+    assertThat(peek.get().getStatus()).isEqualTo(IN_PROGRESS);
+    assertThat(underTest.tryToPeek(db.getSession(), TASK_UUID_1).isPresent()).isFalse();
+    assertThat(underTest.tryToPeek(db.getSession(), TASK_UUID_2).isPresent()).isFalse();
   }
 
   @Test
@@ -167,18 +206,18 @@ public class CeQueueDaoTest {
     system2.setNow(INIT_TIME + 3_000_000);
     insert(TASK_UUID_2, COMPONENT_UUID_1, PENDING);
 
-    Optional<CeQueueDto> peek = underTest.peek(db.getSession());
+    Optional<CeQueueDto> peek = peekOldest();
     assertThat(peek.isPresent()).isTrue();
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_1);
     verifyCeQueueStatuses(TASK_UUID_1, IN_PROGRESS, TASK_UUID_2, PENDING);
 
     // do not peek second task as long as the first one is in progress
-    peek = underTest.peek(db.getSession());
+    peek = peekOldest();
     assertThat(peek.isPresent()).isFalse();
 
     // first one is finished
     underTest.deleteByUuid(db.getSession(), TASK_UUID_1);
-    peek = underTest.peek(db.getSession());
+    peek = peekOldest();
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
   }
 
@@ -309,6 +348,17 @@ public class CeQueueDaoTest {
     assertThat(underTest.countByStatus(db.getSession(), IN_PROGRESS)).isEqualTo(2);
   }
 
+  /**
+   * Peeks the oldest eligible task, as done by the Compute Engine when the memory budget allows it
+   */
+  private Optional<CeQueueDto> peekOldest() {
+    List<CeQueueDto> tasks = underTest.selectEligibleForPeek(db.getSession(), 1);
+    if (tasks.isEmpty()) {
+      return Optional.absent();
+    }
+    return underTest.tryToPeek(db.getSession(), tasks.get(0).getUuid());
+  }
+
   private void insert(CeQueueDto dto) {
     underTest.insert(db.getSession(), dto);
     db.commit();
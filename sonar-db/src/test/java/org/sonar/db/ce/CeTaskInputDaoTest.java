@@ -86,6 +86,22 @@ public class CeTaskInputDaoTest {
     assertThat(result).isNotPresent();
   }
 
+  @Test
+  public void selectDataSize_returns_size_of_data_in_bytes() {
+    underTest.insert(dbTester.getSession(), A_UUID, IOUtils.toInputStream(SOME_DATA));
+
+    assertThat(underTest.selectDataSize(dbTester.getSession(), A_UUID)).contains((long) SOME_DATA.length());
+  }
+
+  @Test
+  public void selectDataSize_returns_absent_if_uuid_not_found_or_data_is_null() {
+    insertData(A_UUID);
+    dbTester.commit();
+
+    assertThat(underTest.selectDataSize(dbTester.getSession(), A_UUID)).isNotPresent();
+    assertThat(underTest.selectDataSize(dbTester.getSession(), "missing")).isNotPresent();
+  }
+
   @Test
   public void selectUuidsNotInQueue() {
     insertData("U1");
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
@@ -109,6 +110,60 @@ public class MeasureDaoTest {
     assertThat(selected.getAlertText()).isEqualTo(inserted.getAlertText());
   }
 
+  @Test
+  public void insert_measures_with_multi_row_statements() {
+    ComponentDto project = db.components().insertProject();
+    insertAnalysis(LAST_ANALYSIS_UUID, project.uuid(), true);
+    int count = MeasureDao.maxRowsPerInsert(db.getSession().getConfiguration().getDatabaseId()) * 2 + 1;
+    List<MeasureDto> measures = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      measures.add(MeasureTesting.newMeasure()
+        .setAnalysisUuid(LAST_ANALYSIS_UUID)
+        .setComponentUuid(project.uuid())
+        .setMetricId(i)
+        .setData("data_" + i));
+    }
+
+    underTest.insert(db.getSession(), measures);
+    db.commit();
+
+    assertThat(db.countRowsOfTable("project_measures")).isEqualTo(count);
+    MeasureDto last = underTest.selectSingle(db.getSession(), MeasureQuery.builder()
+      .setComponentUuid(project.uuid())
+      .setMetricId(count - 1)
+      .build()).get();
+    assertThat(last.getData()).isEqualTo("data_" + (count - 1));
+  }
+
+  @Test
+  public void insert_persists_all_measures_when_split_in_several_statements() {
+    ComponentDto project = db.components().insertProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    insertAnalysis(LAST_ANALYSIS_UUID, project.uuid(), true);
+    int count = MeasureDao.MAX_ROWS_PER_INSERT + MeasureDao.MAX_ROWS_PER_INSERT_ON_ORACLE + 1;
+    List<MeasureDto> measures = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      measures.add(MeasureTesting.newMeasure()
+        .setAnalysisUuid(LAST_ANALYSIS_UUID)
+        .setComponentUuid(i % 2 == 0 ? project.uuid() : file.uuid())
+        .setMetricId(i)
+        .setValue((double) i));
+    }
+
+    underTest.insert(db.getSession(), measures);
+    db.commit();
+
+    List<MeasureDto> selected = new ArrayList<>();
+    selected.addAll(underTest.selectByQuery(db.getSession(), MeasureQuery.builder().setComponentUuid(project.uuid()).build()));
+    selected.addAll(underTest.selectByQuery(db.getSession(), MeasureQuery.builder().setComponentUuid(file.uuid()).build()));
+    assertThat(selected)
+      .extracting(measure -> measure.getComponentUuid() + ":" + measure.getMetricId() + ":" + measure.getValue())
+      .containsOnlyElementsOf(measures.stream()
+        .map(measure -> measure.getComponentUuid() + ":" + measure.getMetricId() + ":" + measure.getValue())
+        .collect(Collectors.toList()))
+      .hasSize(count);
+  }
+
   @Test
   public void selectByQuery() {
     ComponentDto project1 = db.components().insertProject();
@@ -0,0 +1,75 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.permission;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.core.util.UuidFactoryFast;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PermissionIndexQueueDaoTest {
+
+  private TestSystem2 system2 = new TestSystem2().setNow(1_500_000_000_000L);
+
+  @Rule
+  public DbTester dbTester = DbTester.create(system2);
+
+  private DbSession dbSession = dbTester.getSession();
+  private PermissionIndexQueueDao underTest = new PermissionIndexQueueDao(system2, UuidFactoryFast.getInstance());
+
+  @Test
+  public void selectOldest_returns_entries_ordered_by_date() {
+    insertAt(1_500_000_000_000L, "P3");
+    insertAt(1_400_000_000_000L, "P1");
+    insertAt(1_600_000_000_000L, "P1");
+    insertAt(1_450_000_000_000L, "P2");
+    dbSession.commit();
+
+    List<PermissionIndexQueueDto> dtos = underTest.selectOldest(dbSession, 10);
+    assertThat(dtos).extracting("projectUuid").containsExactly("P1", "P2", "P3", "P1");
+    assertThat(dtos).extracting("createdAt").containsExactly(1_400_000_000_000L, 1_450_000_000_000L, 1_500_000_000_000L, 1_600_000_000_000L);
+    assertThat(dtos).extracting("uuid").doesNotHaveDuplicates();
+
+    assertThat(underTest.selectOldest(dbSession, 3)).extracting("projectUuid").containsExactly("P1", "P2", "P3");
+  }
+
+  @Test
+  public void delete_only_specified_entries() {
+    underTest.insert(dbSession, asList("P1", "P2", "P1"));
+    List<PermissionIndexQueueDto> dtos = underTest.selectOldest(dbSession, 10);
+
+    underTest.delete(dbSession, dtos.subList(0, 2).stream().map(PermissionIndexQueueDto::getUuid).collect(Collectors.toList()));
+
+    assertThat(underTest.selectOldest(dbSession, 10)).extracting("uuid").containsExactly(dtos.get(2).getUuid());
+  }
+
+  private void insertAt(long date, String projectUuid) {
+    system2.setNow(date);
+    underTest.insert(dbSession, singletonList(projectUuid));
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.util.List;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlStatementStatisticsTest {
+
+  private SqlStatementStatistics underTest = new SqlStatementStatistics();
+
+  @Test
+  public void aggregate_executions_by_statement_id() {
+    for (int i = 0; i < 98; i++) {
+      underTest.record("IssueMapper.selectByKey", MICROSECONDS.toNanos(100), 1);
+    }
+    underTest.record("IssueMapper.selectByKey", MILLISECONDS.toNanos(3), 1);
+    underTest.record("IssueMapper.selectByKey", MILLISECONDS.toNanos(3), 0);
+    underTest.record("IssueMapper.insert", MILLISECONDS.toNanos(1), 1);
+
+    List<SqlStatementStatistics.Snapshot> top = underTest.getTopByTotalTime(10);
+
+    assertThat(top).extracting(SqlStatementStatistics.Snapshot::getStatementId).containsExactly("IssueMapper.selectByKey", "IssueMapper.insert");
+    SqlStatementStatistics.Snapshot select = top.get(0);
+    assertThat(select.getCount()).isEqualTo(100);
+    assertThat(select.getTotalMicros()).isEqualTo(98 * 100 + 2 * 3_000);
+    assertThat(select.getRows()).isEqualTo(99);
+    assertThat(select.getP50Micros()).isEqualTo(128);
+    assertThat(select.getP99Micros()).isEqualTo(4_096);
+  }
+
+  @Test
+  public void limit_number_of_statements() {
+    underTest.record("a", 10, 0);
+    underTest.record("b", 20, 0);
+
+    assertThat(underTest.getTopByTotalTime(1)).hasSize(1);
+
+    underTest.clear();
+    assertThat(underTest.getTopByTotalTime(1)).isEmpty();
+  }
+
+  @Test
+  public void ignore_negative_row_counts_of_batch_updates() {
+    underTest.record("a", 10, Integer.MIN_VALUE + 1002);
+
+    assertThat(underTest.getTopByTotalTime(1).get(0).getRows()).isEqualTo(0);
+  }
+
+  @Test
+  public void exclude_streamed_selects_from_rows() {
+    underTest.record("a", 10, 3);
+    underTest.recordStreamed("a", 20);
+
+    SqlStatementStatistics.Snapshot snapshot = underTest.getTopByTotalTime(1).get(0);
+    assertThat(snapshot.getCount()).isEqualTo(2);
+    assertThat(snapshot.getRows()).isEqualTo(3);
+    assertThat(snapshot.getStreamedCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void bucket_of_duration() {
+    assertThat(SqlStatementStatistics.bucketOf(0)).isEqualTo(0);
+    assertThat(SqlStatementStatistics.bucketOf(1)).isEqualTo(0);
+    assertThat(SqlStatementStatistics.bucketOf(2)).isEqualTo(1);
+    assertThat(SqlStatementStatistics.bucketOf(3)).isEqualTo(2);
+    assertThat(SqlStatementStatistics.bucketOf(1_024)).isEqualTo(10);
+    assertThat(SqlStatementStatistics.bucketOf(1_025)).isEqualTo(11);
+    assertThat(SqlStatementStatistics.bucketOf(Long.MAX_VALUE)).isEqualTo(SqlStatementStatistics.BUCKETS - 1);
+  }
+}
@@ -24,6 +24,8 @@ import com.google.common.base.Throwables;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
@@ -33,6 +35,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.assertj.core.api.Assertions.in;
@@ -63,6 +66,20 @@ public class FileSourceDaoTest {
     assertThat(fileSourceDto.getRevision()).isEqualTo("123456789");
   }
 
+  @Test
+  public void scroll_sources_by_file_uuids() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    List<FileSourceDto> sources = new ArrayList<>();
+    underTest.scrollSourcesByFileUuids(session, asList("FILE1_UUID", "unknown"), context -> sources.add((FileSourceDto) context.getResultObject()));
+
+    assertThat(sources).hasSize(1);
+    FileSourceDto source = sources.get(0);
+    assertThat(source.getFileUuid()).isEqualTo("FILE1_UUID");
+    assertThat(source.getSrcHash()).isEqualTo("FILE_HASH");
+    assertThat(source.getBinaryData()).isNotEmpty();
+  }
+
   @Test
   public void select_line_hashes() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
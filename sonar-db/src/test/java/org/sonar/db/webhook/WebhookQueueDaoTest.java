@@ -0,0 +1,87 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.webhook;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WebhookQueueDaoTest {
+
+  private static final long NOW = 1_500_000_000L;
+  private static final long BEFORE = NOW - 1_000L;
+
+  @Rule
+  public final DbTester dbTester = DbTester.create(System2.INSTANCE).setDisableDefaultOrganization(true);
+
+  private final DbSession dbSession = dbTester.getSession();
+  private final WebhookQueueDao underTest = dbTester.getDbClient().webhookQueueDao();
+
+  @Test
+  public void insert_and_select_all_fields() {
+    underTest.insert(dbSession, newDto("D1", NOW));
+
+    WebhookQueueDto stored = underTest.selectOldest(dbSession, 10).get(0);
+    assertThat(stored.getUuid()).isEqualTo("D1");
+    assertThat(stored.getComponentUuid()).isEqualTo("COMPONENT_1");
+    assertThat(stored.getCeTaskUuid()).isEqualTo("TASK_1");
+    assertThat(stored.getName()).isEqualTo("Jenkins");
+    assertThat(stored.getUrl()).isEqualTo("http://jenkins");
+    assertThat(stored.getProjectKey()).isEqualTo("PROJECT_1");
+    assertThat(stored.getPayload()).isEqualTo("{json}");
+    assertThat(stored.getCreatedAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void selectOldest_returns_records_ordered_by_date() {
+    underTest.insert(dbSession, newDto("D1", NOW));
+    underTest.insert(dbSession, newDto("D2", BEFORE));
+    underTest.insert(dbSession, newDto("D3", NOW + 1_000L));
+
+    assertThat(underTest.selectOldest(dbSession, 10)).extracting(WebhookQueueDto::getUuid).containsExactly("D2", "D1", "D3");
+    assertThat(underTest.selectOldest(dbSession, 2)).extracting(WebhookQueueDto::getUuid).containsExactly("D2", "D1");
+  }
+
+  @Test
+  public void deleteByUuid() {
+    underTest.insert(dbSession, newDto("D1", NOW));
+    underTest.insert(dbSession, newDto("D2", NOW));
+
+    underTest.deleteByUuid(dbSession, "D1");
+
+    assertThat(underTest.selectOldest(dbSession, 10)).extracting(WebhookQueueDto::getUuid).containsExactly("D2");
+  }
+
+  private static WebhookQueueDto newDto(String uuid, long createdAt) {
+    return new WebhookQueueDto()
+      .setUuid(uuid)
+      .setComponentUuid("COMPONENT_1")
+      .setCeTaskUuid("TASK_1")
+      .setName("Jenkins")
+      .setUrl("http://jenkins")
+      .setProjectKey("PROJECT_1")
+      .setPayload("{json}")
+      .setCreatedAt(createdAt);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.markdown;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Least-recently-used cache of the HTML rendered from markdown sources. Entries are keyed by
+ * the SHA-1 digest of the source, so that long sources (rule descriptions) are not retained in memory.
+ * The cache is bounded by the estimated size of the entries.
+ */
+class HtmlCache {
+
+  private static final int ENTRY_OVERHEAD_IN_BYTES = 150;
+
+  private final long maxSizeInBytes;
+  private final LinkedHashMap<String, String> htmlByDigest = new LinkedHashMap<>(16, 0.75f, true);
+  private long sizeInBytes = 0L;
+
+  HtmlCache(long maxSizeInBytes) {
+    this.maxSizeInBytes = maxSizeInBytes;
+  }
+
+  /**
+   * Rendering is executed outside of the lock, so the same source may be rendered concurrently
+   * by several threads. That is harmless as rendering has no side-effects.
+   */
+  String get(String source, Function<String, String> renderer) {
+    String digest = digest(source);
+    String html;
+    synchronized (this) {
+      html = htmlByDigest.get(digest);
+    }
+    if (html == null) {
+      html = renderer.apply(source);
+      put(digest, html);
+    }
+    return html;
+  }
+
+  synchronized long sizeInBytes() {
+    return sizeInBytes;
+  }
+
+  synchronized int size() {
+    return htmlByDigest.size();
+  }
+
+  private synchronized void put(String digest, String html) {
+    long entrySize = sizeOf(html);
+    if (entrySize > maxSizeInBytes) {
+      return;
+    }
+    String previous = htmlByDigest.put(digest, html);
+    if (previous != null) {
+      sizeInBytes -= sizeOf(previous);
+    }
+    sizeInBytes += entrySize;
+    Iterator<Map.Entry<String, String>> eldest = htmlByDigest.entrySet().iterator();
+    while (sizeInBytes > maxSizeInBytes && eldest.hasNext()) {
+      sizeInBytes -= sizeOf(eldest.next().getValue());
+      eldest.remove();
+    }
+  }
+
+  private static long sizeOf(String html) {
+    return ENTRY_OVERHEAD_IN_BYTES + 2L * html.length();
+  }
+
+  private static String digest(String source) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 is not supported", e);
+    }
+  }
+}
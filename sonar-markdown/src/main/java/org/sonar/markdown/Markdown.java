@@ -28,6 +28,15 @@ import org.sonar.channel.CodeReader;
  */
 public final class Markdown {
 
+  private static final long HTML_CACHE_MAX_SIZE_IN_BYTES = 8L * 1024 * 1024;
+  private static final HtmlCache HTML_CACHE = new HtmlCache(HTML_CACHE_MAX_SIZE_IN_BYTES);
+
+  /**
+   * Channels are stateful, so they can't be shared between threads. Keeping one instance per thread
+   * avoids compiling their regular expressions on each conversion.
+   */
+  private static final ThreadLocal<Markdown> INSTANCES = ThreadLocal.withInitial(Markdown::new);
+
   private ChannelDispatcher<MarkdownOutput> dispatcher;
 
   private Markdown() {
@@ -53,7 +62,11 @@ public final class Markdown {
     return output.toString();
   }
 
+  /**
+   * The HTML of the most recent inputs is kept in a cache, as the same texts (rule descriptions for instance)
+   * are converted over and over.
+   */
   public static String convertToHtml(String input) {
-    return new Markdown().convert(StringEscapeUtils.escapeHtml(input));
+    return HTML_CACHE.get(input, source -> INSTANCES.get().convert(StringEscapeUtils.escapeHtml(source)));
   }
 }
@@ -0,0 +1,78 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.markdown;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HtmlCacheTest {
+
+  private AtomicInteger renderings = new AtomicInteger();
+  private Function<String, String> renderer = source -> {
+    renderings.incrementAndGet();
+    return "<p>" + source + "</p>";
+  };
+
+  @Test
+  public void render_source_only_once() {
+    HtmlCache underTest = new HtmlCache(10_000L);
+
+    assertThat(underTest.get("foo", renderer)).isEqualTo("<p>foo</p>");
+    assertThat(underTest.get("foo", renderer)).isEqualTo("<p>foo</p>");
+    assertThat(underTest.get("bar", renderer)).isEqualTo("<p>bar</p>");
+
+    assertThat(renderings.get()).isEqualTo(2);
+    assertThat(underTest.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void evict_least_recently_used_entries_when_max_size_is_reached() {
+    // room for two entries
+    HtmlCache underTest = new HtmlCache(350L);
+
+    underTest.get("one", renderer);
+    underTest.get("two", renderer);
+    underTest.get("one", renderer);
+    underTest.get("three", renderer);
+
+    assertThat(underTest.size()).isEqualTo(2);
+    assertThat(underTest.sizeInBytes()).isLessThanOrEqualTo(350L);
+    assertThat(renderings.get()).isEqualTo(3);
+
+    // "two" has been evicted, "one" is still cached
+    underTest.get("one", renderer);
+    assertThat(renderings.get()).isEqualTo(3);
+    underTest.get("two", renderer);
+    assertThat(renderings.get()).isEqualTo(4);
+  }
+
+  @Test
+  public void do_not_cache_html_bigger_than_max_size() {
+    HtmlCache underTest = new HtmlCache(100L);
+
+    assertThat(underTest.get("foo", renderer)).isEqualTo("<p>foo</p>");
+
+    assertThat(underTest.size()).isEqualTo(0);
+    assertThat(underTest.sizeInBytes()).isEqualTo(0L);
+  }
+}
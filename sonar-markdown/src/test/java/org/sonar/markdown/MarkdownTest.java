@@ -19,6 +19,9 @@
  */
 package org.sonar.markdown;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -116,4 +119,31 @@ public class MarkdownTest {
     assertThat(Markdown.convertToHtml("My text is $123 ''")).isEqualTo("My text is $123 ''");
   }
 
+  @Test
+  public void shouldConvertConcurrently() throws Exception {
+    String input = "* one\n* two\n\n> quoted\n> text\n\n*bold* ``code``";
+    String expected = Markdown.convertToHtml(input);
+
+    List<Thread> threads = new ArrayList<>();
+    List<String> results = Collections.synchronizedList(new ArrayList<>());
+    for (int i = 0; i < 4; i++) {
+      // distinct inputs, so that conversions are not served by the cache
+      String suffix = " " + i;
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < 100; j++) {
+          results.add(Markdown.convertToHtml(input + suffix + j));
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(results).hasSize(400);
+    for (String html : results) {
+      assertThat(html).startsWith(expected + " ");
+    }
+  }
 }
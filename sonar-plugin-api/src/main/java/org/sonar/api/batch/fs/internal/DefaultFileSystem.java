@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -248,7 +249,16 @@ public class DefaultFileSystem implements FileSystem {
     // nothing to do by default
   }
 
+  /**
+   * Besides the abstract lookups, maintains secondary indexes of files by language, type and status. They are
+   * built on first use from {@link #inputFiles()} and cleared whenever a file is added or when the language, type
+   * or status of an added {@link DefaultInputFile} changes.
+   */
   public abstract static class Cache implements Index {
+    private Map<String, List<InputFile>> filesByLanguage;
+    private Map<InputFile.Type, List<InputFile>> filesByType;
+    private Map<InputFile.Status, List<InputFile>> filesByStatus;
+
     @Override
     public abstract Iterable<InputFile> inputFiles();
 
@@ -266,12 +276,51 @@ public class DefaultFileSystem implements FileSystem {
 
     final void add(InputFile inputFile) {
       doAdd(inputFile);
+      if (inputFile instanceof DefaultInputFile) {
+        ((DefaultInputFile) inputFile).addIndexedAttributesListener(this::clearSecondaryIndexes);
+      }
+      clearSecondaryIndexes();
     }
 
     public void add(InputDir inputDir) {
       doAdd(inputDir);
     }
 
+    synchronized Iterable<InputFile> inputFilesByLanguage(String language) {
+      if (filesByLanguage == null) {
+        filesByLanguage = indexBy(InputFile::language);
+      }
+      return filesByLanguage.getOrDefault(language, Collections.emptyList());
+    }
+
+    synchronized Iterable<InputFile> inputFilesByType(InputFile.Type type) {
+      if (filesByType == null) {
+        filesByType = indexBy(InputFile::type);
+      }
+      return filesByType.getOrDefault(type, Collections.emptyList());
+    }
+
+    synchronized Iterable<InputFile> inputFilesByStatus(InputFile.Status status) {
+      if (filesByStatus == null) {
+        filesByStatus = indexBy(InputFile::status);
+      }
+      return filesByStatus.getOrDefault(status, Collections.emptyList());
+    }
+
+    private synchronized void clearSecondaryIndexes() {
+      filesByLanguage = null;
+      filesByType = null;
+      filesByStatus = null;
+    }
+
+    private <K> Map<K, List<InputFile>> indexBy(java.util.function.Function<InputFile, K> keyFunction) {
+      // keys can be null, for example the language of a file
+      Map<K, List<InputFile>> index = new HashMap<>();
+      for (InputFile inputFile : inputFiles()) {
+        index.computeIfAbsent(keyFunction.apply(inputFile), k -> new ArrayList<>()).add(inputFile);
+      }
+      return index;
+    }
   }
 
   /**
@@ -50,6 +50,7 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   private String hash;
   private int nonBlankLines;
   private int[] originalLineOffsets;
+  private Runnable indexedAttributesListener;
 
   public DefaultInputFile(String moduleKey, String relativePath) {
     this.moduleKey = moduleKey;
@@ -135,19 +136,44 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
 
   public DefaultInputFile setLanguage(@Nullable String language) {
     this.language = language;
+    indexedAttributesChanged();
     return this;
   }
 
   public DefaultInputFile setType(Type type) {
     this.type = type;
+    indexedAttributesChanged();
     return this;
   }
 
   public DefaultInputFile setStatus(Status status) {
     this.status = status;
+    indexedAttributesChanged();
     return this;
   }
 
+  /**
+   * Registers a callback run whenever the language, type or status of this file changes, so that the
+   * {@link DefaultFileSystem.Cache} the file was added to can drop its secondary indexes.
+   */
+  synchronized void addIndexedAttributesListener(Runnable listener) {
+    Runnable previous = indexedAttributesListener;
+    indexedAttributesListener = previous == null ? listener : () -> {
+      previous.run();
+      listener.run();
+    };
+  }
+
+  private void indexedAttributesChanged() {
+    Runnable listener;
+    synchronized (this) {
+      listener = indexedAttributesListener;
+    }
+    if (listener != null) {
+      listener.run();
+    }
+  }
+
   public DefaultInputFile setLines(int lines) {
     this.lines = lines;
     return this;
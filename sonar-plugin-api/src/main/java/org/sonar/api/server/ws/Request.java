@@ -26,6 +26,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -327,6 +328,15 @@ public abstract class Request {
    */
   public abstract String getPath();
 
+  /**
+   * Returns the value of the given HTTP header, if present. Headers are not available
+   * when the request is executed through a {@link LocalConnector}.
+   * @since 6.3
+   */
+  public Optional<String> header(String name) {
+    return Optional.empty();
+  }
+
   /**
    * @since 6.0
    */
@@ -21,6 +21,7 @@ package org.sonar.api.batch.fs.internal;
 
 import org.junit.Test;
 import org.sonar.api.batch.fs.FilePredicate;
+import org.sonar.api.batch.fs.InputFile;
 
 import java.util.Arrays;
 
@@ -48,6 +49,19 @@ public class AndPredicateTest {
     assertThat(((AndPredicate) andPredicate).predicates()).containsExactly(relativePathPredicate, pathPatternPredicate1, pathPatternPredicate2);
   }
 
+  @Test
+  public void sortIndexedPredicatesBySelectivity() {
+    PathPatternPredicate pathPatternPredicate = new PathPatternPredicate(PathPattern.create("foo/**"));
+    TypePredicate typePredicate = new TypePredicate(InputFile.Type.MAIN);
+    StatusPredicate statusPredicate = new StatusPredicate(InputFile.Status.CHANGED);
+    LanguagePredicate languagePredicate = new LanguagePredicate("java");
+    RelativePathPredicate relativePathPredicate = new RelativePathPredicate("foo");
+    FilePredicate andPredicate = AndPredicate.create(Arrays.<FilePredicate>asList(pathPatternPredicate,
+      typePredicate, statusPredicate, languagePredicate, relativePathPredicate));
+    assertThat(((AndPredicate) andPredicate).predicates())
+      .containsExactly(relativePathPredicate, languagePredicate, statusPredicate, typePredicate, pathPatternPredicate);
+  }
+
   @Test
   public void simplifyAndExpressionsWhenEmpty() {
     FilePredicate andPredicate = AndPredicate.create(Arrays.<FilePredicate>asList());
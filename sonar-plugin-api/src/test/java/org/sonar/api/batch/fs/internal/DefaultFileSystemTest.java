@@ -24,6 +24,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
 
 import java.io.File;
 import java.nio.charset.Charset;
@@ -107,6 +108,44 @@ public class DefaultFileSystemTest {
     assertThat(fs.languages()).containsOnly("java", "php");
   }
 
+  @Test
+  public void files_by_type_and_status() {
+    fs.add(new DefaultInputFile("foo", "src/Foo.java").setLanguage("java").setType(InputFile.Type.MAIN).setStatus(InputFile.Status.SAME));
+    fs.add(new DefaultInputFile("foo", "test/FooTest.java").setLanguage("java").setType(InputFile.Type.TEST).setStatus(InputFile.Status.ADDED));
+
+    assertThat(fs.inputFiles(fs.predicates().hasType(InputFile.Type.MAIN))).extracting(InputFile::relativePath).containsOnly("src/Foo.java");
+    assertThat(fs.inputFiles(fs.predicates().hasStatus(InputFile.Status.ADDED))).extracting(InputFile::relativePath).containsOnly("test/FooTest.java");
+    assertThat(fs.inputFiles(fs.predicates().hasStatus(InputFile.Status.CHANGED))).isEmpty();
+    assertThat(fs.inputFiles(fs.predicates().and(
+      fs.predicates().hasLanguage("java"),
+      fs.predicates().hasType(InputFile.Type.TEST),
+      fs.predicates().hasStatus(InputFile.Status.ADDED)))).extracting(InputFile::relativePath).containsOnly("test/FooTest.java");
+
+    // indexes are refreshed when files are added
+    fs.add(new DefaultInputFile("foo", "src/Bar.java").setLanguage("java").setType(InputFile.Type.MAIN).setStatus(InputFile.Status.ADDED));
+    assertThat(fs.inputFiles(fs.predicates().hasType(InputFile.Type.MAIN))).extracting(InputFile::relativePath).containsOnly("src/Foo.java", "src/Bar.java");
+    assertThat(fs.inputFiles(fs.predicates().hasStatus(InputFile.Status.ADDED))).extracting(InputFile::relativePath).containsOnly("test/FooTest.java", "src/Bar.java");
+    assertThat(fs.inputFiles(fs.predicates().hasLanguage("java"))).hasSize(3);
+  }
+
+  @Test
+  public void indexes_are_refreshed_when_attributes_of_added_file_change() {
+    DefaultInputFile file = new DefaultInputFile("foo", "src/Foo.java").setLanguage("java").setType(InputFile.Type.MAIN).setStatus(InputFile.Status.SAME);
+    fs.add(file);
+    assertThat(fs.inputFiles(fs.predicates().hasLanguage("java"))).hasSize(1);
+    assertThat(fs.inputFiles(fs.predicates().hasType(InputFile.Type.MAIN))).hasSize(1);
+    assertThat(fs.inputFiles(fs.predicates().hasStatus(InputFile.Status.SAME))).hasSize(1);
+
+    file.setLanguage("php").setType(InputFile.Type.TEST).setStatus(InputFile.Status.CHANGED);
+
+    assertThat(fs.inputFiles(fs.predicates().hasLanguage("java"))).isEmpty();
+    assertThat(fs.inputFiles(fs.predicates().hasLanguage("php"))).containsOnly(file);
+    assertThat(fs.inputFiles(fs.predicates().hasType(InputFile.Type.MAIN))).isEmpty();
+    assertThat(fs.inputFiles(fs.predicates().hasType(InputFile.Type.TEST))).containsOnly(file);
+    assertThat(fs.inputFiles(fs.predicates().hasStatus(InputFile.Status.SAME))).isEmpty();
+    assertThat(fs.inputFiles(fs.predicates().hasStatus(InputFile.Status.CHANGED))).containsOnly(file);
+  }
+
   @Test
   public void input_file_returns_null_if_file_not_found() {
     assertThat(fs.inputFile(fs.predicates().hasRelativePath("src/Bar.java"))).isNull();
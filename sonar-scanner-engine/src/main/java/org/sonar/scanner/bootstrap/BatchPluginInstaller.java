@@ -21,14 +21,20 @@ package org.sonar.scanner.bootstrap;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.CharUtils;
@@ -45,6 +51,7 @@ import org.sonarqube.ws.client.GetRequest;
 import org.sonarqube.ws.client.WsResponse;
 
 import static java.lang.String.format;
+import static org.sonar.core.util.FutureUtils.waitFor;
 
 /**
  * Downloads the plugins installed on server and stores them in a local user cache
@@ -54,6 +61,7 @@ public class BatchPluginInstaller implements PluginInstaller {
 
   private static final Logger LOG = Loggers.get(BatchPluginInstaller.class);
   private static final String PLUGINS_INDEX_URL = "/deploy/plugins/index.txt";
+  private static final int MAX_DOWNLOAD_THREADS = 8;
 
   private final FileCache fileCache;
   private final BatchPluginPredicate pluginPredicate;
@@ -75,11 +83,25 @@ public class BatchPluginInstaller implements PluginInstaller {
 
     Profiler profiler = Profiler.create(LOG).startDebug("Load plugins");
 
-    for (RemotePlugin remotePlugin : remotePlugins) {
-      if (pluginPredicate.apply(remotePlugin.getKey())) {
-        File jarFile = download(remotePlugin);
-        PluginInfo info = PluginInfo.create(jarFile);
-        infosByKey.put(info.getKey(), info);
+    List<RemotePlugin> acceptedPlugins = remotePlugins.stream()
+      .filter(remotePlugin -> pluginPredicate.apply(remotePlugin.getKey()))
+      .collect(Collectors.toList());
+    if (!acceptedPlugins.isEmpty()) {
+      // plugins are downloaded concurrently. Cache entries are written to temp files and atomically
+      // renamed, and checksums are verified by FileCache.
+      int threads = Math.min(MAX_DOWNLOAD_THREADS, acceptedPlugins.size());
+      ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("PluginDownloader-%d").build());
+      try {
+        List<Future<PluginInfo>> tasks = new ArrayList<>();
+        for (RemotePlugin remotePlugin : acceptedPlugins) {
+          tasks.add(executorService.submit(() -> PluginInfo.create(download(remotePlugin))));
+        }
+        for (Future<PluginInfo> task : tasks) {
+          PluginInfo info = waitFor(task);
+          infosByKey.put(info.getKey(), info);
+        }
+      } finally {
+        executorService.shutdownNow();
       }
     }
 
@@ -25,6 +25,8 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import org.sonar.api.CoreProperties;
@@ -32,6 +34,7 @@ import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.log.Profiler;
+import org.sonarqube.ws.client.GetRequest;
 import org.sonarqube.ws.client.HttpException;
 import org.sonarqube.ws.client.WsClient;
 import org.sonarqube.ws.client.WsConnector;
@@ -41,18 +44,24 @@ import org.sonarqube.ws.client.WsResponse;
 import static java.lang.String.format;
 import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
 import static java.net.HttpURLConnection.HTTP_FORBIDDEN;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
 
 public class BatchWsClient {
 
   private static final Logger LOG = Loggers.get(BatchWsClient.class);
 
+  private static final String ETAG_HEADER = "ETag";
+  private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
   private final WsClient target;
   private final boolean hasCredentials;
+  private final WsResponseCache responseCache;
 
-  public BatchWsClient(WsClient target, boolean hasCredentials) {
+  public BatchWsClient(WsClient target, boolean hasCredentials, WsResponseCache responseCache) {
     this.target = target;
     this.hasCredentials = hasCredentials;
+    this.responseCache = responseCache;
   }
 
   /**
@@ -72,6 +81,39 @@ public class BatchWsClient {
     return response;
   }
 
+  /**
+   * Same as {@link #call(WsRequest)}, except that the response is kept in the user cache when the server
+   * provides an entity tag. Next calls send this tag, and the cached content is returned when the server
+   * answers that it is not modified.
+   */
+  public WsResponse callCached(GetRequest request) {
+    String key = responseCache.key(request);
+    WsResponseCache.Entry cached = responseCache.get(key);
+    if (cached != null) {
+      request.setHeader(IF_NONE_MATCH_HEADER, cached.etag());
+    }
+    WsResponse response = call(request);
+    if (cached != null && response.code() == HTTP_NOT_MODIFIED) {
+      response.close();
+      LOG.debug("Not modified, use cached response of {}", response.requestUrl());
+      return new CachedWsResponse(response.requestUrl(), request.getMediaType(), cached.content());
+    }
+    String etag = response.header(ETAG_HEADER);
+    if (etag == null) {
+      // the server does not allow the response to be cached, for example because it contains secured settings
+      responseCache.remove(key);
+      return response;
+    }
+    try (InputStream content = response.contentStream()) {
+      WsResponseCache.Entry entry = responseCache.put(key, etag, content);
+      return new CachedWsResponse(response.requestUrl(), request.getMediaType(), entry.content());
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read response of " + response.requestUrl(), e);
+    } finally {
+      response.close();
+    }
+  }
+
   public String baseUrl() {
     return target.wsConnector().baseUrl();
   }
@@ -99,7 +141,9 @@ public class BatchWsClient {
       // SONAR-4397 Details are in response content
       throw MessageException.of(tryParseAsJsonError(response.content()));
     }
-    response.failIfNotSuccessful();
+    if (code != HTTP_NOT_MODIFIED) {
+      response.failIfNotSuccessful();
+    }
   }
 
   private static String tryParseAsJsonError(String responseContent) {
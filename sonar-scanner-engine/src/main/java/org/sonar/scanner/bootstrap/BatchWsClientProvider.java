@@ -23,6 +23,7 @@ import org.picocontainer.injectors.ProviderAdapter;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.batch.bootstrapper.EnvironmentInformation;
+import org.sonar.home.cache.FileCache;
 import org.sonarqube.ws.client.HttpConnector;
 import org.sonarqube.ws.client.WsClientFactories;
 
@@ -39,7 +40,7 @@ public class BatchWsClientProvider extends ProviderAdapter {
 
   private BatchWsClient wsClient;
 
-  public synchronized BatchWsClient provide(final GlobalProperties settings, final EnvironmentInformation env) {
+  public synchronized BatchWsClient provide(final GlobalProperties settings, final EnvironmentInformation env, FileCache fileCache) {
     if (wsClient == null) {
       String url = defaultIfBlank(settings.property("sonar.host.url"), CoreProperties.SERVER_BASE_URL_DEFAULT_VALUE);
       HttpConnector.Builder connectorBuilder = HttpConnector.newBuilder();
@@ -59,7 +60,8 @@ public class BatchWsClientProvider extends ProviderAdapter {
         connectorBuilder.proxyCredentials(proxyUser, System.getProperty("http.proxyPassword"));
       }
 
-      wsClient = new BatchWsClient(WsClientFactories.getDefault().newClient(connectorBuilder.build()), login != null);
+      WsResponseCache responseCache = new WsResponseCache(fileCache, url + "|" + login);
+      wsClient = new BatchWsClient(WsClientFactories.getDefault().newClient(connectorBuilder.build()), login != null, responseCache);
     }
     return wsClient;
   }
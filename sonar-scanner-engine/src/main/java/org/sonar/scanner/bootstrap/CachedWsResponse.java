@@ -0,0 +1,113 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.bootstrap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.FileUtils;
+import org.sonarqube.ws.client.WsResponse;
+
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Successful response whose content is read from {@link WsResponseCache}
+ */
+class CachedWsResponse implements WsResponse {
+
+  private final String requestUrl;
+  private final String contentType;
+  private final File content;
+
+  CachedWsResponse(String requestUrl, String contentType, File content) {
+    this.requestUrl = requestUrl;
+    this.contentType = contentType;
+    this.content = content;
+  }
+
+  @Override
+  public String requestUrl() {
+    return requestUrl;
+  }
+
+  @Override
+  public int code() {
+    return HTTP_OK;
+  }
+
+  @Override
+  public boolean isSuccessful() {
+    return true;
+  }
+
+  @Override
+  public WsResponse failIfNotSuccessful() {
+    return this;
+  }
+
+  @Override
+  public String contentType() {
+    return contentType;
+  }
+
+  @Override
+  @CheckForNull
+  public String header(String name) {
+    return null;
+  }
+
+  @Override
+  public boolean hasContent() {
+    return true;
+  }
+
+  @Override
+  public InputStream contentStream() {
+    try {
+      return new FileInputStream(content);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read cached response of " + requestUrl, e);
+    }
+  }
+
+  @Override
+  public Reader contentReader() {
+    return new InputStreamReader(contentStream(), UTF_8);
+  }
+
+  @Override
+  public String content() {
+    try {
+      return FileUtils.readFileToString(content, UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read cached response of " + requestUrl, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    // streams are closed by callers
+  }
+}
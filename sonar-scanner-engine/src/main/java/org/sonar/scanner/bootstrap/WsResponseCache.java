@@ -0,0 +1,191 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.bootstrap;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.home.cache.FileCache;
+import org.sonarqube.ws.client.WsRequest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Responses of web services stored in the user cache along with their entity tag, so that they survive
+ * between analyses and are downloaded again only when the server reports that they changed.
+ * Entries are specific to a server and to a user. Entries which have not been used for {@link #MAX_ENTRY_AGE_DAYS} days
+ * are deleted, as well as the least recently used ones when the cache exceeds {@link #MAX_SIZE_BYTES}.
+ */
+public class WsResponseCache {
+
+  static final long MAX_ENTRY_AGE_DAYS = 30L;
+  static final long MAX_SIZE_BYTES = 100L * 1024 * 1024;
+
+  private static final Logger LOG = Loggers.get(WsResponseCache.class);
+  private static final String DIR_NAME = "_ws";
+  private static final String ETAG_SUFFIX = ".etag";
+  private static final String CONTENT_SUFFIX = ".content";
+  private static final String CLEANUP_MARKER = ".last_cleanup";
+  private static final long CLEANUP_PERIOD_MS = TimeUnit.DAYS.toMillis(1L);
+
+  private final FileCache fileCache;
+  private final String namespace;
+  private final System2 system2;
+
+  public WsResponseCache(FileCache fileCache, String namespace) {
+    this(fileCache, namespace, System2.INSTANCE);
+  }
+
+  @VisibleForTesting
+  WsResponseCache(FileCache fileCache, String namespace, System2 system2) {
+    this.fileCache = fileCache;
+    this.namespace = namespace;
+    this.system2 = system2;
+  }
+
+  String key(WsRequest request) {
+    StringBuilder sb = new StringBuilder()
+      .append(namespace).append('|')
+      .append(request.getMethod()).append('|')
+      .append(request.getPath()).append('|')
+      .append(request.getMediaType());
+    for (String paramKey : request.getParameters().getKeys()) {
+      sb.append('|').append(paramKey).append('=').append(request.getParameters().getValues(paramKey));
+    }
+    return DigestUtils.md5Hex(sb.toString());
+  }
+
+  @CheckForNull
+  Entry get(String key) {
+    File etagFile = file(key, ETAG_SUFFIX);
+    File contentFile = file(key, CONTENT_SUFFIX);
+    if (!etagFile.isFile() || !contentFile.isFile()) {
+      return null;
+    }
+    try {
+      Entry entry = new Entry(FileUtils.readFileToString(etagFile, UTF_8), contentFile);
+      // last modification date is the last access date used by cleanup
+      contentFile.setLastModified(system2.now());
+      return entry;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Deletes the entry, for example because the server does not allow its response to be cached anymore.
+   */
+  void remove(String key) {
+    FileUtils.deleteQuietly(file(key, ETAG_SUFFIX));
+    FileUtils.deleteQuietly(file(key, CONTENT_SUFFIX));
+  }
+
+  Entry put(String key, String etag, InputStream content) {
+    // done before storing the new entry, so that it can't be deleted before being read
+    cleanup();
+    File contentFile = file(key, CONTENT_SUFFIX);
+    try {
+      Files.createDirectories(contentFile.getParentFile().toPath());
+      // content is moved before the tag, so that a tag never refers to a partially written content
+      File tempContent = File.createTempFile(key, null, contentFile.getParentFile());
+      Files.copy(content, tempContent.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      Files.move(tempContent.toPath(), contentFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+      File tempEtag = File.createTempFile(key, null, contentFile.getParentFile());
+      FileUtils.write(tempEtag, etag, UTF_8);
+      Files.move(tempEtag.toPath(), file(key, ETAG_SUFFIX).toPath(), StandardCopyOption.REPLACE_EXISTING);
+      contentFile.setLastModified(system2.now());
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to store response in cache: " + contentFile, e);
+    }
+    return new Entry(etag, contentFile);
+  }
+
+  /**
+   * Deletes the entries which have not been used for {@link #MAX_ENTRY_AGE_DAYS} days, then the least recently used
+   * ones until the cache does not exceed {@link #MAX_SIZE_BYTES}. Does nothing if it has already been done during
+   * the last day, possibly by another analysis.
+   */
+  @VisibleForTesting
+  void cleanup() {
+    File cacheDir = new File(fileCache.getDir(), DIR_NAME);
+    File marker = new File(cacheDir, CLEANUP_MARKER);
+    long now = system2.now();
+    File[] files = cacheDir.listFiles();
+    if (files == null || (marker.isFile() && marker.lastModified() > now - CLEANUP_PERIOD_MS)) {
+      return;
+    }
+    long threshold = now - TimeUnit.DAYS.toMillis(MAX_ENTRY_AGE_DAYS);
+    List<File> contentFiles = Arrays.stream(files)
+      .filter(f -> f.getName().endsWith(CONTENT_SUFFIX))
+      .sorted(Comparator.comparingLong(File::lastModified).reversed())
+      .collect(Collectors.toList());
+    long size = 0L;
+    for (File contentFile : contentFiles) {
+      if (contentFile.lastModified() < threshold || size + contentFile.length() > MAX_SIZE_BYTES) {
+        remove(contentFile.getName().substring(0, contentFile.getName().length() - CONTENT_SUFFIX.length()));
+      } else {
+        size += contentFile.length();
+      }
+    }
+    try {
+      Files.write(marker.toPath(), new byte[0]);
+      marker.setLastModified(now);
+    } catch (IOException e) {
+      LOG.debug("Fail to clean up cache of web service responses {}", cacheDir, e);
+    }
+  }
+
+  private File file(String key, String suffix) {
+    return new File(new File(fileCache.getDir(), DIR_NAME), key + suffix);
+  }
+
+  static class Entry {
+    private final String etag;
+    private final File content;
+
+    Entry(String etag, File content) {
+      this.etag = etag;
+      this.content = content;
+    }
+
+    String etag() {
+      return etag;
+    }
+
+    File content() {
+      return content;
+    }
+  }
+}
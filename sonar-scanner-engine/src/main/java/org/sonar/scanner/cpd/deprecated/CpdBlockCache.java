@@ -0,0 +1,287 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cpd.deprecated;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.picocontainer.Startable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.home.cache.FileCache;
+
+/**
+ * Opt-in cache of the CPD blocks computed by {@link DefaultCpdBlockIndexer}, persisted in the user cache so that it
+ * survives between analyses. Entries are keyed by the hash of the file content, the tokenizer (and the checksum of the
+ * jar providing it), the CPD settings which can change how tokenizers behave, the encoding and the block size, so
+ * files that did not change since a previous analysis are not tokenized again. Entries which have not been used for {@link #MAX_ENTRY_AGE_DAYS} days are deleted.
+ */
+@ScannerSide
+public class CpdBlockCache implements Startable {
+
+  public static final String ENABLED_PROPERTY = "sonar.cpd.cacheBlocks";
+
+  @VisibleForTesting
+  static final long MAX_ENTRY_AGE_DAYS = 30L;
+
+  private static final Logger LOG = LoggerFactory.getLogger(CpdBlockCache.class);
+  private static final String DIR_NAME = "_cpd";
+  private static final String CLEANUP_MARKER = ".last_cleanup";
+  private static final long CLEANUP_PERIOD_MS = TimeUnit.DAYS.toMillis(1L);
+  private static final int FORMAT_VERSION = 2;
+  private static final String CPD_PROPERTY_PREFIX = "sonar.cpd.";
+  private static final Set<String> IGNORED_PROPERTIES = ImmutableSet.of(ENABLED_PROPERTY, CoreProperties.CPD_EXCLUSIONS, CoreProperties.CPD_CROSS_PROJECT);
+
+  private final Settings settings;
+  private final boolean enabled;
+  private final FileCache fileCache;
+  private final System2 system2;
+  private final Map<String, String> checksumsByLocation = new HashMap<>();
+  private File dir;
+  private String settingsChecksum;
+
+  public CpdBlockCache(Settings settings, FileCache fileCache) {
+    this(settings, fileCache, System2.INSTANCE);
+  }
+
+  @VisibleForTesting
+  CpdBlockCache(Settings settings, FileCache fileCache, System2 system2) {
+    this.settings = settings;
+    this.enabled = settings.getBoolean(ENABLED_PROPERTY);
+    this.fileCache = fileCache;
+    this.system2 = system2;
+  }
+
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  @Override
+  public void stop() {
+    if (enabled) {
+      cleanup();
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Key of the cache entry of the given file. Returns null if the file has no hash, for example when it was not
+   * read by the scanner.
+   */
+  @CheckForNull
+  public String key(DefaultInputFile inputFile, Object tokenizer, String encoding, int blockSize) {
+    String fileHash = inputFile.hash();
+    if (fileHash == null) {
+      return null;
+    }
+    Class<?> tokenizerClass = tokenizer.getClass();
+    return DigestUtils.md5Hex(FORMAT_VERSION + "|" + fileHash + "|" + inputFile.language() + "|" + tokenizerClass.getName() + "|" + checksumOf(tokenizerClass)
+      + "|" + settingsChecksum() + "|" + encoding + "|" + blockSize);
+  }
+
+  /**
+   * Checksum of the "sonar.cpd.*" properties, as tokenizers provided by plugins can be configured by them (for example
+   * to ignore literals). Properties which don't change the blocks of a file, like the exclusions, are ignored.
+   */
+  private String settingsChecksum() {
+    if (settingsChecksum == null) {
+      StringBuilder sb = new StringBuilder();
+      new TreeMap<>(settings.getProperties()).forEach((propertyKey, value) -> {
+        if (propertyKey.startsWith(CPD_PROPERTY_PREFIX) && !IGNORED_PROPERTIES.contains(propertyKey)) {
+          sb.append(propertyKey).append('=').append(value).append('\n');
+        }
+      });
+      settingsChecksum = DigestUtils.md5Hex(sb.toString());
+    }
+    return settingsChecksum;
+  }
+
+  /**
+   * Checksum of the jar the class has been loaded from, so that upgrading the plugin providing a tokenizer invalidates
+   * the entries created by the previous version. Falls back to the checksum of the class file itself when the class
+   * is not loaded from a jar.
+   */
+  private String checksumOf(Class<?> tokenizerClass) {
+    CodeSource codeSource = tokenizerClass.getProtectionDomain().getCodeSource();
+    if (codeSource == null || codeSource.getLocation() == null) {
+      return checksumOfClassFile(tokenizerClass);
+    }
+    return checksumsByLocation.computeIfAbsent(codeSource.getLocation().toString(), location -> {
+      try {
+        File file = new File(codeSource.getLocation().toURI());
+        if (file.isFile()) {
+          try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+            return DigestUtils.md5Hex(input);
+          }
+        }
+      } catch (URISyntaxException | IllegalArgumentException | IOException e) {
+        LOG.debug("Fail to compute checksum of {}", location, e);
+      }
+      return checksumOfClassFile(tokenizerClass);
+    });
+  }
+
+  private static String checksumOfClassFile(Class<?> tokenizerClass) {
+    String resourceName = tokenizerClass.getName().substring(tokenizerClass.getName().lastIndexOf('.') + 1) + ".class";
+    try (InputStream input = tokenizerClass.getResourceAsStream(resourceName)) {
+      return input == null ? "" : DigestUtils.md5Hex(input);
+    } catch (IOException e) {
+      LOG.debug("Fail to compute checksum of {}", tokenizerClass, e);
+      return "";
+    }
+  }
+
+  /**
+   * Blocks previously stored with the given key, bound to the given resource. Returns null if not in cache.
+   */
+  @CheckForNull
+  public List<Block> get(String key, String resourceId) {
+    File file = entryFile(key);
+    if (!file.isFile()) {
+      return null;
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      int size = input.readInt();
+      List<Block> blocks = new ArrayList<>(size);
+      Block.Builder builder = Block.builder().setResourceId(resourceId);
+      for (int i = 0; i < size; i++) {
+        byte[] hash = new byte[input.readUnsignedShort()];
+        input.readFully(hash);
+        blocks.add(builder
+          .setBlockHash(new ByteArray(hash))
+          .setIndexInFile(input.readInt())
+          .setLines(input.readInt(), input.readInt())
+          .setUnit(input.readInt(), input.readInt())
+          .build());
+      }
+      // last modification date is the last access date used by cleanup
+      file.setLastModified(system2.now());
+      return blocks;
+    } catch (IOException e) {
+      LOG.debug("Ignoring corrupted CPD cache entry {}", file, e);
+      return null;
+    }
+  }
+
+  public void put(String key, List<Block> blocks) {
+    File file = entryFile(key);
+    try {
+      Files.createDirectories(file.getParentFile().toPath());
+      File tempFile = File.createTempFile(key, null, file.getParentFile());
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        output.writeInt(blocks.size());
+        for (Block block : blocks) {
+          byte[] hash = block.getBlockHash().getBytes();
+          output.writeShort(hash.length);
+          output.write(hash);
+          output.writeInt(block.getIndexInFile());
+          output.writeInt(block.getStartLine());
+          output.writeInt(block.getEndLine());
+          output.writeInt(block.getStartUnit());
+          output.writeInt(block.getEndUnit());
+        }
+      }
+      // entries are immutable, so concurrent analyses writing the same entry is harmless
+      Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      file.setLastModified(system2.now());
+    } catch (IOException e) {
+      LOG.debug("Fail to store CPD cache entry {}", file, e);
+    }
+  }
+
+  /**
+   * Deletes the entries which have not been used for {@link #MAX_ENTRY_AGE_DAYS} days. Does nothing if it has already
+   * been done during the last day, possibly by another analysis.
+   */
+  @VisibleForTesting
+  void cleanup() {
+    File cacheDir = cacheDir();
+    File marker = new File(cacheDir, CLEANUP_MARKER);
+    long now = system2.now();
+    if (!cacheDir.isDirectory() || (marker.isFile() && marker.lastModified() > now - CLEANUP_PERIOD_MS)) {
+      return;
+    }
+    long threshold = now - TimeUnit.DAYS.toMillis(MAX_ENTRY_AGE_DAYS);
+    try (DirectoryStream<Path> subDirs = Files.newDirectoryStream(cacheDir.toPath(), Files::isDirectory)) {
+      for (Path subDir : subDirs) {
+        deleteEntriesNotUsedSince(subDir, threshold);
+      }
+      Files.write(marker.toPath(), new byte[0]);
+      marker.setLastModified(now);
+    } catch (IOException e) {
+      LOG.debug("Fail to clean up CPD cache {}", cacheDir, e);
+    }
+  }
+
+  private static void deleteEntriesNotUsedSince(Path subDir, long threshold) throws IOException {
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(subDir)) {
+      for (Path entry : entries) {
+        if (entry.toFile().lastModified() < threshold) {
+          Files.deleteIfExists(entry);
+        }
+      }
+    }
+  }
+
+  private File entryFile(String key) {
+    return new File(new File(cacheDir(), key.substring(0, 2)), key);
+  }
+
+  private File cacheDir() {
+    if (dir == null) {
+      dir = new File(fileCache.getDir(), DIR_NAME);
+    }
+    return dir;
+  }
+}
@@ -43,12 +43,14 @@ public class DefaultCpdBlockIndexer extends CpdBlockIndexer {
   private final FileSystem fs;
   private final Settings settings;
   private final SonarCpdBlockIndex index;
+  private final CpdBlockCache cache;
 
-  public DefaultCpdBlockIndexer(CpdMappings mappings, FileSystem fs, Settings settings, SonarCpdBlockIndex index) {
+  public DefaultCpdBlockIndexer(CpdMappings mappings, FileSystem fs, Settings settings, SonarCpdBlockIndex index, CpdBlockCache cache) {
     this.mappings = mappings;
     this.fs = fs;
     this.settings = settings;
     this.index = index;
+    this.cache = cache;
   }
 
   @Override
@@ -80,12 +82,22 @@ public class DefaultCpdBlockIndexer extends CpdBlockIndexer {
   }
 
   private void populateIndex(String languageKey, List<InputFile> sourceFiles, CpdMapping mapping) {
-    TokenizerBridge bridge = new TokenizerBridge(mapping.getTokenizer(), fs.encoding().name(), getBlockSize(languageKey));
+    int blockSize = getBlockSize(languageKey);
+    String encoding = fs.encoding().name();
+    TokenizerBridge bridge = new TokenizerBridge(mapping.getTokenizer(), encoding, blockSize);
     for (InputFile inputFile : sourceFiles) {
       if (!index.isIndexed(inputFile)) {
         LOG.debug("Populating index from {}", inputFile.absolutePath());
-        String resourceEffectiveKey = ((DefaultInputFile) inputFile).key();
-        List<Block> blocks = bridge.chunk(resourceEffectiveKey, inputFile.file());
+        DefaultInputFile defaultInputFile = (DefaultInputFile) inputFile;
+        String resourceEffectiveKey = defaultInputFile.key();
+        String cacheKey = cache.isEnabled() ? cache.key(defaultInputFile, mapping.getTokenizer(), encoding, blockSize) : null;
+        List<Block> blocks = cacheKey == null ? null : cache.get(cacheKey, resourceEffectiveKey);
+        if (blocks == null) {
+          blocks = bridge.chunk(resourceEffectiveKey, inputFile.file());
+          if (cacheKey != null) {
+            cache.put(cacheKey, blocks);
+          }
+        }
         index.insert(inputFile, blocks);
       }
     }
@@ -53,11 +53,13 @@ public class JavaCpdBlockIndexer extends CpdBlockIndexer {
   private final FileSystem fs;
   private final Settings settings;
   private final SonarCpdBlockIndex index;
+  private final CpdBlockCache cache;
 
-  public JavaCpdBlockIndexer(FileSystem fs, Settings settings, SonarCpdBlockIndex index) {
+  public JavaCpdBlockIndexer(FileSystem fs, Settings settings, SonarCpdBlockIndex index, CpdBlockCache cache) {
     this.fs = fs;
     this.settings = settings;
     this.index = index;
+    this.cache = cache;
   }
 
   @Override
@@ -87,7 +89,15 @@ public class JavaCpdBlockIndexer extends CpdBlockIndexer {
 
     for (InputFile inputFile : sourceFiles) {
       LOG.debug("Populating index from {}", inputFile);
-      String resourceEffectiveKey = ((DefaultInputFile) inputFile).key();
+      DefaultInputFile defaultInputFile = (DefaultInputFile) inputFile;
+      String resourceEffectiveKey = defaultInputFile.key();
+
+      String cacheKey = cache.isEnabled() ? cache.key(defaultInputFile, this, fs.encoding().name(), BLOCK_SIZE) : null;
+      List<Block> cachedBlocks = cacheKey == null ? null : cache.get(cacheKey, resourceEffectiveKey);
+      if (cachedBlocks != null) {
+        index.insert(inputFile, cachedBlocks);
+        continue;
+      }
 
       List<Statement> statements;
 
@@ -101,6 +111,9 @@ public class JavaCpdBlockIndexer extends CpdBlockIndexer {
       }
 
       List<Block> blocks = blockChunker.chunk(resourceEffectiveKey, statements);
+      if (cacheKey != null) {
+        cache.put(cacheKey, blocks);
+      }
       index.insert(inputFile, blocks);
     }
   }
@@ -21,16 +21,17 @@ package org.sonar.scanner.issue.ignore.scanner;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.scanner.issue.ignore.pattern.IssueExclusionPatternInitializer;
 import org.sonar.scanner.issue.ignore.pattern.IssuePattern;
 import org.sonar.scanner.issue.ignore.pattern.LineRange;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Set;
@@ -41,7 +42,7 @@ public class IssueExclusionsRegexpScanner {
   private static final Logger LOG = LoggerFactory.getLogger(IssueExclusionsRegexpScanner.class);
 
   private IssueExclusionPatternInitializer exclusionPatternInitializer;
-  private List<java.util.regex.Pattern> allFilePatterns;
+  private List<LinePattern> allFilePatterns;
   private List<DoubleRegexpMatcher> blockMatchers;
 
   // fields to be reset at every new scan
@@ -58,12 +59,12 @@ public class IssueExclusionsRegexpScanner {
     blockMatchers = Lists.newArrayList();
 
     for (IssuePattern pattern : patternsInitializer.getAllFilePatterns()) {
-      allFilePatterns.add(java.util.regex.Pattern.compile(pattern.getAllFileRegexp()));
+      allFilePatterns.add(new LinePattern(pattern.getAllFileRegexp()));
     }
     for (IssuePattern pattern : patternsInitializer.getBlockPatterns()) {
       blockMatchers.add(new DoubleRegexpMatcher(
-        java.util.regex.Pattern.compile(pattern.getBeginBlockRegexp()),
-        java.util.regex.Pattern.compile(pattern.getEndBlockRegexp())));
+        new LinePattern(pattern.getBeginBlockRegexp()),
+        new LinePattern(pattern.getEndBlockRegexp())));
     }
 
     init();
@@ -80,26 +81,30 @@ public class IssueExclusionsRegexpScanner {
     LOG.debug("Scanning {}", resource);
     init();
 
-    List<String> lines = FileUtils.readLines(file, sourcesEncoding.name());
+    // lines are streamed rather than loaded all at once, so that scanning stops as soon as
+    // the file is excluded as a whole
     int lineIndex = 0;
-    for (String line : lines) {
-      lineIndex++;
-      if (line.trim().length() == 0) {
-        continue;
-      }
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), sourcesEncoding))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineIndex++;
+        if (line.trim().length() == 0) {
+          continue;
+        }
 
-      // first check the single regexp patterns that can be used to totally exclude a file
-      for (java.util.regex.Pattern pattern : allFilePatterns) {
-        if (pattern.matcher(line).find()) {
-          exclusionPatternInitializer.getPatternMatcher().addPatternToExcludeResource(resource);
-          // nothing more to do on this file
-          LOG.debug("- Exclusion pattern '{}': every violation in this file will be ignored.", pattern);
-          return;
+        // first check the single regexp patterns that can be used to totally exclude a file
+        for (LinePattern pattern : allFilePatterns) {
+          if (pattern.find(line)) {
+            exclusionPatternInitializer.getPatternMatcher().addPatternToExcludeResource(resource);
+            // nothing more to do on this file
+            LOG.debug("- Exclusion pattern '{}': every violation in this file will be ignored.", pattern);
+            return;
+          }
         }
-      }
 
-      // then check the double regexps if we're still here
-      checkDoubleRegexps(line, lineIndex);
+        // then check the double regexps if we're still here
+        checkDoubleRegexps(line, lineIndex);
+      }
     }
 
     if (currentMatcher != null && !currentMatcher.hasSecondPattern()) {
@@ -173,24 +178,24 @@ public class IssueExclusionsRegexpScanner {
 
   private static class DoubleRegexpMatcher {
 
-    private java.util.regex.Pattern firstPattern;
-    private java.util.regex.Pattern secondPattern;
+    private LinePattern firstPattern;
+    private LinePattern secondPattern;
 
-    DoubleRegexpMatcher(java.util.regex.Pattern firstPattern, java.util.regex.Pattern secondPattern) {
+    DoubleRegexpMatcher(LinePattern firstPattern, LinePattern secondPattern) {
       this.firstPattern = firstPattern;
       this.secondPattern = secondPattern;
     }
 
     boolean matchesFirstPattern(String line) {
-      return firstPattern.matcher(line).find();
+      return firstPattern.find(line);
     }
 
     boolean matchesSecondPattern(String line) {
-      return hasSecondPattern() && secondPattern.matcher(line).find();
+      return hasSecondPattern() && secondPattern.find(line);
     }
 
     boolean hasSecondPattern() {
-      return StringUtils.isNotEmpty(secondPattern.toString());
+      return !secondPattern.isEmpty();
     }
   }
 
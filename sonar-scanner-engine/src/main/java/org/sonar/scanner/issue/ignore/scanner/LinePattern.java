@@ -0,0 +1,87 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.ignore.scanner;
+
+import java.util.regex.Pattern;
+import javax.annotation.CheckForNull;
+
+/**
+ * A regular expression applied to a single line, guarded by a literal that any match must contain.
+ * The literal is checked with {@link String#indexOf(String)} so that most lines are rejected
+ * without running the regexp engine at all.
+ */
+class LinePattern {
+
+  private static final String META_CHARACTERS = "\\^$.|?*+()[]{}";
+  private static final String QUANTIFIERS = "?*+{";
+
+  private final Pattern pattern;
+  private final String requiredLiteral;
+
+  LinePattern(String regexp) {
+    this.pattern = Pattern.compile(regexp);
+    this.requiredLiteral = extractRequiredLiteral(regexp);
+  }
+
+  boolean find(String line) {
+    if (requiredLiteral != null && line.indexOf(requiredLiteral) < 0) {
+      return false;
+    }
+    return pattern.matcher(line).find();
+  }
+
+  boolean isEmpty() {
+    return pattern.pattern().isEmpty();
+  }
+
+  @CheckForNull
+  String requiredLiteral() {
+    return requiredLiteral;
+  }
+
+  @Override
+  public String toString() {
+    return pattern.toString();
+  }
+
+  /**
+   * Returns the plain-text prefix of the regexp (after an optional leading {@code ^}), or null if
+   * the regexp does not start with a literal or contains an alternation.
+   */
+  @CheckForNull
+  static String extractRequiredLiteral(String regexp) {
+    if (regexp.indexOf('|') >= 0) {
+      return null;
+    }
+    int start = regexp.startsWith("^") ? 1 : 0;
+    int end = start;
+    while (end < regexp.length() && META_CHARACTERS.indexOf(regexp.charAt(end)) < 0) {
+      end++;
+    }
+    if (end < regexp.length() && QUANTIFIERS.indexOf(regexp.charAt(end)) >= 0) {
+      // last character is optional or repeated
+      end--;
+    }
+    if (end <= start) {
+      return null;
+    }
+    return regexp.substring(start, end);
+  }
+}
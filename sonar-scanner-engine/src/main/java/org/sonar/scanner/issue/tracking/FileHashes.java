@@ -38,21 +38,15 @@ import java.util.Collection;
 public final class FileHashes {
 
   private final String[] hashes;
-  private final Multimap<String, Integer> linesByHash;
+  // lazily built, only needed when looking for lines by hash
+  private Multimap<String, Integer> linesByHash;
 
-  private FileHashes(String[] hashes, Multimap<String, Integer> linesByHash) {
+  private FileHashes(String[] hashes) {
     this.hashes = hashes;
-    this.linesByHash = linesByHash;
   }
 
   public static FileHashes create(String[] hashes) {
-    int size = hashes.length;
-    Multimap<String, Integer> linesByHash = LinkedHashMultimap.create();
-    for (int i = 0; i < size; i++) {
-      // indices in array are shifted one line before
-      linesByHash.put(hashes[i], i + 1);
-    }
-    return new FileHashes(hashes, linesByHash);
+    return new FileHashes(hashes);
   }
 
   public static FileHashes create(DefaultInputFile f) {
@@ -66,15 +60,11 @@ public final class FileHashes {
     });
 
     int size = hashes.length;
-    Multimap<String, Integer> linesByHash = LinkedHashMultimap.create();
     String[] hexHashes = new String[size];
     for (int i = 0; i < size; i++) {
-      String hash = hashes[i] != null ? Hex.encodeHexString(hashes[i]) : "";
-      hexHashes[i] = hash;
-      // indices in array are shifted one line before
-      linesByHash.put(hash, i + 1);
+      hexHashes[i] = hashes[i] != null ? Hex.encodeHexString(hashes[i]) : "";
     }
-    return new FileHashes(hexHashes, linesByHash);
+    return new FileHashes(hexHashes);
   }
 
   public int length() {
@@ -82,6 +72,13 @@ public final class FileHashes {
   }
 
   public Collection<Integer> getLinesForHash(String hash) {
+    if (linesByHash == null) {
+      linesByHash = LinkedHashMultimap.create();
+      for (int i = 0; i < hashes.length; i++) {
+        // indices in array are shifted one line before
+        linesByHash.put(hashes[i], i + 1);
+      }
+    }
     return linesByHash.get(hash);
   }
   
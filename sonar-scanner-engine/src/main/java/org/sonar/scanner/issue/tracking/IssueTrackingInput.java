@@ -32,12 +32,11 @@ public class IssueTrackingInput<T extends Trackable> implements Input<T> {
 
   private final Collection<T> issues;
   private final LineHashSequence lineHashes;
-  private final BlockHashSequence blockHashes;
+  private BlockHashSequence blockHashes;
 
   public IssueTrackingInput(Collection<T> issues, List<String> hashes) {
     this.issues = issues;
     this.lineHashes = new LineHashSequence(hashes);
-    this.blockHashes = BlockHashSequence.create(lineHashes);
   }
 
   @Override
@@ -47,6 +46,10 @@ public class IssueTrackingInput<T extends Trackable> implements Input<T> {
 
   @Override
   public BlockHashSequence getBlockHashSequence() {
+    // only needed to detect code moves, when some issues are still unmatched
+    if (blockHashes == null) {
+      blockHashes = BlockHashSequence.create(lineHashes);
+    }
     return blockHashes;
   }
 
@@ -79,8 +79,8 @@ public class LocalIssueTracking {
       if (shouldCopyServerIssues(component)) {
         // raw issues should be empty, we just need to deal with server issues (SONAR-6931)
         copyServerIssues(serverIssues, trackedIssues);
-      } else {
-
+      } else if (!serverIssues.isEmpty() || !reportIssues.isEmpty()) {
+        // line hashes are only loaded when there is something to track
         SourceHashHolder sourceHashHolder = loadSourceHashes(component);
         Collection<TrackedIssue> rIssues = IssueTransformer.toTrackedIssue(component, reportIssues, sourceHashHolder);
 
@@ -40,7 +40,7 @@ public class DefaultGlobalRepositoriesLoader implements GlobalRepositoriesLoader
   public GlobalRepositories load() {
     GetRequest getRequest = new GetRequest(BATCH_GLOBAL_URL);
     String str;
-    try (Reader reader = wsClient.call(getRequest).contentReader()) {
+    try (Reader reader = wsClient.callCached(getRequest).contentReader()) {
       str = IOUtils.toString(reader);
     } catch (IOException e) {
       throw new IllegalStateException(e);
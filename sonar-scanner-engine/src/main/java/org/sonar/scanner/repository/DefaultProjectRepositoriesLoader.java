@@ -55,7 +55,7 @@ public class DefaultProjectRepositoriesLoader implements ProjectRepositoriesLoad
   @Override
   public ProjectRepositories load(String projectKey, boolean issuesMode) {
     GetRequest request = new GetRequest(getUrl(projectKey, issuesMode));
-    try (WsResponse response = wsClient.call(request)) {
+    try (WsResponse response = wsClient.callCached(request)) {
       InputStream is = response.contentStream();
       return processStream(is, projectKey);
     } catch (RuntimeException e) {
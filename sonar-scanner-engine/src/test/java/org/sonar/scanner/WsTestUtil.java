@@ -23,6 +23,7 @@ import org.apache.commons.lang.StringUtils;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.sonar.scanner.bootstrap.BatchWsClient;
+import org.sonarqube.ws.client.GetRequest;
 import org.sonarqube.ws.client.WsRequest;
 import org.sonarqube.ws.client.WsResponse;
 
@@ -40,38 +41,66 @@ public class WsTestUtil {
     WsResponse response = mock(WsResponse.class);
     when(response.contentStream()).thenReturn(is);
     when(mock.call(argThat(new RequestMatcher(path)))).thenReturn(response);
+    when(mock.callCached(argThat(new GetRequestMatcher(path)))).thenReturn(response);
   }
 
   public static void mockStream(BatchWsClient mock, InputStream is) {
     WsResponse response = mock(WsResponse.class);
     when(response.contentStream()).thenReturn(is);
     when(mock.call(any(WsRequest.class))).thenReturn(response);
+    when(mock.callCached(any(GetRequest.class))).thenReturn(response);
   }
 
   public static void mockReader(BatchWsClient mock, Reader reader) {
     WsResponse response = mock(WsResponse.class);
     when(response.contentReader()).thenReturn(reader);
     when(mock.call(any(WsRequest.class))).thenReturn(response);
+    when(mock.callCached(any(GetRequest.class))).thenReturn(response);
   }
 
   public static void mockReader(BatchWsClient mock, String path, Reader reader) {
     WsResponse response = mock(WsResponse.class);
     when(response.contentReader()).thenReturn(reader);
     when(mock.call(argThat(new RequestMatcher(path)))).thenReturn(response);
+    when(mock.callCached(argThat(new GetRequestMatcher(path)))).thenReturn(response);
   }
 
   public static void mockException(BatchWsClient mock, Exception e) {
     when(mock.call(any(WsRequest.class))).thenThrow(e);
+    when(mock.callCached(any(GetRequest.class))).thenThrow(e);
   }
 
   public static void mockException(BatchWsClient mock, String path, Exception e) {
     when(mock.call(argThat(new RequestMatcher(path)))).thenThrow(e);
+    when(mock.callCached(argThat(new GetRequestMatcher(path)))).thenThrow(e);
   }
 
   public static void verifyCall(BatchWsClient mock, String path) {
     verify(mock).call(argThat(new RequestMatcher(path)));
   }
 
+  public static void verifyCachedCall(BatchWsClient mock, String path) {
+    verify(mock).callCached(argThat(new GetRequestMatcher(path)));
+  }
+
+  private static class GetRequestMatcher extends BaseMatcher<GetRequest> {
+    private final RequestMatcher delegate;
+
+    public GetRequestMatcher(String path) {
+      this.delegate = new RequestMatcher(path);
+    }
+
+    @Override
+    public boolean matches(Object item) {
+      return delegate.matches(item);
+    }
+
+    @Override
+    public void describeTo(Description description) {
+      delegate.describeTo(description);
+    }
+  }
+
   private static class RequestMatcher extends BaseMatcher<WsRequest> {
     private String path;
 
@@ -35,6 +35,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class BatchPluginInstallerTest {
@@ -83,4 +84,26 @@ public class BatchPluginInstallerTest {
 
     new BatchPluginInstaller(wsClient, fileCache, pluginPredicate).installRemotes();
   }
+
+  @Test
+  public void should_fail_if_one_of_the_concurrent_downloads_fails() {
+    WsTestUtil.mockReader(wsClient, "/deploy/plugins/index.txt", new StringReader("checkstyle,true,checkstyle-plugin.jar|fakemd5_1\nsqale,true,sqale-plugin.jar|fakemd5_2"));
+    when(pluginPredicate.apply(any(String.class))).thenReturn(true);
+    when(fileCache.get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.Downloader.class))).thenThrow(new IllegalStateException("INVALID HASH"));
+    when(fileCache.get(eq("sqale-plugin.jar"), eq("fakemd5_2"), any(FileCache.Downloader.class))).thenThrow(new IllegalStateException("INVALID HASH"));
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Fail to download plugin: checkstyle");
+
+    new BatchPluginInstaller(wsClient, fileCache, pluginPredicate).installRemotes();
+  }
+
+  @Test
+  public void should_not_download_plugins_rejected_by_predicate() {
+    WsTestUtil.mockReader(wsClient, "/deploy/plugins/index.txt", new StringReader("checkstyle,true,checkstyle-plugin.jar|fakemd5_1"));
+    when(pluginPredicate.apply("checkstyle")).thenReturn(false);
+
+    assertThat(new BatchPluginInstaller(wsClient, fileCache, pluginPredicate).installRemotes()).isEmpty();
+    verifyZeroInteractions(fileCache);
+  }
 }
@@ -23,20 +23,23 @@ import java.util.HashMap;
 import java.util.Map;
 import org.junit.Test;
 import org.sonar.batch.bootstrapper.EnvironmentInformation;
+import org.sonar.home.cache.FileCache;
 import org.sonarqube.ws.client.HttpConnector;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 
 public class BatchWsClientProviderTest {
 
   private BatchWsClientProvider underTest = new BatchWsClientProvider();
   private EnvironmentInformation env = new EnvironmentInformation("Maven Plugin", "2.3");
+  private FileCache fileCache = mock(FileCache.class);
 
   @Test
   public void provide_client_with_default_settings() {
     GlobalProperties settings = new GlobalProperties(new HashMap<>());
 
-    BatchWsClient client = underTest.provide(settings, env);
+    BatchWsClient client = underTest.provide(settings, env, fileCache);
 
     assertThat(client).isNotNull();
     assertThat(client.baseUrl()).isEqualTo("http://localhost:9000/");
@@ -56,7 +59,7 @@ public class BatchWsClientProviderTest {
     props.put("sonar.ws.timeout", "42");
     GlobalProperties settings = new GlobalProperties(props);
 
-    BatchWsClient client = underTest.provide(settings, env);
+    BatchWsClient client = underTest.provide(settings, env, fileCache);
 
     assertThat(client).isNotNull();
     HttpConnector httpConnector = (HttpConnector) client.wsConnector();
@@ -67,8 +70,8 @@ public class BatchWsClientProviderTest {
   @Test
   public void build_singleton() {
     GlobalProperties settings = new GlobalProperties(new HashMap<>());
-    BatchWsClient first = underTest.provide(settings, env);
-    BatchWsClient second = underTest.provide(settings, env);
+    BatchWsClient first = underTest.provide(settings, env, fileCache);
+    BatchWsClient second = underTest.provide(settings, env, fileCache);
     assertThat(first).isSameAs(second);
   }
 }
@@ -19,15 +19,19 @@
  */
 package org.sonar.scanner.bootstrap;
 
+import java.io.IOException;
 import java.util.List;
+import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
-import org.sonar.scanner.bootstrap.BatchWsClient;
+import org.sonar.home.cache.FileCache;
+import org.sonar.home.cache.Logger;
 import org.sonarqube.ws.client.GetRequest;
 import org.sonarqube.ws.client.MockWsResponse;
 import org.sonarqube.ws.client.WsClient;
@@ -46,7 +50,11 @@ public class BatchWsClientTest {
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   WsClient wsClient = mock(WsClient.class, Mockito.RETURNS_DEEP_STUBS);
+  WsResponseCache responseCache = mock(WsResponseCache.class);
 
   @Test
   public void log_and_profile_request_if_debug_level() throws Exception {
@@ -55,7 +63,7 @@ public class BatchWsClientTest {
     when(wsClient.wsConnector().call(request)).thenReturn(response);
 
     logTester.setLevel(LoggerLevel.DEBUG);
-    BatchWsClient underTest = new BatchWsClient(wsClient, false);
+    BatchWsClient underTest = new BatchWsClient(wsClient, false, responseCache);
 
     WsResponse result = underTest.call(request);
 
@@ -78,7 +86,7 @@ public class BatchWsClientTest {
     WsResponse response = newResponse().setCode(401);
     when(wsClient.wsConnector().call(request)).thenReturn(response);
 
-    new BatchWsClient(wsClient, false).call(request);
+    new BatchWsClient(wsClient, false, responseCache).call(request);
   }
 
   @Test
@@ -90,7 +98,7 @@ public class BatchWsClientTest {
     WsResponse response = newResponse().setCode(401);
     when(wsClient.wsConnector().call(request)).thenReturn(response);
 
-    new BatchWsClient(wsClient, /* credentials are configured */true).call(request);
+    new BatchWsClient(wsClient, /* credentials are configured */true, responseCache).call(request);
   }
 
   @Test
@@ -104,7 +112,7 @@ public class BatchWsClientTest {
       .setContent("{\"errors\":[{\"msg\":\"missing scan permission\"}, {\"msg\":\"missing another permission\"}]}");
     when(wsClient.wsConnector().call(request)).thenReturn(response);
 
-    new BatchWsClient(wsClient, true).call(request);
+    new BatchWsClient(wsClient, true, responseCache).call(request);
   }
 
   @Test
@@ -118,14 +126,95 @@ public class BatchWsClientTest {
       .setContent("{\"errors\":[{\"msg\":\"Boo! bad request! bad!\"}]}");
     when(wsClient.wsConnector().call(request)).thenReturn(response);
 
-    new BatchWsClient(wsClient, true).call(request);
+    new BatchWsClient(wsClient, true, responseCache).call(request);
+  }
+
+  @Test
+  public void cache_response_having_etag() throws Exception {
+    BatchWsClient underTest = new BatchWsClient(wsClient, false, newResponseCache());
+    GetRequest request = newRequest();
+    when(wsClient.wsConnector().call(request)).thenReturn(newResponse().setHeader("ETag", "\"abc\"").setContent("content"));
+
+    WsResponse result = underTest.callCached(request);
+
+    assertThat(result.content()).isEqualTo("content");
+    assertThat(request.getHeaders()).isEmpty();
+  }
+
+  @Test
+  public void use_cached_response_if_not_modified() throws Exception {
+    BatchWsClient underTest = new BatchWsClient(wsClient, false, newResponseCache());
+    GetRequest first = newRequest();
+    when(wsClient.wsConnector().call(first)).thenReturn(newResponse().setHeader("ETag", "\"abc\"").setContent("content"));
+    underTest.callCached(first);
+
+    GetRequest second = newRequest();
+    when(wsClient.wsConnector().call(second)).thenReturn(newResponse().setCode(304));
+    WsResponse result = underTest.callCached(second);
+
+    assertThat(second.getHeaders()).containsEntry("If-None-Match", "\"abc\"");
+    assertThat(result.code()).isEqualTo(200);
+    assertThat(IOUtils.toString(result.contentReader())).isEqualTo("content");
+  }
+
+  @Test
+  public void replace_cached_response_if_modified() throws Exception {
+    BatchWsClient underTest = new BatchWsClient(wsClient, false, newResponseCache());
+    GetRequest first = newRequest();
+    when(wsClient.wsConnector().call(first)).thenReturn(newResponse().setHeader("ETag", "\"abc\"").setContent("content"));
+    underTest.callCached(first);
+
+    GetRequest second = newRequest();
+    when(wsClient.wsConnector().call(second)).thenReturn(newResponse().setHeader("ETag", "\"def\"").setContent("new content"));
+    assertThat(underTest.callCached(second).content()).isEqualTo("new content");
+
+    GetRequest third = newRequest();
+    when(wsClient.wsConnector().call(third)).thenReturn(newResponse().setCode(304));
+    assertThat(underTest.callCached(third).content()).isEqualTo("new content");
+    assertThat(third.getHeaders()).containsEntry("If-None-Match", "\"def\"");
+  }
+
+  @Test
+  public void do_not_cache_response_without_etag() throws Exception {
+    BatchWsClient underTest = new BatchWsClient(wsClient, false, newResponseCache());
+    GetRequest first = newRequest();
+    MockWsResponse response = newResponse().setContent("content");
+    when(wsClient.wsConnector().call(first)).thenReturn(response);
+    assertThat(underTest.callCached(first)).isSameAs(response);
+
+    GetRequest second = newRequest();
+    when(wsClient.wsConnector().call(second)).thenReturn(newResponse().setContent("content"));
+    underTest.callCached(second);
+    assertThat(second.getHeaders()).isEmpty();
+  }
+
+  @Test
+  public void remove_cached_response_when_response_is_not_cacheable_anymore() throws Exception {
+    BatchWsClient underTest = new BatchWsClient(wsClient, false, newResponseCache());
+    GetRequest first = newRequest();
+    when(wsClient.wsConnector().call(first)).thenReturn(newResponse().setHeader("ETag", "\"abc\"").setContent("content"));
+    underTest.callCached(first);
+
+    // for example because secured settings are now returned
+    GetRequest second = newRequest();
+    when(wsClient.wsConnector().call(second)).thenReturn(newResponse().setContent("secret content"));
+    assertThat(underTest.callCached(second).content()).isEqualTo("secret content");
+
+    GetRequest third = newRequest();
+    when(wsClient.wsConnector().call(third)).thenReturn(newResponse().setContent("secret content"));
+    underTest.callCached(third);
+    assertThat(third.getHeaders()).isEmpty();
+  }
+
+  private WsResponseCache newResponseCache() throws IOException {
+    return new WsResponseCache(FileCache.create(temp.newFolder(), mock(Logger.class)), "http://localhost|login");
   }
 
   private MockWsResponse newResponse() {
     return new MockWsResponse().setRequestUrl("https://local/api/issues/search");
   }
 
-  private WsRequest newRequest() {
+  private GetRequest newRequest() {
     return new GetRequest("api/issues/search");
   }
 }
@@ -0,0 +1,116 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.bootstrap;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.home.cache.FileCache;
+import org.sonar.home.cache.Logger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class WsResponseCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private static final long NOW = 1_500_000_000_000L;
+
+  private TestSystem2 system2 = new TestSystem2().setNow(NOW);
+  private WsResponseCache underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new WsResponseCache(FileCache.create(temp.newFolder(), mock(Logger.class)), "http://localhost|login", system2);
+  }
+
+  @Test
+  public void put_get_and_remove_entry() throws Exception {
+    assertThat(underTest.get("foo")).isNull();
+
+    WsResponseCache.Entry entry = put("foo", "\"abc\"");
+    assertThat(entry.etag()).isEqualTo("\"abc\"");
+    assertThat(FileUtils.readFileToString(entry.content(), UTF_8)).isEqualTo("content of foo");
+    assertThat(underTest.get("foo").etag()).isEqualTo("\"abc\"");
+
+    underTest.remove("foo");
+    assertThat(underTest.get("foo")).isNull();
+    assertThat(entry.content()).doesNotExist();
+  }
+
+  @Test
+  public void cleanup_deletes_entries_not_used_for_a_long_time() {
+    put("old", "\"abc\"");
+    put("used", "\"def\"");
+
+    system2.setNow(NOW + TimeUnit.DAYS.toMillis(WsResponseCache.MAX_ENTRY_AGE_DAYS - 1));
+    underTest.get("used");
+
+    system2.setNow(NOW + TimeUnit.DAYS.toMillis(WsResponseCache.MAX_ENTRY_AGE_DAYS + 1));
+    underTest.cleanup();
+
+    assertThat(underTest.get("old")).isNull();
+    assertThat(underTest.get("used")).isNotNull();
+  }
+
+  @Test
+  public void cleanup_deletes_least_recently_used_entries_when_cache_is_too_big() throws Exception {
+    WsResponseCache.Entry big = put("big", "\"abc\"");
+    try (RandomAccessFile file = new RandomAccessFile(big.content(), "rw")) {
+      file.setLength(WsResponseCache.MAX_SIZE_BYTES);
+    }
+    big.content().setLastModified(NOW);
+    system2.setNow(NOW + 1_000L);
+    put("small", "\"def\"");
+
+    system2.setNow(NOW + TimeUnit.DAYS.toMillis(2));
+    underTest.cleanup();
+
+    assertThat(underTest.get("big")).isNull();
+    assertThat(underTest.get("small")).isNotNull();
+  }
+
+  @Test
+  public void cleanup_is_done_at_most_once_a_day() {
+    put("foo", "\"abc\"");
+    underTest.cleanup();
+    File marker = new File(underTest.get("foo").content().getParentFile(), ".last_cleanup");
+    assertThat(marker).isFile();
+
+    system2.setNow(NOW + TimeUnit.DAYS.toMillis(WsResponseCache.MAX_ENTRY_AGE_DAYS + 1));
+    marker.setLastModified(system2.now() - 1_000L);
+    underTest.cleanup();
+    assertThat(underTest.get("foo")).isNotNull();
+  }
+
+  private WsResponseCache.Entry put(String key, String etag) {
+    return underTest.put(key, etag, new ByteArrayInputStream(("content of " + key).getBytes(UTF_8)));
+  }
+}
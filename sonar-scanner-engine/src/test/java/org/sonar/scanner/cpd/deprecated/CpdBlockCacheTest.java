@@ -0,0 +1,145 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cpd.deprecated;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.home.cache.FileCache;
+import org.sonar.home.cache.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class CpdBlockCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private static final long NOW = 1_500_000_000_000L;
+
+  private Settings settings = new MapSettings();
+  private TestSystem2 system2 = new TestSystem2().setNow(NOW);
+  private FileCache fileCache;
+  private CpdBlockCache underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    fileCache = FileCache.create(temp.newFolder(), mock(Logger.class));
+    underTest = new CpdBlockCache(settings, fileCache, system2);
+  }
+
+  @Test
+  public void disabled_by_default() {
+    assertThat(underTest.isEnabled()).isFalse();
+
+    settings.setProperty(CpdBlockCache.ENABLED_PROPERTY, true);
+    assertThat(new CpdBlockCache(settings, mock(FileCache.class)).isEnabled()).isTrue();
+  }
+
+  @Test
+  public void key_depends_on_file_hash_and_tokenization_parameters() {
+    DefaultInputFile file = new DefaultInputFile("foo", "src/Foo.java").setLanguage("java");
+    assertThat(underTest.key(file, this, "UTF-8", 10)).isNull();
+
+    file.setHash("abc");
+    String key = underTest.key(file, this, "UTF-8", 10);
+    assertThat(key).isEqualTo(underTest.key(file, this, "UTF-8", 10));
+    assertThat(key).isNotEqualTo(underTest.key(file, this, "UTF-8", 20));
+    assertThat(key).isNotEqualTo(underTest.key(file, this, "ISO-8859-1", 10));
+    assertThat(key).isNotEqualTo(underTest.key(file, "other tokenizer", "UTF-8", 10));
+
+    file.setHash("def");
+    assertThat(key).isNotEqualTo(underTest.key(file, this, "UTF-8", 10));
+  }
+
+  @Test
+  public void key_depends_on_cpd_settings_which_may_configure_tokenizers() {
+    DefaultInputFile file = new DefaultInputFile("foo", "src/Foo.java").setLanguage("java").setHash("abc");
+    String key = underTest.key(file, this, "UTF-8", 10);
+
+    settings.setProperty(CoreProperties.CPD_EXCLUSIONS, "**/*.xml");
+    settings.setProperty("sonar.foo", "bar");
+    assertThat(new CpdBlockCache(settings, fileCache, system2).key(file, this, "UTF-8", 10)).isEqualTo(key);
+
+    settings.setProperty("sonar.cpd.java.ignoreLiterals", "true");
+    assertThat(new CpdBlockCache(settings, fileCache, system2).key(file, this, "UTF-8", 10)).isNotEqualTo(key);
+  }
+
+  @Test
+  public void store_and_load_blocks() {
+    Block block1 = Block.builder().setResourceId("foo:src/Foo.java").setBlockHash(new ByteArray("0102")).setIndexInFile(0).setLines(1, 10).setUnit(0, 5).build();
+    Block block2 = Block.builder().setResourceId("foo:src/Foo.java").setBlockHash(new ByteArray("0304")).setIndexInFile(1).setLines(2, 12).setUnit(1, 6).build();
+
+    assertThat(underTest.get("cafe", "foo:src/Foo.java")).isNull();
+
+    underTest.put("cafe", Arrays.asList(block1, block2));
+    List<Block> blocks = underTest.get("cafe", "foo:src/Foo.java");
+
+    assertThat(blocks).containsExactly(block1, block2);
+    assertThat(blocks.get(1).getStartUnit()).isEqualTo(1);
+    assertThat(blocks.get(1).getEndUnit()).isEqualTo(6);
+    // resource is the one of the current analysis
+    assertThat(underTest.get("cafe", "bar:src/Foo.java").get(0).getResourceId()).isEqualTo("bar:src/Foo.java");
+  }
+
+  @Test
+  public void cleanup_deletes_entries_not_used_for_a_long_time() {
+    Block block = Block.builder().setResourceId("foo:src/Foo.java").setBlockHash(new ByteArray("0102")).setIndexInFile(0).setLines(1, 10).setUnit(0, 5).build();
+    underTest.put("cafe", Arrays.asList(block));
+    underTest.put("beef", Arrays.asList(block));
+
+    system2.setNow(NOW + TimeUnit.DAYS.toMillis(CpdBlockCache.MAX_ENTRY_AGE_DAYS - 1));
+    // reading an entry makes it recently used
+    assertThat(underTest.get("cafe", "foo:src/Foo.java")).isNotNull();
+
+    system2.setNow(NOW + TimeUnit.DAYS.toMillis(CpdBlockCache.MAX_ENTRY_AGE_DAYS + 1));
+    underTest.cleanup();
+
+    assertThat(underTest.get("cafe", "foo:src/Foo.java")).isNotNull();
+    assertThat(underTest.get("beef", "foo:src/Foo.java")).isNull();
+  }
+
+  @Test
+  public void cleanup_is_done_at_most_once_a_day() {
+    Block block = Block.builder().setResourceId("foo:src/Foo.java").setBlockHash(new ByteArray("0102")).setIndexInFile(0).setLines(1, 10).setUnit(0, 5).build();
+    underTest.put("cafe", Arrays.asList(block));
+    underTest.cleanup();
+    assertThat(new File(fileCache.getDir(), "_cpd/.last_cleanup")).isFile();
+
+    system2.setNow(NOW + TimeUnit.DAYS.toMillis(CpdBlockCache.MAX_ENTRY_AGE_DAYS + 1));
+    new File(fileCache.getDir(), "_cpd/.last_cleanup").setLastModified(NOW + TimeUnit.DAYS.toMillis(CpdBlockCache.MAX_ENTRY_AGE_DAYS + 1) - 1_000L);
+    underTest.cleanup();
+
+    assertThat(underTest.get("cafe", "foo:src/Foo.java")).isNotNull();
+  }
+}
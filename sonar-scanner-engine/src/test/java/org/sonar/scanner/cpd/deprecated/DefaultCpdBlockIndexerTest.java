@@ -40,7 +40,7 @@ public class DefaultCpdBlockIndexerTest {
   @Before
   public void init() {
     settings = new MapSettings();
-    engine = new DefaultCpdBlockIndexer(null, null, settings, null);
+    engine = new DefaultCpdBlockIndexer(null, null, settings, null, null);
   }
 
   @Test
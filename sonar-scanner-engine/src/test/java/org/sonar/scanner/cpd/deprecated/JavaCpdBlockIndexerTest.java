@@ -38,12 +38,15 @@ import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.config.Settings;
 import org.sonar.api.config.MapSettings;
 import org.sonar.duplications.block.Block;
+import org.sonar.home.cache.FileCache;
+import org.sonar.home.cache.Logger;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
 import org.sonar.scanner.index.BatchComponentCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
@@ -58,7 +61,9 @@ public class JavaCpdBlockIndexerTest {
 
   private Settings settings;
   private JavaCpdBlockIndexer engine;
+  private DefaultFileSystem fs;
   private DefaultInputFile file;
+  private FileCache fileCache;
 
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
@@ -68,7 +73,7 @@ public class JavaCpdBlockIndexerTest {
     MockitoAnnotations.initMocks(this);
 
     File baseDir = temp.newFolder();
-    DefaultFileSystem fs = new DefaultFileSystem(baseDir);
+    fs = new DefaultFileSystem(baseDir);
     file = new DefaultInputFile("foo", "src/ManyStatements.java").setLanguage(JAVA);
     fs.add(file);
     BatchComponentCache batchComponentCache = new BatchComponentCache();
@@ -77,12 +82,13 @@ public class JavaCpdBlockIndexerTest {
     FileUtils.copyURLToFile(this.getClass().getResource("ManyStatements.java"), ioFile);
 
     settings = new MapSettings();
-    engine = new JavaCpdBlockIndexer(fs, settings, index);
+    fileCache = FileCache.create(temp.newFolder(), mock(Logger.class));
+    engine = new JavaCpdBlockIndexer(fs, settings, index, new CpdBlockCache(settings, fileCache));
   }
 
   @Test
   public void languageSupported() {
-    JavaCpdBlockIndexer engine = new JavaCpdBlockIndexer(mock(FileSystem.class), new MapSettings(), index);
+    JavaCpdBlockIndexer engine = new JavaCpdBlockIndexer(mock(FileSystem.class), new MapSettings(), index, mock(CpdBlockCache.class));
     assertThat(engine.isLanguageSupported(JAVA)).isTrue();
     assertThat(engine.isLanguageSupported("php")).isFalse();
   }
@@ -103,4 +109,22 @@ public class JavaCpdBlockIndexerTest {
 
     assertThat(blockList).hasSize(26);
   }
+
+  @Test
+  public void reuse_cached_blocks_of_unchanged_file() throws Exception {
+    settings.setProperty(CpdBlockCache.ENABLED_PROPERTY, true);
+    file.setHash("abcdef");
+    engine = new JavaCpdBlockIndexer(fs, settings, index, new CpdBlockCache(settings, fileCache));
+    engine.index(JAVA);
+
+    // content is not read again as long as the hash does not change
+    FileUtils.write(file.file(), "");
+    engine.index(JAVA);
+
+    verify(index, times(2)).insert(eq(file), blockCaptor.capture());
+    List<Block> first = blockCaptor.getAllValues().get(0);
+    List<Block> second = blockCaptor.getAllValues().get(1);
+    assertThat(second).hasSize(26);
+    assertThat(second).containsExactlyElementsOf(first);
+  }
 }
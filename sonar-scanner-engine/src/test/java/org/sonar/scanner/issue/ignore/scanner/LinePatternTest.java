@@ -0,0 +1,76 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.ignore.scanner;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LinePatternTest {
+
+  @Test
+  public void extract_literal_prefix() {
+    assertThat(LinePattern.extractRequiredLiteral("// SONAR-OFF")).isEqualTo("// SONAR-OFF");
+    assertThat(LinePattern.extractRequiredLiteral("^@SONAR-IGNORE-ALL")).isEqualTo("@SONAR-IGNORE-ALL");
+    assertThat(LinePattern.extractRequiredLiteral("// BEGIN-.*")).isEqualTo("// BEGIN-");
+    assertThat(LinePattern.extractRequiredLiteral("generated\\s+code")).isEqualTo("generated");
+  }
+
+  @Test
+  public void drop_last_character_when_quantified() {
+    assertThat(LinePattern.extractRequiredLiteral("colou?r")).isEqualTo("colo");
+    assertThat(LinePattern.extractRequiredLiteral("ab*")).isEqualTo("a");
+    assertThat(LinePattern.extractRequiredLiteral("a{2}")).isNull();
+  }
+
+  @Test
+  public void no_literal_when_not_starting_with_text_or_with_alternation() {
+    assertThat(LinePattern.extractRequiredLiteral("")).isNull();
+    assertThat(LinePattern.extractRequiredLiteral("^")).isNull();
+    assertThat(LinePattern.extractRequiredLiteral(".*foo")).isNull();
+    assertThat(LinePattern.extractRequiredLiteral("(?i)foo")).isNull();
+    assertThat(LinePattern.extractRequiredLiteral("foo|bar")).isNull();
+  }
+
+  @Test
+  public void find_behaves_like_regexp() {
+    LinePattern pattern = new LinePattern("// BEGIN-[A-Z]+");
+
+    assertThat(pattern.requiredLiteral()).isEqualTo("// BEGIN-");
+    assertThat(pattern.find("int i; // BEGIN-FOO")).isTrue();
+    assertThat(pattern.find("int i; // BEGIN-")).isFalse();
+    assertThat(pattern.find("int i;")).isFalse();
+  }
+
+  @Test
+  public void find_without_literal() {
+    LinePattern pattern = new LinePattern("(?i)sonar-off");
+
+    assertThat(pattern.requiredLiteral()).isNull();
+    assertThat(pattern.find("// Sonar-Off")).isTrue();
+    assertThat(pattern.find("// sonar-on")).isFalse();
+  }
+
+  @Test
+  public void is_empty() {
+    assertThat(new LinePattern("").isEmpty()).isTrue();
+    assertThat(new LinePattern("foo").isEmpty()).isFalse();
+  }
+}
@@ -54,7 +54,7 @@ public class DefaultGlobalRepositoriesLoaderTest {
   @Test
   public void test() {
     globalRepositoryLoader.load();
-    WsTestUtil.verifyCall(wsClient, BATCH_GLOBAL_URL);
+    WsTestUtil.verifyCachedCall(wsClient, BATCH_GLOBAL_URL);
     verifyNoMoreInteractions(wsClient);
   }
 
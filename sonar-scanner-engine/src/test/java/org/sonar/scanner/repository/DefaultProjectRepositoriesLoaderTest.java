@@ -32,8 +32,8 @@ import org.sonar.api.utils.MessageException;
 import org.sonar.scanner.WsTestUtil;
 import org.sonar.scanner.bootstrap.BatchWsClient;
 import org.sonarqube.ws.WsBatch.WsProjectResponse;
+import org.sonarqube.ws.client.GetRequest;
 import org.sonarqube.ws.client.HttpException;
-import org.sonarqube.ws.client.WsRequest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -58,7 +58,7 @@ public class DefaultProjectRepositoriesLoaderTest {
 
   @Test
   public void continueOnError() {
-    when(wsClient.call(any(WsRequest.class))).thenThrow(IllegalStateException.class);
+    when(wsClient.callCached(any(GetRequest.class))).thenThrow(IllegalStateException.class);
     ProjectRepositories proj = loader.load(PROJECT_KEY, false);
     assertThat(proj.exists()).isEqualTo(false);
   }
@@ -93,10 +93,10 @@ public class DefaultProjectRepositoriesLoaderTest {
   @Test
   public void passIssuesModeParameter() {
     loader.load(PROJECT_KEY, false);
-    WsTestUtil.verifyCall(wsClient, "/batch/project.protobuf?key=foo%3F");
+    WsTestUtil.verifyCachedCall(wsClient, "/batch/project.protobuf?key=foo%3F");
 
     loader.load(PROJECT_KEY, true);
-    WsTestUtil.verifyCall(wsClient, "/batch/project.protobuf?key=foo%3F&issues_mode=true");
+    WsTestUtil.verifyCachedCall(wsClient, "/batch/project.protobuf?key=foo%3F&issues_mode=true");
   }
 
   @Test
@@ -107,7 +107,7 @@ public class DefaultProjectRepositoriesLoaderTest {
   @Test
   public void passAndEncodeProjectKeyParameter() {
     loader.load(PROJECT_KEY, false);
-    WsTestUtil.verifyCall(wsClient, "/batch/project.protobuf?key=foo%3F");
+    WsTestUtil.verifyCachedCall(wsClient, "/batch/project.protobuf?key=foo%3F");
   }
 
   private InputStream mockData() throws IOException {
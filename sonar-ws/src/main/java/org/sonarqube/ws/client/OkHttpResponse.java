@@ -25,6 +25,7 @@ import okhttp3.ResponseBody;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import javax.annotation.CheckForNull;
 
 class OkHttpResponse extends BaseResponse {
 
@@ -49,6 +50,12 @@ class OkHttpResponse extends BaseResponse {
     return okResponse.header("Content-Type");
   }
 
+  @Override
+  @CheckForNull
+  public String header(String name) {
+    return okResponse.header(name);
+  }
+
   /**
    * Get stream of bytes
    */
@@ -43,6 +43,14 @@ public interface WsRequest {
 
   Parameters getParameters();
 
+  /**
+   * HTTP headers to be sent in addition to the ones set by the connector.
+   * They are not supported by local calls.
+   *
+   * @since 6.3
+   */
+  Map<String, String> getHeaders();
+
   enum Method {
     GET, POST
   }
@@ -22,6 +22,7 @@ package org.sonarqube.ws.client;
 import java.io.Closeable;
 import java.io.InputStream;
 import java.io.Reader;
+import javax.annotation.CheckForNull;
 
 /**
  * @since 5.3
@@ -51,6 +52,14 @@ public interface WsResponse extends Closeable {
 
   String contentType();
 
+  /**
+   * Value of the given HTTP header, or null if not present
+   *
+   * @since 6.3
+   */
+  @CheckForNull
+  String header(String name);
+
   boolean hasContent();
 
   InputStream contentStream();
@@ -87,6 +87,19 @@ public class BootstrappingTest extends PerfTestCase {
     perfRule.assertDurationAround(MavenLogs.extractTotalTime(result.getLogs()), 27200L);
   }
 
+  @Test
+  public void warmStartIsFasterThanColdStart() throws IOException {
+    File userHome = temp.newFolder();
+
+    // Cold start: plugins must be downloaded and exploded into an empty user home
+    BuildResult result = orchestrator.executeBuild(newScanner("-Xmx512m -server", "sonar.userHome", userHome.getAbsolutePath()));
+    long coldDuration = MavenLogs.extractTotalTime(result.getLogs());
+
+    // Warm start: plugins are already in the cache of the same user home
+    result = orchestrator.executeBuild(newScanner("-Xmx512m -server", "sonar.userHome", userHome.getAbsolutePath()));
+    perfRule.assertDurationLessThan(MavenLogs.extractTotalTime(result.getLogs()), coldDuration);
+  }
+
   private static File prepareProjectWithManyFlatModules(int SIZE) throws IOException {
     File baseDir = temp.newFolder();
     File projectProps = new File(baseDir, "sonar-project.properties");
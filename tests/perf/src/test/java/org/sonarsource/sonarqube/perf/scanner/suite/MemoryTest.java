@@ -63,6 +63,18 @@ public class MemoryTest extends PerfTestCase {
       newScanner("-Xmx80m -server -XX:-HeapDumpOnOutOfMemoryError"));
   }
 
+  @Test
+  public void should_not_fail_with_limited_xmx_memory_when_tracking_issues() throws IOException {
+    // Server issues to be tracked, one per line
+    orchestrator.executeBuild(newScanner("-Xmx512m -server", "sonar.profile", "one-xoo-issue-per-line"));
+
+    orchestrator.executeBuild(
+      newScanner("-Xmx80m -server -XX:-HeapDumpOnOutOfMemoryError",
+        "sonar.profile", "one-xoo-issue-per-line",
+        "sonar.analysis.mode", "issues",
+        "sonar.userHome", temp.newFolder().getAbsolutePath()));
+  }
+
   int DEPTH = 4;
 
   // Property on root module is duplicated in each module so it may be big